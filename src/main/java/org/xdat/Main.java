@@ -53,6 +53,7 @@ import java.io.IOException;
 import java.io.InvalidClassException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -105,6 +106,24 @@ public class Main extends JFrame {
 				fireSubListeners(DatasheetListener::onDataPanelUpdateRequired);
 			}
 
+			@Override
+			public void onSelectionChanged(BitSet changedRows) {
+				SwingUtilities.invokeLater(() -> {
+					DataSheet dataSheet = getDataSheet();
+					if (dataSheetTablePanel != null && dataSheet != null) {
+						dataSheetTablePanel.setSelectedRows(dataSheet.getSelectedRows());
+					}
+				});
+				repaintAllChartFrames();
+				fireSubListeners(l -> l.onSelectionChanged(changedRows));
+			}
+
+			@Override
+			public void onFiltersChanged(BitSet changedColumns) {
+				repaintAllChartFrames();
+				fireSubListeners(l -> l.onFiltersChanged(changedColumns));
+			}
+
 			@Override
 			public void onDataChanged(boolean[] autoFitRequired, boolean[] filterResetRequired, boolean[] applyFiltersRequired, boolean parametersChanged) {
 				final ProgressMonitor progressMonitor = new ProgressMonitor(Main.this, "", "Rebuilding charts", 0, getDataSheet().getParameterCount() - 1);
@@ -220,6 +239,9 @@ public class Main extends JFrame {
 		DataSheet currentDataSheet = this.currentSession.getCurrentDataSheet();
 		if(currentDataSheet != null) {
 			currentDataSheet.removeListener(this.datasheetListener);
+			if (currentDataSheet != dataSheet) {
+				currentDataSheet.dispose();
+			}
 		}
 		this.currentSession.setCurrentDataSheet(dataSheet);
 		if (dataSheet == null) {
@@ -363,8 +385,10 @@ public class Main extends JFrame {
 
 	public void loadSession(String pathToFile) {
 		try {
+			Session session = Session.readFromFile(pathToFile);
 			this.disposeAllChartFrames();
-			this.currentSession = Session.readFromFile(pathToFile);
+			this.currentSession.dispose();
+			this.currentSession = session;
 
 			this.setTitle("xdat   -   " + pathToFile);
 
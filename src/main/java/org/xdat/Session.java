@@ -81,6 +81,16 @@ public class Session implements Serializable {
 
 	}
 
+	/**
+	 * Releases the resources held by the data sheet of this session.
+	 */
+	public void dispose() {
+		DataSheet ds = this.currentDataSheet;
+		if (ds != null) {
+			ds.dispose();
+		}
+	}
+
 	private void initTransientData() {
 		DataSheet ds = this.currentDataSheet;
 		if (ds != null){
@@ -309,6 +309,44 @@ public class UserPreferences {
 		PREFS.put(Key.OTHER_DELIMITER.getId(), otherDelimiter);
 	}
 
+	public boolean isUseMappedStorage() {
+		return PREFS.getBoolean(Key.USE_MAPPED_STORAGE.getId(), false);
+	}
+
+	public void setUseMappedStorage(boolean useMappedStorage) {
+		PREFS.putBoolean(Key.USE_MAPPED_STORAGE.getId(), useMappedStorage);
+	}
+
+	public String getScratchDir() {
+		return PREFS.get(Key.SCRATCH_DIR.getId(), System.getProperty("java.io.tmpdir"));
+	}
+
+	public void setScratchDir(String scratchDir) {
+		PREFS.put(Key.SCRATCH_DIR.getId(), scratchDir);
+	}
+
+	/**
+	 * @return the interval in seconds at which a followed data file is checked for new designs
+	 */
+	public int getFollowPollInterval() {
+		return PREFS.getInt(Key.FOLLOW_POLL_INTERVAL.getId(), 5);
+	}
+
+	public void setFollowPollInterval(int followPollInterval) {
+		PREFS.putInt(Key.FOLLOW_POLL_INTERVAL.getId(), followPollInterval);
+	}
+
+	/**
+	 * @return the largest number of designs to import from a file, or 0 to import all designs
+	 */
+	public int getImportSampleSize() {
+		return PREFS.getInt(Key.IMPORT_SAMPLE_SIZE.getId(), 0);
+	}
+
+	public void setImportSampleSize(int importSampleSize) {
+		PREFS.putInt(Key.IMPORT_SAMPLE_SIZE.getId(), importSampleSize);
+	}
+
 	public Locale getLocale() {
 		int locale = PREFS.getInt(Key.LOCALE.getId(), LOCALE_US);
 		if (locale == LOCALE_DE) {
@@ -42,11 +42,7 @@ public class ChartFrameAddDesignToClusterMenuActionListener implements ActionLis
 	public void actionPerformed(ActionEvent e) {
 		DataSheet dataSheet = chartFrame.getChart().getDataSheet();
 		ParallelCoordinatesChart chart = (ParallelCoordinatesChart) chartFrame.getChart();
-		for (int i = 0; i < dataSheet.getDesignCount(); i++) {
-			if (dataSheet.getDesign(i).isActive(chart)) {
-				dataSheet.getDesign(i).setCluster(cluster);
-			}
-		}
+		dataSheet.setCluster(chart.getActiveDesigns(), cluster);
 		this.chartFrame.getChartPanel().setPreferredSize(this.chartFrame.getChartPanel().getPreferredSize());
 
 		for (int i = 0; i < this.mainWindow.getChartFrameCount(); i++) {
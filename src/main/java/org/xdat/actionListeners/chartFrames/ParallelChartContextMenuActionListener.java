@@ -23,12 +23,11 @@ package org.xdat.actionListeners.chartFrames;
 import org.xdat.Main;
 import org.xdat.chart.Axis;
 import org.xdat.chart.ParallelCoordinatesChart;
+import org.xdat.data.Colormap;
 import org.xdat.data.DataSheet;
-import org.xdat.data.Design;
 import org.xdat.gui.frames.ChartFrame;
 import org.xdat.gui.tables.DataSheetTableColumnModel;
 
-import java.awt.Color;
 import java.awt.event.ActionEvent;
 
 public class ParallelChartContextMenuActionListener {
@@ -99,9 +98,12 @@ public class ParallelChartContextMenuActionListener {
 
 	public void resetAllFilters(ActionEvent e) {
 		ParallelCoordinatesChart chart = this.axis.getChart();
-		for (int i = 0; i < chart.getAxisCount(); i++) {
-			chart.getAxis(i).resetFilters(this.mainWindow.getDataSheet());
-		}
+		DataSheet dataSheet = this.mainWindow.getDataSheet();
+		dataSheet.runTransaction(() -> {
+			for (int i = 0; i < chart.getAxisCount(); i++) {
+				chart.getAxis(i).resetFilters(dataSheet);
+			}
+		});
 	}
 
 	public void reduceDistanceAllAxes(ActionEvent e) {
@@ -125,109 +127,13 @@ public class ParallelChartContextMenuActionListener {
 	}
 
 	public void applyColorGradient(ActionEvent e) {
-		ParallelCoordinatesChart chart = (ParallelCoordinatesChart) this.chartFrame.getChart();
-		DataSheet datasheet = chart.getDataSheet();
-
-		double axisRange = this.axis.getMax() - this.axis.getMin();
-
-		for (int designID = 0; designID < datasheet.getDesignCount(); designID++) {
-			Design currentDesign = datasheet.getDesign(designID);
-			double value = currentDesign.getDoubleValue(datasheet.getParameter(this.axis.getName()));
-
-			if (axisRange == 0) {
-				currentDesign.setAxisGradientColor(new Color(0, 0, 255, 150));
-			} else {
-				double ratio;
-				int alpha = 255;
-				if (axis.isAxisInverted()) {
-					ratio = (axis.getMax() - value) / axisRange;
-				} else {
-					ratio = (value - axis.getMin()) / axisRange;
-				}
-
-				if (ratio > 1 || ratio < 0) {
-					currentDesign.removeAxisGradientColor();
-				} else if (ratio > 0.9) {
-					ratio = (ratio * 10.) - 9.;
-					int r = 165 + (int) (50. * (1. - ratio));
-					int g = (int) (48. * (1. - ratio));
-					int b = 38 + (int) (1. * (1. - ratio));
-
-					currentDesign.setAxisGradientColor(new Color(r, g, b, alpha));
-				} else if (ratio > 0.8) {
-					ratio = (ratio * 10.) - 8.;
-					int r = 215 + (int) (29. * (1. - ratio));
-					int g = 48 + (int) (61. * (1. - ratio));
-					int b = 39 + (int) (28. * (1. - ratio));
-
-					currentDesign.setAxisGradientColor(new Color(r, g, b, alpha));
-				} else if (ratio > 0.7) {
-					ratio = (ratio * 10.) - 7.;
-					int r = 244 + (int) (9. * (1. - ratio));
-					int g = 109 + (int) (65. * (1. - ratio));
-					int b = 67 + (int) (30. * (1. - ratio));
-
-					currentDesign.setAxisGradientColor(new Color(r, g, b, alpha));
-				} else if (ratio > 0.6) {
-					ratio = (ratio * 10.) - 6;
-					int r = 253 + (int) (1. * (1. - ratio));
-					int g = 174 + (int) (50. * (1. - ratio));
-					int b = 97 + (int) (47. * (1. - ratio));
-
-					currentDesign.setAxisGradientColor(new Color(r, g, b, alpha));
-				} else if (ratio > 0.5) {
-					ratio = (ratio * 10.) - 5.;
-					int r = 254 + (int) (1. * (1. - ratio));
-					int g = 224 + (int) (31. * (1. - ratio));
-					int b = 144 + (int) (47. * (1. - ratio));
-					currentDesign.setAxisGradientColor(new Color(r, g, b, alpha));
-				} else if (ratio > 0.4) {
-					ratio = (ratio * 10.) - 4;
-					int r = 255 - (int) (31. * ratio);
-					int g = 255 - (int) (12. * ratio);
-					int b = 191 + (int) (57. * (1. - ratio));
-					currentDesign.setAxisGradientColor(new Color(r, g, b, alpha));
-				} else if (ratio > 0.3) {
-					ratio = (ratio * 10.) - 3.;
-					int r = 224 - (int) (53. * ratio);
-					int g = 243 - (int) (26. * ratio);
-					int b = 248 - (int) (15. * ratio);
-
-					currentDesign.setAxisGradientColor(new Color(r, g, b, alpha));
-				} else if (ratio > 0.2) {
-					ratio = (ratio * 10.) - 2.;
-					int r = 171 - (int) (55. * ratio);
-					int g = 217 - (int) (44. * ratio);
-					int b = 233 - (int) (24. * ratio);
-
-					currentDesign.setAxisGradientColor(new Color(r, g, b, alpha));
-				} else if (ratio > 0.1) {
-					ratio = (ratio * 10.) - 1.;
-					int r = 116 - (int) (67. * ratio);
-					int g = 173 - (int) (56. * ratio);
-					int b = 209 - (int) (29. * ratio);
-
-					currentDesign.setAxisGradientColor(new Color(r, g, b, alpha));
-				} else {
-					ratio = ratio * 10.;
-					int r = 69 - (int) (20. * ratio);
-					int g = 117 - (int) (63. * ratio);
-					int b = 180 - (int) (31. * ratio);
-
-					currentDesign.setAxisGradientColor(new Color(r, g, b, alpha));
-				}
-			}
-		}
-
+		DataSheet datasheet = this.chartFrame.getChart().getDataSheet();
+		datasheet.applyColorGradient(this.axis.getParameter(), this.axis.getMin(), this.axis.getMax(), this.axis.isAxisInverted(), Colormap.BLUE_YELLOW_RED);
 		this.mainWindow.repaintAllChartFrames();
 	}
 
 	public void resetColorGradient(ActionEvent e) {
-		DataSheet datasheet = this.chartFrame.getChart().getDataSheet();
-
-		for (int designID = 0; designID < datasheet.getDesignCount(); designID++) {
-			datasheet.getDesign(designID).removeAxisGradientColor();
-		}
+		this.chartFrame.getChart().getDataSheet().removeColorGradient();
 		this.mainWindow.repaintAllChartFrames();
 	}
 }
@@ -73,11 +73,7 @@ public class ParallelChartSidebarActionListener {
 
 	public void applySettings(ParallelCoordinatesChart chart, Cluster cluster) {
 		DataSheet dataSheet = chart.getDataSheet();
-		for (int i = 0; i < dataSheet.getDesignCount(); i++) {
-			if (dataSheet.getDesign(i).isActive(chart)) {
-				dataSheet.getDesign(i).setCluster(cluster);
-			}
-		}
+		dataSheet.setCluster(chart.getActiveDesigns(), cluster);
 		this.chartPanel.setPreferredSize(this.chartPanel.getPreferredSize());
 
 		for (int i = 0; i < this.mainWindow.getChartFrameCount(); i++) {
@@ -20,12 +20,14 @@
 
 package org.xdat.actionListeners.importSettings;
 
+import org.jetbrains.annotations.Nullable;
 import org.xdat.Main;
 import org.xdat.UserPreferences;
 import org.xdat.gui.dialogs.FileImportSettingsDialog;
 
 import javax.swing.ButtonModel;
 import javax.swing.JFileChooser;
+import javax.swing.JTextField;
 import java.awt.event.ActionEvent;
 import java.io.File;
 
@@ -78,21 +80,37 @@ public class FileImportSettingsDialogActionListener {
 		} else {
 			UserPreferences.getInstance().setLocale(UserPreferences.LOCALE_US);
 		}
+
+		// Data storage
+		UserPreferences.getInstance().setUseMappedStorage(this.dialog.getUseMappedStorageCheckBox().isSelected());
+		UserPreferences.getInstance().setScratchDir(this.dialog.getScratchDirTextField().getText());
+		UserPreferences.getInstance().setImportSampleSize((Integer) this.dialog.getImportSampleSizeSpinner().getValue());
+
+		// Following data files
+		UserPreferences.getInstance().setFollowPollInterval((Integer) this.dialog.getFollowPollIntervalSpinner().getValue());
 		this.dialog.dispose();
 	}
 
 	public void onBrowse(ActionEvent e) {
+		chooseDirectory(dialog.getUseThisTextField(), UserPreferences.getInstance().getCurrentDir());
+	}
+
+	public void onBrowseScratchDir(ActionEvent e) {
+		chooseDirectory(dialog.getScratchDirTextField(), UserPreferences.getInstance().getScratchDir());
+	}
+
+	private void chooseDirectory(JTextField textField, @Nullable String currentDir) {
 		String filepath;
 		JFileChooser chooser = new JFileChooser();
-		if (UserPreferences.getInstance().getCurrentDir() != null) {
-			chooser.setCurrentDirectory(new File(UserPreferences.getInstance().getCurrentDir()));
+		if (currentDir != null) {
+			chooser.setCurrentDirectory(new File(currentDir));
 		}
 		chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
 		int returnVal = chooser.showOpenDialog(this.mainWindow);
 
 		if (returnVal == JFileChooser.APPROVE_OPTION) {
 			filepath = chooser.getSelectedFile().getAbsolutePath();
-			dialog.getUseThisTextField().setText(filepath);
+			textField.setText(filepath);
 		}
 	}
 }
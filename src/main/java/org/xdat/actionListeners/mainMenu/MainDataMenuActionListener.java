@@ -23,10 +23,13 @@ package org.xdat.actionListeners.mainMenu;
 import org.xdat.Main;
 import org.xdat.UserPreferences;
 import org.xdat.data.DataSheet;
+import org.xdat.exceptions.InvalidExpressionException;
 import org.xdat.gui.dialogs.ClusterDialog;
 import org.xdat.workerThreads.DataSheetCreationThread;
+import org.xdat.workerThreads.DataSheetFollowThread;
 import org.xdat.workerThreads.DataSheetUpdateThread;
 
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.ProgressMonitor;
@@ -36,6 +39,7 @@ import java.io.File;
 public class MainDataMenuActionListener {
 
 	private Main mainWindow;
+	private DataSheetFollowThread followThread;
 
 	public MainDataMenuActionListener(Main mainWindow) {
 		this.mainWindow = mainWindow;
@@ -80,12 +84,52 @@ public class MainDataMenuActionListener {
 		}
 	}
 
+	public void loadFullData(ActionEvent e) {
+		DataSheet dataSheet = mainWindow.getDataSheet();
+		if (dataSheet == null) {
+			JOptionPane.showMessageDialog(mainWindow, "Please create a data sheet first by selecting Data->Import.", "Load Full Data", JOptionPane.INFORMATION_MESSAGE);
+		} else if (!dataSheet.isSampled()) {
+			JOptionPane.showMessageDialog(mainWindow, "All designs of the data file have already been imported.", "Load Full Data", JOptionPane.INFORMATION_MESSAGE);
+		} else {
+			ProgressMonitor progressMonitor = new ProgressMonitor(mainWindow, "", "Loading Full Data...", 0, 100);
+			progressMonitor.setProgress(0);
+			DataSheetUpdateThread sw = new DataSheetUpdateThread(mainWindow, progressMonitor);
+			sw.execute();
+		}
+	}
+
+	public void followDataFile(JCheckBoxMenuItem menuItem) {
+		if (followThread != null) {
+			followThread.cancel(true);
+			followThread = null;
+		}
+		if (!menuItem.isSelected()) {
+			return;
+		}
+		DataSheet dataSheet = mainWindow.getDataSheet();
+		if (dataSheet == null) {
+			JOptionPane.showMessageDialog(mainWindow, "Please create a data sheet first by selecting Data->Import.", "Follow Data File", JOptionPane.INFORMATION_MESSAGE);
+			menuItem.setSelected(false);
+		} else if (dataSheet.getSourceFile() == null) {
+			JOptionPane.showMessageDialog(mainWindow, "The data file of this data sheet is not known.\nPlease import or update the data from the file again.", "Follow Data File", JOptionPane.INFORMATION_MESSAGE);
+			menuItem.setSelected(false);
+		} else {
+			followThread = new DataSheetFollowThread(mainWindow, dataSheet, stoppedThread -> {
+				if (stoppedThread == followThread) {
+					followThread = null;
+					menuItem.setSelected(false);
+				}
+			});
+			followThread.execute();
+		}
+	}
+
 	public void unselectAllDesigns(ActionEvent e) {
 		DataSheet dataSheet = mainWindow.getDataSheet();
 		if (dataSheet == null)
 			JOptionPane.showMessageDialog(mainWindow, "Please create a data sheet first by selecting Data->Import.", "Clustering", JOptionPane.INFORMATION_MESSAGE);
 		else {
-			mainWindow.getDataSheetTablePanel().getDataTable().getSelectionModel().clearSelection();
+			dataSheet.clearSelection();
 		}
 	}
 
@@ -93,13 +137,37 @@ public class MainDataMenuActionListener {
 		DataSheet dataSheet = mainWindow.getDataSheet();
 		if (dataSheet == null)
 			JOptionPane.showMessageDialog(mainWindow, "Please create a data sheet first by selecting Data->Import.", "Clustering", JOptionPane.INFORMATION_MESSAGE);
-		else if (mainWindow.getDataSheetTablePanel().getDataTable().getSelectedRowCount() < 1)
+		else if (dataSheet.getSelectedDesignCount() < 1)
 			JOptionPane.showMessageDialog(mainWindow, "Please select at least one design first.", "Remove Designs", JOptionPane.INFORMATION_MESSAGE);
 		else {
-			// get selection
-			int[] selection = mainWindow.getDataSheetTablePanel().getDataTable().getSelectedRows();
-			mainWindow.getDataSheetTablePanel().getDataTable().getSelectionModel().clearSelection();
-			mainWindow.getDataSheet().removeDesigns(selection);
+			// the removed designs leave the selection empty
+			dataSheet.removeDesigns(dataSheet.getSelectedRows().stream().toArray());
+		}
+	}
+
+	public void addDerivedParameter(ActionEvent e) {
+		DataSheet dataSheet = mainWindow.getDataSheet();
+		if (dataSheet == null) {
+			JOptionPane.showMessageDialog(mainWindow, "Please create a data sheet first by selecting Data->Import.", "Add Derived Parameter", JOptionPane.INFORMATION_MESSAGE);
+			return;
+		}
+		String name = JOptionPane.showInputDialog(mainWindow, "Name of the new parameter:", "Add Derived Parameter", JOptionPane.QUESTION_MESSAGE);
+		if (name == null || name.trim().isEmpty()) {
+			return;
+		}
+		String message = "Expression, for instance mass / stiffness or max(\"stress 1\", \"stress 2\"):";
+		Object expression = "";
+		while (true) {
+			expression = JOptionPane.showInputDialog(mainWindow, message, "Add Derived Parameter", JOptionPane.QUESTION_MESSAGE, null, null, expression);
+			if (expression == null) {
+				return;
+			}
+			try {
+				dataSheet.addDerivedParameter(name.trim(), expression.toString());
+				return;
+			} catch (InvalidExpressionException ex) {
+				JOptionPane.showMessageDialog(mainWindow, ex.getMessage(), "Add Derived Parameter", JOptionPane.ERROR_MESSAGE);
+			}
 		}
 	}
 
@@ -20,17 +20,22 @@
 
 package org.xdat.chart;
 
+import org.jetbrains.annotations.Nullable;
 import org.xdat.data.DataSheet;
+import org.xdat.data.Design;
 import org.xdat.data.Parameter;
+import org.xdat.data.ValueEncoding;
 import org.xdat.gui.panels.DisabledValueSupplierDatasheetAxisLimit;
 import org.xdat.settings.IntegerSetting;
 import org.xdat.settings.Key;
+import org.xdat.settings.MultipleChoiceSetting;
 import org.xdat.settings.Setting;
 import org.xdat.settings.SettingsGroup;
 import org.xdat.settings.SettingsGroupFactory;
 
 import java.awt.Color;
 import java.io.Serializable;
+import java.util.BitSet;
 
 /**
  * A serializable representation of all relevant settings for an Axis on a
@@ -53,6 +58,15 @@ public class Axis implements Serializable {
 	private Filter upperFilter;
 	private Filter lowerFilter;
 	private final SettingsGroup settings;
+	@Nullable
+	private transient BitSet rowsOutsideRange;
+	private transient int parameterVersion;
+	private transient int evaluatedRowCount;
+	private transient double evaluatedMin;
+	private transient double evaluatedMax;
+	private transient boolean evaluatedShowMissingValues;
+	private transient boolean rangeFitted;
+	private transient int fittedParameterVersion;
 
 	public Axis(DataSheet dataSheet, ParallelCoordinatesChart chart, Parameter parameter) {
 		this.chart = chart;
@@ -61,13 +75,18 @@ public class Axis implements Serializable {
 				new DisabledValueSupplierDatasheetAxisLimit(dataSheet, parameter, DisabledValueSupplierDatasheetAxisLimit.AxisLimitType.MIN),
 				new DisabledValueSupplierDatasheetAxisLimit(dataSheet, parameter, DisabledValueSupplierDatasheetAxisLimit.AxisLimitType.MAX)
 		);
-		initialiseSettings(dataSheet);
 		if (this.settings.getBoolean(Key.PARALLEL_COORDINATES_AUTO_FIT_AXIS)) {
 			autofit(dataSheet);
 		}
 		IntegerSetting ticLabelDigitCountSetting = this.settings.getIntegerSetting(Key.PARALLEL_COORDINATES_AXIS_TIC_LABEL_DIGIT_COUNT);
 		ticLabelDigitCountSetting.set(parameter.getTicLabelDigitCount());
 		ticLabelDigitCountSetting.addListener((source, transaction) -> parameter.setTicLabelDigitCount(source.get()));
+		MultipleChoiceSetting encodingSetting = this.settings.getMultipleChoiceSetting(Key.PARALLEL_COORDINATES_AXIS_VALUE_ENCODING);
+		ValueEncoding chosenEncoding = parameter.getChosenEncoding();
+		encodingSetting.set(chosenEncoding == null ? SettingsGroupFactory.ENCODING_AUTOMATIC : chosenEncoding.getLabel());
+		encodingSetting.addListener((source, transaction) ->
+				dataSheet.setChosenEncoding(parameter, ValueEncoding.forLabel(source.get()))
+		);
 		this.settings.getBooleanSetting(Key.PARALLEL_COORDINATES_AXIS_INVERTED).addListener((source, transaction) ->
 				onAxisInverted(dataSheet)
 		);
@@ -75,10 +94,10 @@ public class Axis implements Serializable {
 				applyFilters(dataSheet)
 		);
 		this.settings.getDoubleSetting(Key.PARALLEL_COORDINATES_AXIS_DEFAULT_MIN).addListener((source, transaction) ->
-				dataSheet.evaluateBoundsForAllDesigns(chart)
+				onRangeChanged()
 		);
 		this.settings.getDoubleSetting(Key.PARALLEL_COORDINATES_AXIS_DEFAULT_MAX).addListener((source, transaction) ->
-				dataSheet.evaluateBoundsForAllDesigns(chart)
+				onRangeChanged()
 		);
 		this.settings.getIntegerSetting(Key.PARALLEL_COORDINATES_AXIS_TIC_COUNT).addListener((source, transaction) -> {
 			if (source.get() < 2) {
@@ -87,12 +106,7 @@ public class Axis implements Serializable {
 		});
 	}
 
-	private void initialiseSettings(DataSheet dataSheet) {
-		dataSheet.evaluateBoundsForAllDesigns(this.chart);
-	}
-
 	void resetSettingsToDefault(DataSheet dataSheet) {
-		initialiseSettings(dataSheet);
 		autofit(dataSheet);
 	}
 
@@ -101,10 +115,89 @@ public class Axis implements Serializable {
 		this.lowerFilter = new Filter(dataSheet, this, Filter.LOWER_FILTER);
 	}
 
+	/**
+	 * Sets the range of this Axis to the range of the values of its
+	 * parameter. The designs are checked against the new range when they are
+	 * painted next, see {@link #getRowsOutsideRange(DataSheet)}.
+	 */
 	public void autofit(DataSheet dataSheet) {
 		this.setMax(getMaxPossibleValue(dataSheet));
 		this.setMin(getMinPossibleValue(dataSheet));
-		dataSheet.evaluateBoundsForAllDesigns(this.chart);
+		this.rangeFitted = true;
+		this.fittedParameterVersion = this.parameter.getVersion();
+	}
+
+	/**
+	 * Fits the range of this Axis again, unless neither the values of its
+	 * parameter nor its range have changed since it was last fitted.
+	 */
+	void autofitIfOutdated(DataSheet dataSheet) {
+		if (!this.rangeFitted || this.fittedParameterVersion != this.parameter.getVersion()) {
+			autofit(dataSheet);
+		}
+	}
+
+	private void onRangeChanged() {
+		this.rangeFitted = false;
+		this.chart.invalidateDesignsInsideBounds();
+	}
+
+	/**
+	 * Gets the rows of the designs with a value outside the range of this
+	 * Axis. Designs with a missing value are outside the range unless
+	 * missing values are shown.
+	 * <p>
+	 * The result is kept until the range or the values of the parameter
+	 * change, so that changing one Axis does not check the designs against
+	 * all other axes. If values have only been appended to the parameter,
+	 * only the new designs are checked.
+	 *
+	 * @param dataSheet the data sheet
+	 * @return the rows of the designs outside the range. Must not be modified.
+	 */
+	BitSet getRowsOutsideRange(DataSheet dataSheet) {
+		BitSet rowsOutsideRange = this.rowsOutsideRange;
+		int designCount = dataSheet.getDesignCount();
+		if (rowsOutsideRange == null
+				|| !this.parameter.isAppendOnlySince(this.parameterVersion)
+				|| designCount < this.evaluatedRowCount
+				|| this.evaluatedMin != getMin()
+				|| this.evaluatedMax != getMax()
+				|| this.evaluatedShowMissingValues != this.chart.isShowMissingValues()) {
+			rowsOutsideRange = new BitSet(designCount);
+			evaluateRange(dataSheet, 0, rowsOutsideRange);
+		} else if (this.parameterVersion != this.parameter.getVersion() || this.evaluatedRowCount != designCount) {
+			rowsOutsideRange.clear(this.evaluatedRowCount, designCount);
+			evaluateRange(dataSheet, this.evaluatedRowCount, rowsOutsideRange);
+		}
+		return rowsOutsideRange;
+	}
+
+	private void evaluateRange(DataSheet dataSheet, int firstRow, BitSet rowsOutsideRange) {
+		double min = getMin();
+		double max = getMax();
+		boolean showMissingValues = this.chart.isShowMissingValues();
+		int designCount = dataSheet.getDesignCount();
+		for (int row = firstRow; row < designCount; row++) {
+			Design design = dataSheet.getDesign(row);
+			boolean inside;
+			if (design.isMissing(this.parameter)) {
+				inside = showMissingValues;
+			} else {
+				double value = design.getDoubleValue(this.parameter);
+				inside = min <= value && value <= max;
+			}
+			if (!inside) {
+				rowsOutsideRange.set(row);
+			}
+		}
+		this.rowsOutsideRange = rowsOutsideRange;
+		this.parameterVersion = this.parameter.getVersion();
+		this.evaluatedRowCount = designCount;
+		this.evaluatedMin = min;
+		this.evaluatedMax = max;
+		this.evaluatedShowMissingValues = showMissingValues;
+		this.chart.invalidateDesignsInsideBounds();
 	}
 
 	public double getMinPossibleValue(DataSheet dataSheet) {
@@ -199,6 +292,9 @@ public class Axis implements Serializable {
 
 	public void setParameter(Parameter parameter) {
 		this.parameter = parameter;
+		this.rowsOutsideRange = null;
+		this.rangeFitted = false;
+		this.chart.invalidateDesignsInsideBounds();
 	}
 
 	public Color getAxisColor() {
@@ -281,13 +377,17 @@ public class Axis implements Serializable {
 	}
 
 	public void applyFilters(DataSheet dataSheet) {
-		this.upperFilter.apply(dataSheet);
-		this.lowerFilter.apply(dataSheet);
+		dataSheet.runTransaction(() -> {
+			this.upperFilter.apply(dataSheet);
+			this.lowerFilter.apply(dataSheet);
+		});
 	}
 
 	public void resetFilters(DataSheet dataSheet) {
-		this.upperFilter.reset(dataSheet);
-		this.lowerFilter.reset(dataSheet);
+		dataSheet.runTransaction(() -> {
+			this.upperFilter.reset(dataSheet);
+			this.lowerFilter.reset(dataSheet);
+		});
 	}
 
 	public void initTransientData(){
@@ -20,11 +20,16 @@
 
 package org.xdat.chart;
 
+import org.jetbrains.annotations.Nullable;
 import org.xdat.data.DataSheet;
 import org.xdat.data.Design;
 import org.xdat.data.Parameter;
+import org.xdat.data.RangeSearch;
+import org.xdat.data.ValueOrder;
 
 import java.io.Serializable;
+import java.util.BitSet;
+import java.util.function.DoublePredicate;
 
 /**
  * Provides the possibility to filter the Designs on a
@@ -47,6 +52,9 @@ import java.io.Serializable;
  * <li>the Filter is inverted. In this case all designs with values between the
  * two Filters become inactive.
  * </ul>
+ * <p>
+ * Designs with a missing value for the Parameter of the Filter's Axis always
+ * pass the Filter, as they have no position on the Axis.
  */
 public class Filter implements Serializable {
 	static final long serialVersionUID = 2L;
@@ -57,6 +65,14 @@ public class Filter implements Serializable {
 	private final Axis axis;
 	private int xPos;
 	private double value;
+	@Nullable
+	private transient volatile BitSet passingRows;
+	private transient int dataVersion;
+	private transient int evaluatedRowCount;
+	private transient double evaluatedValue;
+	private transient double evaluatedTolerance;
+	private transient boolean evaluatedFiltersLargerValues;
+	private transient volatile int applyCount;
 	public Filter(DataSheet dataSheet, Axis axis, int filterType) {
 		this.axis = axis;
 		this.filterType = filterType;
@@ -123,7 +139,7 @@ public class Filter implements Serializable {
 		else
 			ratio = (bottomPos - pos) / posRange;
 		this.value = lowerLimit + valueRange * ratio;
-		apply(dataSheet);
+		move(dataSheet);
 	}
 
 	public int getHighestPos(DataSheet dataSheet) {
@@ -166,63 +182,219 @@ public class Filter implements Serializable {
 	 * Filter only when there is actually a reason for checking rather then upon
 	 * every repaint.
 	 * <p>
-	 * This implementation was chosen because the check if a design is filtered
-	 * would become to CPU expensive otherwise because each Filter would have to
-	 * be checked for each design every time the Chart is repainted.
+	 * The result is kept as a bit set over the rows of the data sheet, with a
+	 * bit set for every design that passes this Filter. The bit sets of all
+	 * Filters of a chart are combined by
+	 * {@link ParallelCoordinatesChart#getActiveDesigns()}.
 	 * <p>
+	 * The designs are only evaluated when the bit set is next requested, so
+	 * that a burst of changes, such as dragging the Filter, evaluates them
+	 * once per repaint rather than once per change.
      */
 	public void apply(DataSheet dataSheet) {
+		supersedeEvaluations(true);
+		this.axis.getChart().invalidateActiveDesigns();
+		dataSheet.fireFiltersChanged(dataSheet.getParameterIndex(this.axis.getParameter().getName()));
+	}
+
+	/**
+	 * Applies the Filter after it was dragged to a new value.
+	 * <p>
+	 * If the Filter has been evaluated and only its value has changed since,
+	 * only the designs with values between the previous and the new value
+	 * change whether they pass the Filter. These are found by a binary search
+	 * in the {@link ValueOrder} of the parameter and toggled, so that
+	 * dragging the Filter does not evaluate all designs again. Otherwise the
+	 * Filter is applied as usual.
+	 */
+	private void move(DataSheet dataSheet) {
+		BitSet passingRows = this.passingRows;
+		double tolerance = getTolerance();
+		boolean filtersLargerValues = filtersLargerValues();
+		if (passingRows == null
+				|| this.dataVersion != dataSheet.getDataVersion()
+				|| this.evaluatedRowCount != dataSheet.getDesignCount()
+				|| this.evaluatedTolerance != tolerance
+				|| this.evaluatedFiltersLargerValues != filtersLargerValues) {
+			apply(dataSheet);
+			return;
+		}
+		supersedeEvaluations(false);
+		ValueOrder order = dataSheet.getValueOrder(this.axis.getParameter());
+		int previousBoundary = getBoundary(order, this.evaluatedValue, tolerance, filtersLargerValues);
+		int boundary = getBoundary(order, this.value, tolerance, filtersLargerValues);
+		if (previousBoundary != boundary) {
+			this.axis.getChart().togglePassingRows(this, passingRows, order, Math.min(previousBoundary, boundary), Math.max(previousBoundary, boundary));
+		}
+		this.evaluatedValue = this.value;
+		dataSheet.fireFiltersChanged(dataSheet.getParameterIndex(this.axis.getParameter().getName()));
+	}
+
+	/**
+	 * @return the position in the order that separates the designs passing the Filter from the others
+	 */
+	private static int getBoundary(ValueOrder order, double value, double tolerance, boolean filtersLargerValues) {
+		return filtersLargerValues ? order.countNotAbove(value, tolerance) : order.countBelow(value, tolerance);
+	}
+
+	/**
+	 * Gets the rows of the designs that pass this Filter.
+	 * <p>
+	 * If the rows of the data sheet have changed since the Filter was last
+	 * applied, the Filter is evaluated again first. If designs have only been
+	 * appended, only the new designs are evaluated.
+	 * <p>
+	 * The Filter is evaluated as a range test over the values of its
+	 * parameter, see {@link DataSheet#findRowsWithinRange(Parameter, double, double, double, int)}.
+	 *
+	 * @param dataSheet the data sheet
+	 * @return the rows of the designs passing this filter. Must not be modified.
+	 */
+	BitSet getPassingRows(DataSheet dataSheet) {
+		BitSet passingRows = this.passingRows;
+		if (passingRows == null || !dataSheet.isAppendOnlySince(this.dataVersion)) {
+			passingRows = evaluate(dataSheet);
+		} else if (this.dataVersion != dataSheet.getDataVersion()) {
+			evaluate(dataSheet, this.evaluatedRowCount, passingRows);
+		}
+		return passingRows;
+	}
+
+	private BitSet evaluate(DataSheet dataSheet) {
+		BitSet passingRows = new BitSet(dataSheet.getDesignCount());
+		evaluate(dataSheet, 0, passingRows);
+		return passingRows;
+	}
+
+	private void evaluate(DataSheet dataSheet, int firstRow, BitSet passingRows) {
+		int applyCount = this.applyCount;
+		RangeSearch search = createSearch(dataSheet, firstRow);
+		search.searchAllBlocks();
+		passingRows.or(search.getRows());
+		setEvaluated(dataSheet, passingRows, applyCount);
+	}
+
+	/**
+	 * @param dataSheet the data sheet
+	 * @param firstRow the row of the first design to evaluate
+	 * @return a search for the designs passing this Filter, as a range of the values of its parameter
+	 */
+	RangeSearch createSearch(DataSheet dataSheet, int firstRow) {
+		boolean filtersLargerValues = filtersLargerValues();
+		double min = filtersLargerValues ? Double.NEGATIVE_INFINITY : this.value;
+		double max = filtersLargerValues ? this.value : Double.POSITIVE_INFINITY;
+		return dataSheet.createRangeSearch(this.axis.getParameter(), min, max, getTolerance(), firstRow);
+	}
+
+	/**
+	 * @param dataSheet the data sheet
+	 * @return true if all designs have to be evaluated before the passing rows can be used
+	 */
+	boolean needsEvaluation(DataSheet dataSheet) {
+		return this.passingRows == null || !dataSheet.isAppendOnlySince(this.dataVersion);
+	}
+
+	/**
+	 * Gets a number that changes whenever this Filter is applied or moved, so
+	 * that an evaluation that was started before can tell that it has been
+	 * superseded.
+	 *
+	 * @return the number of times this Filter has been applied
+	 */
+	int getApplyCount() {
+		return this.applyCount;
+	}
+
+	/**
+	 * Makes evaluations that are in progress discard their results, see
+	 * {@link #setEvaluated(DataSheet, BitSet, int)}.
+	 *
+	 * @param discardPassingRows whether the rows passing this Filter have to be evaluated again
+	 */
+	private synchronized void supersedeEvaluations(boolean discardPassingRows) {
+		this.applyCount++;
+		if (discardPassingRows) {
+			this.passingRows = null;
+		}
+	}
+
+	/**
+	 * Moves the result of the last evaluation along with the designs after
+	 * the data sheet was read again, so that only the new designs have to be
+	 * evaluated. If the last evaluation is outdated, the Filter is evaluated
+	 * again completely when it is used next.
+	 *
+	 * @param dataSheet the data sheet
+	 * @param previousVersion the data version before the designs were read again
+	 * @param previousRows for each row, the previous row of its design or -1 if the design is new
+	 */
+	void remapRows(DataSheet dataSheet, int previousVersion, int[] previousRows) {
+		BitSet previousPassingRows = this.passingRows;
+		if (previousPassingRows == null || this.dataVersion != previousVersion) {
+			this.passingRows = null;
+			return;
+		}
 		Parameter param = this.axis.getParameter();
-		double tolerance = this.getAxis().getRange() * FILTER_TOLERANCE;
-		if (tolerance <= 0) {
-			tolerance = FILTER_TOLERANCE;
+		DoublePredicate passes = createTest();
+		BitSet passingRows = new BitSet(previousRows.length);
+		for (int row = 0; row < previousRows.length; row++) {
+			int previousRow = previousRows[row];
+			if (previousRow < 0 ? passes(dataSheet.getDesign(row), param, passes) : previousPassingRows.get(previousRow)) {
+				passingRows.set(row);
+			}
 		}
+		setEvaluated(dataSheet, passingRows);
+		this.axis.getChart().invalidateActiveDesigns();
+	}
+
+	/**
+	 * @return a test telling whether a value of the Filter's parameter passes this Filter
+	 */
+	private DoublePredicate createTest() {
+		double toleratedValue = getTolerance();
 		double value = this.getValue();
+		if (filtersLargerValues()) {
+			return designValue -> !(designValue - toleratedValue > value);
+		} else {
+			return designValue -> !(designValue + toleratedValue < value);
+		}
+	}
 
-		for (Design design : dataSheet.getDesigns()) {
-			if (this.filterType == UPPER_FILTER && axis.isFilterInverted() && axis.isAxisInverted()) {
-				if (design.getDoubleValue(param) - tolerance > value)
-					design.setActive(this, false);
-				else
-					design.setActive(this, true);
-			} else if (this.filterType == LOWER_FILTER && axis.isFilterInverted() && axis.isAxisInverted()) {
-				if (design.getDoubleValue(param) + tolerance < value)
-					design.setActive(this, false);
-				else
-					design.setActive(this, true);
-			} else if (this.filterType == UPPER_FILTER && axis.isAxisInverted()) {
-				if (design.getDoubleValue(param) + tolerance < value)
-					design.setActive(this, false);
-				else
-					design.setActive(this, true);
-			} else if (this.filterType == LOWER_FILTER && axis.isAxisInverted()) {
-				if (design.getDoubleValue(param) - tolerance > value)
-					design.setActive(this, false);
-				else
-					design.setActive(this, true);
-			} else if (this.filterType == UPPER_FILTER && axis.isFilterInverted()) {
-				if (design.getDoubleValue(param) + tolerance < value)
-					design.setActive(this, false);
-				else
-					design.setActive(this, true);
-			} else if (this.filterType == LOWER_FILTER && axis.isFilterInverted()) {
-				if (design.getDoubleValue(param) - tolerance > value)
-					design.setActive(this, false);
-				else
-					design.setActive(this, true);
-			} else if (this.filterType == UPPER_FILTER) {
-				if (design.getDoubleValue(param) - tolerance > value)
-					design.setActive(this, false);
-				else
-					design.setActive(this, true);
-			} else if (this.filterType == LOWER_FILTER) {
-				if (design.getDoubleValue(param) + tolerance < value)
-					design.setActive(this, false);
-				else
-					design.setActive(this, true);
-			}
+	private double getTolerance() {
+		double tolerance = this.getAxis().getRange() * FILTER_TOLERANCE;
+		return tolerance <= 0 ? FILTER_TOLERANCE : tolerance;
+	}
+
+	private boolean filtersLargerValues() {
+		// Inverting the axis or the filter swaps the side that is filtered out
+		return (this.filterType == UPPER_FILTER) ^ axis.isAxisInverted() ^ axis.isFilterInverted();
+	}
+
+	private static boolean passes(Design design, Parameter param, DoublePredicate test) {
+		return design.isMissing(param) || test.test(design.getDoubleValue(param));
+	}
+
+	/**
+	 * Keeps the result of an evaluation, unless this Filter has been applied
+	 * or moved since the evaluation started.
+	 *
+	 * @param dataSheet the data sheet
+	 * @param passingRows the rows of the designs passing this Filter
+	 * @param applyCount the {@link #getApplyCount() apply count} when the evaluation started
+	 */
+	synchronized void setEvaluated(DataSheet dataSheet, BitSet passingRows, int applyCount) {
+		if (this.applyCount == applyCount) {
+			setEvaluated(dataSheet, passingRows);
 		}
-		dataSheet.fireOnDataChanged(false, false, false, false);
+	}
+
+	private void setEvaluated(DataSheet dataSheet, BitSet passingRows) {
+		this.evaluatedValue = this.value;
+		this.evaluatedTolerance = getTolerance();
+		this.evaluatedFiltersLargerValues = filtersLargerValues();
+		this.dataVersion = dataSheet.getDataVersion();
+		this.evaluatedRowCount = dataSheet.getDesignCount();
+		this.passingRows = passingRows;
 	}
 
 	public void reset(DataSheet dataSheet) {
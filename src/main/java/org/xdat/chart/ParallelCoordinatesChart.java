@@ -25,6 +25,9 @@ import org.xdat.data.Cluster;
 import org.xdat.data.DataSheet;
 import org.xdat.data.DatasheetListener;
 import org.xdat.data.Design;
+import org.xdat.data.Parameter;
+import org.xdat.data.RangeSearch;
+import org.xdat.data.ValueOrder;
 import org.xdat.settings.Key;
 import org.xdat.settings.SettingsGroup;
 import org.xdat.settings.SettingsGroupFactory;
@@ -35,9 +38,14 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Point;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -69,11 +77,33 @@ import java.util.stream.Stream;
  */
 public class ParallelCoordinatesChart extends Chart implements Serializable {
 
-	static final long serialVersionUID = 4;
+	static final long serialVersionUID = 5;
 	private static final int BOTTOM_PADDING = 60;
 	private static final int TOP_MARGIN = 10;
-	private final List<Axis> axes = new LinkedList<>();
+	private static final int MISSING_VALUES_DISTANCE = 10;
+	private final List<Axis> axes = new ArrayList<>();
+	/**
+	 * The axes by their parameters, built when an axis is first looked up by
+	 * the name of its parameter.
+	 */
+	@Nullable
+	private transient Map<Parameter, Axis> axesByParameter;
 	private final SettingsGroup chartSettings;
+	@Nullable
+	private transient volatile BitSet activeDesigns;
+	private transient volatile int activeDesignsDataVersion;
+	private transient volatile int activeDesignsGeneration;
+	/**
+	 * A number that changes whenever the active designs are invalidated, as
+	 * Filters may be applied on a worker thread while the active designs are
+	 * determined on the event dispatch thread.
+	 */
+	private transient volatile int filterGeneration;
+	@Nullable
+	private transient volatile int[] failedAxisCounts;
+	@Nullable
+	private transient BitSet designsInsideBounds;
+	private transient int designsInsideBoundsDataVersion;
 	public ParallelCoordinatesChart(DataSheet dataSheet, ProgressMonitor progressMonitor, int id) {
 		super(dataSheet, id);
 		this.chartSettings = SettingsGroupFactory.buildGeneralParallelCoordinatesChartSettingsGroup();
@@ -90,19 +120,19 @@ public class ParallelCoordinatesChart extends Chart implements Serializable {
 		if (!progressMonitor.isCanceled()) {
 			progressMonitor.setNote("Building Filters...");
 			progressMonitor.setProgress(0);
-			for (int i = 0; i < dataSheet.getParameterCount() && !progressMonitor.isCanceled(); i++) {
-				this.axes.get(i).addFilters(dataSheet);
-				progressMonitor.setProgress(i);
-			}
+			dataSheet.runTransaction(() -> {
+				for (int i = 0; i < dataSheet.getParameterCount() && !progressMonitor.isCanceled(); i++) {
+					this.axes.get(i).addFilters(dataSheet);
+					progressMonitor.setProgress(i);
+				}
+			});
 		}
 		Stream.concat(
-				this.chartSettings.getSettings().values().stream(),
-				axes.stream()
-						.map(Axis::getSettings)
-						.flatMap(g -> g.getSettings().values().stream())
-		).forEach(s ->
-				s.addListener((source, transaction) ->
-						handleSettingChange(this::fireChanged, transaction))
+				Stream.of(this.chartSettings),
+				axes.stream().map(Axis::getSettings)
+		).forEach(this::listenToSettings);
+		this.chartSettings.getMultipleChoiceSetting(Key.PARALLEL_COORDINATES_MISSING_VALUES).addListener((source, transaction) ->
+				invalidateDesignsInsideBounds()
 		);
 
 		dataSheet.addListener(new DatasheetListener() {
@@ -115,12 +145,25 @@ public class ParallelCoordinatesChart extends Chart implements Serializable {
 			public void onDataPanelUpdateRequired() {
 			}
 
+			@Override
+			public void onDesignsUpdated(int previousVersion, int[] previousRows) {
+				for (Axis axis : axes) {
+					axis.getUpperFilter().remapRows(dataSheet, previousVersion, previousRows);
+					axis.getLowerFilter().remapRows(dataSheet, previousVersion, previousRows);
+				}
+			}
+
 			@Override
 			public void onDataChanged(boolean[] autoFitRequired, boolean[] filterResetRequired, boolean[] applyFiltersRequired, boolean parametersChanged) {
 				boolean changed = false;
 				if (parametersChanged) {
-					// we never add, so only check for removal is needed
 					changed = axes.removeIf(axis -> !dataSheet.parameterExists(axis.getParameter()));
+					if (changed) {
+						axesByParameter = null;
+						invalidateActiveDesigns();
+						invalidateDesignsInsideBounds();
+					}
+					changed |= addMissingAxes(dataSheet);
 				}
 				for (int i = 0; i < axes.size(); i++) {
 					Axis axis = axes.get(i);
@@ -144,6 +187,40 @@ public class ParallelCoordinatesChart extends Chart implements Serializable {
 		});
 	}
 
+	private void listenToSettings(SettingsGroup settings) {
+		settings.getSettings().values().forEach(s ->
+				s.addListener((source, transaction) ->
+						handleSettingChange(this::fireChanged, transaction))
+		);
+	}
+
+	/**
+	 * Adds axes for parameters that were added to the data sheet, such as
+	 * derived parameters, at the position of the parameter.
+	 *
+	 * @return true if axes were added
+	 */
+	private boolean addMissingAxes(DataSheet dataSheet) {
+		boolean added = false;
+		Map<Parameter, Axis> axesByParameter = getAxesByParameter();
+		for (int i = 0; i < dataSheet.getParameterCount(); i++) {
+			Parameter parameter = dataSheet.getParameter(i);
+			if (!axesByParameter.containsKey(parameter)) {
+				Axis newAxis = new Axis(dataSheet, this, parameter);
+				newAxis.addFilters(dataSheet);
+				this.axes.add(Math.min(i, this.axes.size()), newAxis);
+				listenToSettings(newAxis.getSettings());
+				added = true;
+			}
+		}
+		if (added) {
+			this.axesByParameter = null;
+			invalidateActiveDesigns();
+			invalidateDesignsInsideBounds();
+		}
+		return added;
+	}
+
 	private void handleSettingChange(Runnable changeHandler, @Nullable SettingsTransaction transaction) {
 		if (transaction == null) {
 			changeHandler.run();
@@ -161,7 +238,7 @@ public class ParallelCoordinatesChart extends Chart implements Serializable {
 	private void applyAutoFitIfNeeded() {
 		for (Axis axis : getAxes()) {
 			if (axis.isAutoFit()) {
-				axis.autofit(getDataSheet());
+				axis.autofitIfOutdated(getDataSheet());
 			}
 		}
 	}
@@ -209,12 +286,23 @@ public class ParallelCoordinatesChart extends Chart implements Serializable {
 	}
 
 	public Axis getAxis(String parameterName) {
-		for (Axis axis : this.axes) {
-			if (parameterName.equals(axis.getParameter().getName())) {
-				return axis;
+		DataSheet dataSheet = getDataSheet();
+		@Nullable Axis axis = dataSheet.parameterExists(parameterName) ? getAxesByParameter().get(dataSheet.getParameter(parameterName)) : null;
+		if (axis == null) {
+			throw new IllegalArgumentException("Axis " + parameterName + " not found");
+		}
+		return axis;
+	}
+
+	private Map<Parameter, Axis> getAxesByParameter() {
+		if (this.axesByParameter == null) {
+			Map<Parameter, Axis> axesByParameter = new IdentityHashMap<>(this.axes.size());
+			for (Axis axis : this.axes) {
+				axesByParameter.put(axis.getParameter(), axis);
 			}
+			this.axesByParameter = axesByParameter;
 		}
-		throw new IllegalArgumentException("Axis " + parameterName + " not found");
+		return this.axesByParameter;
 	}
 
 	public int getMaxAxisLabelFontSize() {
@@ -241,6 +329,9 @@ public class ParallelCoordinatesChart extends Chart implements Serializable {
 
 	public void addAxis(Axis axis) {
 		this.axes.add(axis);
+		this.axesByParameter = null;
+		invalidateActiveDesigns();
+		invalidateDesignsInsideBounds();
 	}
 
 	public void moveAxis(int oldIndex, int newIndex) {
@@ -248,6 +339,212 @@ public class ParallelCoordinatesChart extends Chart implements Serializable {
 		this.axes.add(newIndex, axis);
 	}
 
+	/**
+	 * Gets the rows of the designs that pass the Filters on all axes of this
+	 * chart.
+	 * <p>
+	 * The result is computed from the bit sets of the Filters and cached until
+	 * a Filter is applied again, the axes change or the data sheet is
+	 * modified. When a Filter is dragged, only the designs it moves across
+	 * are updated, see {@link #togglePassingRows(Filter, BitSet, ValueOrder, int, int)}.
+	 * <p>
+	 * If a Filter is applied while the result is computed, the result is not
+	 * cached, and if the Filter is applied before the Filters have been
+	 * evaluated, they are evaluated again for the new state.
+	 *
+	 * @return the rows of the active designs. Must not be modified.
+	 */
+	public BitSet getActiveDesigns() {
+		DataSheet dataSheet = getDataSheet();
+		while (true) {
+			int generation = this.filterGeneration;
+			BitSet activeDesigns = this.activeDesigns;
+			if (activeDesigns != null && this.activeDesignsDataVersion == dataSheet.getDataVersion() && this.activeDesignsGeneration == generation) {
+				return activeDesigns;
+			}
+			evaluateFilters(dataSheet);
+			if (this.filterGeneration != generation) {
+				// the superseded Filters are evaluated again in parallel rather than one by one below
+				continue;
+			}
+			activeDesigns = new BitSet(dataSheet.getDesignCount());
+			activeDesigns.set(0, dataSheet.getDesignCount());
+			for (Axis axis : this.axes) {
+				activeDesigns.and(getPassingRows(axis, dataSheet));
+			}
+			synchronized (this) {
+				if (this.filterGeneration == generation) {
+					this.activeDesignsGeneration = generation;
+					this.activeDesignsDataVersion = dataSheet.getDataVersion();
+					this.failedAxisCounts = null;
+					this.activeDesigns = activeDesigns;
+				}
+			}
+			return activeDesigns;
+		}
+	}
+
+	/**
+	 * Evaluates all Filters of this chart that have to be evaluated
+	 * completely, such as after all Filters were reset.
+	 * <p>
+	 * The rows are searched in blocks, and the blocks of all these Filters
+	 * are searched in parallel on the common ForkJoin pool. If a Filter is
+	 * applied again while it is evaluated, its remaining blocks are skipped
+	 * and its result is discarded, as it has been superseded. It is then
+	 * evaluated when it is used next.
+	 */
+	private void evaluateFilters(DataSheet dataSheet) {
+		List<Filter> filters = new ArrayList<>();
+		for (Axis axis : this.axes) {
+			for (Filter filter : Arrays.asList(axis.getUpperFilter(), axis.getLowerFilter())) {
+				if (filter.needsEvaluation(dataSheet)) {
+					filters.add(filter);
+				}
+			}
+		}
+		if (filters.isEmpty()) {
+			return;
+		}
+		int[] applyCounts = new int[filters.size()];
+		RangeSearch[] searches = new RangeSearch[filters.size()];
+		int taskCount = 0;
+		for (int i = 0; i < filters.size(); i++) {
+			applyCounts[i] = filters.get(i).getApplyCount();
+			searches[i] = filters.get(i).createSearch(dataSheet, 0);
+			taskCount += searches[i].getBlockCount();
+		}
+		// one task per block of each Filter
+		int[] taskSearches = new int[taskCount];
+		int[] taskBlocks = new int[taskCount];
+		int task = 0;
+		for (int i = 0; i < searches.length; i++) {
+			for (int block = 0; block < searches[i].getBlockCount(); block++) {
+				taskSearches[task] = i;
+				taskBlocks[task] = block;
+				task++;
+			}
+		}
+		IntStream.range(0, taskCount).parallel().forEach(t -> {
+			int i = taskSearches[t];
+			if (filters.get(i).getApplyCount() == applyCounts[i]) {
+				searches[i].searchBlock(taskBlocks[t]);
+			}
+		});
+		for (int i = 0; i < filters.size(); i++) {
+			filters.get(i).setEvaluated(dataSheet, searches[i].getRows(), applyCounts[i]);
+		}
+	}
+
+	/**
+	 * @return the rows of the designs that pass the Filters of an axis
+	 */
+	private static BitSet getPassingRows(Axis axis, DataSheet dataSheet) {
+		BitSet passingRows = (BitSet) axis.getUpperFilter().getPassingRows(dataSheet).clone();
+		if (axis.isFilterInverted()) {
+			passingRows.or(axis.getLowerFilter().getPassingRows(dataSheet));
+		} else {
+			passingRows.and(axis.getLowerFilter().getPassingRows(dataSheet));
+		}
+		return passingRows;
+	}
+
+	synchronized void invalidateActiveDesigns() {
+		this.activeDesigns = null;
+		this.failedAxisCounts = null;
+		this.filterGeneration++;
+	}
+
+	/**
+	 * Toggles whether the designs in a slice of a {@link ValueOrder} pass a
+	 * Filter, after the Filter was moved across them.
+	 * <p>
+	 * The active designs are updated along with the Filter. For this, the
+	 * number of axes whose Filters it does not pass is kept for each design,
+	 * so that a design becomes active or inactive when that number changes
+	 * from or to zero. If the active designs are not up to date, they are
+	 * determined again when they are requested next instead.
+	 *
+	 * @param filter the Filter
+	 * @param passingRows the rows of the designs passing the Filter, which are modified
+	 * @param order the order of the designs by their values of the Filter's parameter
+	 * @param from the position in the order of the first design to toggle
+	 * @param to the position in the order after the last design to toggle
+	 */
+	void togglePassingRows(Filter filter, BitSet passingRows, ValueOrder order, int from, int to) {
+		DataSheet dataSheet = getDataSheet();
+		BitSet activeDesigns = this.activeDesigns;
+		if (activeDesigns == null || this.activeDesignsDataVersion != dataSheet.getDataVersion() || this.activeDesignsGeneration != this.filterGeneration) {
+			for (int i = from; i < to; i++) {
+				passingRows.flip(order.getRow(i));
+			}
+			invalidateActiveDesigns();
+			return;
+		}
+		int[] failedAxisCounts = getFailedAxisCounts(dataSheet);
+		Axis axis = filter.getAxis();
+		Filter otherFilter = filter == axis.getUpperFilter() ? axis.getLowerFilter() : axis.getUpperFilter();
+		BitSet otherPassingRows = otherFilter.getPassingRows(dataSheet);
+		boolean filterInverted = axis.isFilterInverted();
+		for (int i = from; i < to; i++) {
+			int row = order.getRow(i);
+			boolean passedBefore = passingRows.get(row);
+			passingRows.set(row, !passedBefore);
+			boolean otherPasses = otherPassingRows.get(row);
+			boolean axisPassedBefore = filterInverted ? passedBefore || otherPasses : passedBefore && otherPasses;
+			boolean axisPasses = filterInverted ? !passedBefore || otherPasses : !passedBefore && otherPasses;
+			if (axisPassedBefore != axisPasses) {
+				failedAxisCounts[row] += axisPasses ? -1 : 1;
+				activeDesigns.set(row, failedAxisCounts[row] == 0);
+			}
+		}
+	}
+
+	private int[] getFailedAxisCounts(DataSheet dataSheet) {
+		int[] failedAxisCounts = this.failedAxisCounts;
+		if (failedAxisCounts == null) {
+			int designCount = dataSheet.getDesignCount();
+			failedAxisCounts = new int[designCount];
+			for (Axis axis : this.axes) {
+				BitSet passingRows = getPassingRows(axis, dataSheet);
+				for (int row = passingRows.nextClearBit(0); row < designCount; row = passingRows.nextClearBit(row + 1)) {
+					failedAxisCounts[row]++;
+				}
+			}
+			this.failedAxisCounts = failedAxisCounts;
+		}
+		return failedAxisCounts;
+	}
+
+	/**
+	 * Gets the rows of the designs with values inside the ranges of all
+	 * axes. Designs outside the range of an axis are not displayed.
+	 * <p>
+	 * Only the axes whose range or parameter values have changed are checked
+	 * again, see {@link Axis#getRowsOutsideRange(DataSheet)}.
+	 *
+	 * @return the rows of the designs inside the ranges of all axes. Must not be modified.
+	 */
+	public BitSet getDesignsInsideBounds() {
+		DataSheet dataSheet = getDataSheet();
+		BitSet designsInsideBounds = this.designsInsideBounds;
+		if (designsInsideBounds != null && this.designsInsideBoundsDataVersion == dataSheet.getDataVersion()) {
+			return designsInsideBounds;
+		}
+		designsInsideBounds = new BitSet(dataSheet.getDesignCount());
+		designsInsideBounds.set(0, dataSheet.getDesignCount());
+		for (Axis axis : this.axes) {
+			designsInsideBounds.andNot(axis.getRowsOutsideRange(dataSheet));
+		}
+		this.designsInsideBounds = designsInsideBounds;
+		this.designsInsideBoundsDataVersion = dataSheet.getDataVersion();
+		return designsInsideBounds;
+	}
+
+	void invalidateDesignsInsideBounds() {
+		this.designsInsideBounds = null;
+	}
+
 	public int getAxisHeight() {
 		return this.getFrameSize().height - this.getAxisTopPos() - BOTTOM_PADDING;
 	}
@@ -282,10 +579,11 @@ public class ParallelCoordinatesChart extends Chart implements Serializable {
 
 	public Color getDesignColor(Design design, boolean designActive, boolean useAlpha, Color activeDesignColor, Color activeDesignColorNoAlpha, Color filteredDesignColor, Color filteredDesignColorNoAlpha) // design active is function argument to improve  performance
 	{
-		if (designActive && design.hasGradientColor()) {
-			return design.getGradientColor();
+		@Nullable Color gradientColor = designActive ? getDataSheet().getGradientColor(design.getRow()) : null;
+		if (gradientColor != null) {
+			return gradientColor;
 		} else {
-			@Nullable Cluster cluster = design.getCluster();
+			@Nullable Cluster cluster = getDataSheet().getCluster(design.getRow());
 			if (designActive && cluster != null) {
 				return cluster.getActiveDesignColor(useAlpha);
 			} else if (designActive) {
@@ -323,6 +621,20 @@ public class ParallelCoordinatesChart extends Chart implements Serializable {
 		return chartSettings.getBoolean(Key.PARALLEL_COORDINATES_SHOW_ONLY_SELECTED_DESIGNS);
 	}
 
+	/**
+	 * @return true if designs with missing values are drawn with these values below the axes, false if such designs are hidden
+	 */
+	public boolean isShowMissingValues() {
+		return SettingsGroupFactory.MISSING_VALUES_SHOW_BELOW_AXIS.equals(chartSettings.getMultipleChoiceSetting(Key.PARALLEL_COORDINATES_MISSING_VALUES).get());
+	}
+
+	/**
+	 * @return the vertical position at which missing values are drawn if they are shown, below the lower filters
+	 */
+	public int getMissingValuesYPos() {
+		return getAxisTopPos() + getAxisHeight() + getFilterHeight() + MISSING_VALUES_DISTANCE;
+	}
+
 	public Color getFilterColor() {
 		return chartSettings.getColor(Key.PARALLEL_COORDINATES_FILTER_COLOR);
 	}
@@ -25,7 +25,6 @@ import org.xdat.UserPreferences;
 import org.xdat.data.AxisType;
 import org.xdat.data.Cluster;
 import org.xdat.data.DataSheet;
-import org.xdat.data.Design;
 import org.xdat.data.Parameter;
 
 import java.awt.Color;
@@ -77,8 +76,7 @@ public class ScatterPlot2D extends Plot {
 		resetDisplaySettingsToDefault();
 	}
 
-	public Color getDesignColor(Design design) {
-		@Nullable Cluster cluster = design.getCluster();
+	public Color getDesignColor(@Nullable Cluster cluster) {
 		if (cluster != null) {
 			return cluster.getActiveDesignColor(false);
 		} else {
@@ -0,0 +1,68 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import java.util.List;
+
+/**
+ * The designs that were appended to the source file of a {@link DataSheet},
+ * read by {@link DataSheet#readAppendedDesigns()} and not yet added to the
+ * data sheet.
+ * <p>
+ * Reading and adding are separate steps so that the file can be read on a
+ * worker thread, while the designs are added on the event dispatch thread.
+ */
+public class AppendedDesigns {
+	private final String sourceFile;
+	private final long start;
+	private final long end;
+	private final List<DataFileReader.Chunk> chunks;
+
+	AppendedDesigns(String sourceFile, long start, long end, List<DataFileReader.Chunk> chunks) {
+		this.sourceFile = sourceFile;
+		this.start = start;
+		this.end = end;
+		this.chunks = chunks;
+	}
+
+	String getSourceFile() {
+		return sourceFile;
+	}
+
+	long getStart() {
+		return start;
+	}
+
+	long getEnd() {
+		return end;
+	}
+
+	List<DataFileReader.Chunk> getChunks() {
+		return chunks;
+	}
+
+	/**
+	 * @return true if no complete lines were appended to the file
+	 */
+	public boolean isEmpty() {
+		return this.start == this.end;
+	}
+}
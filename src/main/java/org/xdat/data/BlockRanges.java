@@ -0,0 +1,112 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The smallest and the largest value of each block of rows of a
+ * {@link Column}, used by a {@link RangeSearch} to decide blocks in which
+ * all values are within a range, or none of them is, without reading their
+ * values.
+ * <p>
+ * The values are those of {@link Column#readValues(int, int, double[], BitSet)}.
+ * The blocks are computed when the rows are searched first after the column
+ * was modified. If values have only been appended, only the blocks of the
+ * new rows are computed.
+ */
+class BlockRanges {
+	static final int BLOCK_SIZE = 4096;
+	private double[] blockMin = new double[0];
+	private double[] blockMax = new double[0];
+	/**
+	 * The blocks with a missing value or NaN, which are within any range.
+	 */
+	private final BitSet blocksWithNaN = new BitSet();
+	private int rowCount;
+	private int version;
+
+	/**
+	 * Brings the blocks up to date with the values of a column.
+	 *
+	 * @param column the column
+	 */
+	void update(Column column) {
+		int rowCount = column.size();
+		int firstBlock;
+		if (!column.isAppendOnlySince(this.version) || rowCount < this.rowCount) {
+			firstBlock = 0;
+		} else if (column.getVersion() != this.version || rowCount != this.rowCount) {
+			// the last block may have been incomplete
+			firstBlock = this.rowCount / BLOCK_SIZE;
+		} else {
+			return;
+		}
+		int blockCount = (rowCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		this.blockMin = Arrays.copyOf(this.blockMin, blockCount);
+		this.blockMax = Arrays.copyOf(this.blockMax, blockCount);
+		this.blocksWithNaN.clear(firstBlock, Math.max(firstBlock, this.blocksWithNaN.length()));
+		double[] values = new double[BLOCK_SIZE];
+		BitSet missing = new BitSet(BLOCK_SIZE);
+		for (int block = firstBlock; block < blockCount; block++) {
+			int start = block * BLOCK_SIZE;
+			int length = Math.min(BLOCK_SIZE, rowCount - start);
+			column.readValues(start, length, values, missing);
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			boolean hasNaN = false;
+			for (int i = 0; i < length; i++) {
+				double value = values[i];
+				// comparisons with NaN are false, so NaN is left out of the range of the block
+				if (value < min) {
+					min = value;
+				}
+				if (value > max) {
+					max = value;
+				}
+				hasNaN |= Double.isNaN(value);
+			}
+			if (hasNaN) {
+				this.blocksWithNaN.set(block);
+			}
+			this.blockMin[block] = min;
+			this.blockMax[block] = max;
+		}
+		this.rowCount = rowCount;
+		this.version = column.getVersion();
+	}
+
+	/**
+	 * @return true if all values in a block are within a range, see {@link RangeSearch}
+	 */
+	boolean isAllWithin(int block, double min, double max, double tolerance) {
+		return !(this.blockMax[block] - tolerance > max) && !(this.blockMin[block] + tolerance < min);
+	}
+
+	/**
+	 * @return true if no value in a block is within a range, see {@link RangeSearch}
+	 */
+	boolean isNoneWithin(int block, double min, double max, double tolerance) {
+		return !this.blocksWithNaN.get(block)
+				&& (this.blockMin[block] - tolerance > max || this.blockMax[block] + tolerance < min);
+	}
+}
@@ -0,0 +1,263 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Splits the lines of a data file into values directly on the bytes of the
+ * file.
+ * <p>
+ * The tokenizer only supports delimiters that match single ASCII
+ * characters, optionally repeated, which covers all delimiters that can be
+ * chosen in the import settings apart from unusual custom ones. The result
+ * is the same as splitting each decoded line with
+ * {@link String#split(String)}.
+ * <p>
+ * Numbers are parsed straight from the buffer, so Strings are only created
+ * for values that are not numbers.
+ */
+class ByteTokenizer {
+	private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+	private final boolean[] delimiters;
+	private final boolean repeated;
+	private final Charset charset;
+
+	private ByteTokenizer(boolean[] delimiters, boolean repeated, Charset charset) {
+		this.delimiters = delimiters;
+		this.repeated = repeated;
+		this.charset = charset;
+	}
+
+	/**
+	 * @param delimiter the regular expression separating the values of a line
+	 * @param charset the charset of the file
+	 * @return a tokenizer for the delimiter or null if the delimiter or the charset is not supported
+	 */
+	@Nullable
+	static ByteTokenizer forDelimiter(String delimiter, Charset charset) {
+		if (!isAsciiCompatible(charset)) {
+			return null;
+		}
+		boolean repeated = delimiter.length() > 1 && delimiter.endsWith("+") && !delimiter.endsWith("\\+");
+		String single = repeated ? delimiter.substring(0, delimiter.length() - 1) : delimiter;
+		boolean[] delimiters = new boolean[128];
+		if (single.equals("\\s")) {
+			// \s without the line terminators, which never occur within a line
+			delimiters[' '] = true;
+			delimiters['\t'] = true;
+			delimiters[0x0B] = true;
+			delimiters['\f'] = true;
+		} else if (single.equals("\\t")) {
+			delimiters['\t'] = true;
+		} else if (single.length() == 1 && single.charAt(0) < 0x80 && REGEX_METACHARACTERS.indexOf(single.charAt(0)) < 0) {
+			delimiters[single.charAt(0)] = true;
+		} else if (single.length() == 2 && single.charAt(0) == '\\' && REGEX_METACHARACTERS.indexOf(single.charAt(1)) >= 0) {
+			delimiters[single.charAt(1)] = true;
+		} else {
+			return null;
+		}
+		return new ByteTokenizer(delimiters, repeated, charset);
+	}
+
+	/**
+	 * @return true if all ASCII characters are encoded as single bytes of
+	 * the same value, and these bytes are never part of other characters
+	 */
+	private static boolean isAsciiCompatible(Charset charset) {
+		if (charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)) {
+			return true;
+		}
+		if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1) {
+			return false;
+		}
+		byte[] ascii = new byte[128];
+		for (int i = 0; i < ascii.length; i++) {
+			ascii[i] = (byte) i;
+		}
+		return Arrays.equals(new String(ascii, StandardCharsets.US_ASCII).getBytes(charset), ascii);
+	}
+
+	/**
+	 * Reads all lines of the buffer into a chunk.
+	 *
+	 * @param bytes the bytes to read, from index 0 to the limit
+	 * @param chunk the chunk to add the designs to
+	 * @param parser the parser for numeric values
+	 * @param canceled tells whether reading should stop early
+	 */
+	void readLines(ByteBuffer bytes, DataFileReader.Chunk chunk, NumberParser parser, BooleanSupplier canceled) {
+		AsciiSequence sequence = new AsciiSequence(bytes);
+		int[] fieldStarts = new int[16];
+		int[] fieldEnds = new int[16];
+		char[] chars = new char[64];
+		int limit = bytes.limit();
+		int lineStart = 0;
+		while (lineStart < limit && !canceled.getAsBoolean()) {
+			int fieldCount = 0;
+			boolean sawDelimiter = false;
+			int fieldStart = lineStart;
+			int position = lineStart;
+			for (; position < limit; position++) {
+				byte b = bytes.get(position);
+				if (b == '\n' || b == '\r') {
+					break;
+				} else if (b >= 0 && this.delimiters[b]) {
+					if (fieldCount == fieldStarts.length) {
+						fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+						fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+					}
+					fieldStarts[fieldCount] = fieldStart;
+					fieldEnds[fieldCount++] = position;
+					sawDelimiter = true;
+					if (this.repeated) {
+						while (position + 1 < limit && bytes.get(position + 1) >= 0 && this.delimiters[bytes.get(position + 1)]) {
+							position++;
+						}
+					}
+					fieldStart = position + 1;
+				}
+			}
+			if (fieldCount == fieldStarts.length) {
+				fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+				fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+			}
+			fieldStarts[fieldCount] = fieldStart;
+			fieldEnds[fieldCount++] = position;
+			if (sawDelimiter) {
+				// like String.split(), drop trailing empty values
+				while (fieldCount > 0 && fieldStarts[fieldCount - 1] == fieldEnds[fieldCount - 1]) {
+					fieldCount--;
+				}
+			}
+
+			if (fieldCount > 0) {
+				boolean containsValues = false;
+				for (int i = 0; i < fieldCount && !containsValues; i++) {
+					containsValues = !isEmpty(bytes, fieldStarts[i], fieldEnds[i]);
+				}
+				if (containsValues) {
+					int design = chunk.addDesign();
+					for (int i = 0; i < chunk.getParameterCount(); i++) {
+						if (i >= fieldCount || isEmpty(bytes, fieldStarts[i], fieldEnds[i])) {
+							chunk.setMissing(design, i);
+							continue;
+						}
+						int start = fieldStarts[i];
+						int end = fieldEnds[i];
+						if (isAscii(bytes, start, end)) {
+							double parsed = parser.parseDouble(sequence, start, end);
+							if (!Double.isNaN(parsed) || parser.isNaNSymbol(sequence, start, end)) {
+								chunk.setNumber(design, i, parsed);
+							} else {
+								if (chars.length < end - start) {
+									chars = new char[Math.max(end - start, chars.length * 2)];
+								}
+								for (int j = start; j < end; j++) {
+									chars[j - start] = (char) bytes.get(j);
+								}
+								chunk.setText(design, i, new String(chars, 0, end - start));
+							}
+						} else {
+							String value = decode(bytes, start, end);
+							double parsed = parser.parseDouble(value);
+							if (!Double.isNaN(parsed) || parser.isNaNSymbol(value)) {
+								chunk.setNumber(design, i, parsed);
+							} else {
+								chunk.setText(design, i, value);
+							}
+						}
+					}
+				} else {
+					chunk.skipLine();
+				}
+			}
+
+			if (position + 1 < limit && bytes.get(position) == '\r' && bytes.get(position + 1) == '\n') {
+				position++;
+			}
+			lineStart = position + 1;
+		}
+	}
+
+	private static boolean isEmpty(ByteBuffer bytes, int start, int end) {
+		return start == end || end - start == 2 && bytes.get(start) == '\\' && bytes.get(start + 1) == 's';
+	}
+
+	private static boolean isAscii(ByteBuffer bytes, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (bytes.get(i) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String decode(ByteBuffer bytes, int start, int end) {
+		byte[] value = new byte[end - start];
+		for (int i = start; i < end; i++) {
+			value[i - start] = bytes.get(i);
+		}
+		return new String(value, this.charset);
+	}
+
+	/**
+	 * Presents bytes that are known to be ASCII as characters, so that they
+	 * can be handed to the {@link NumberParser} without copying.
+	 */
+	private static class AsciiSequence implements CharSequence {
+		private final ByteBuffer bytes;
+
+		private AsciiSequence(ByteBuffer bytes) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		public int length() {
+			return this.bytes.limit();
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) (this.bytes.get(index) & 0xFF);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			char[] chars = new char[end - start];
+			for (int i = start; i < end; i++) {
+				chars[i - start] = charAt(i);
+			}
+			return new String(chars);
+		}
+
+		@Override
+		public String toString() {
+			return subSequence(0, length()).toString();
+		}
+	}
+}
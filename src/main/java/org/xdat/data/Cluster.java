@@ -33,12 +33,11 @@ import java.util.Objects;
  * userspecified different color or removed from the display altogether,
  * irrespective of the {@link org.xdat.chart.Filter} settings.
  * <p>
- * Clusters enable the user to regroup the designs in logical subsets. This
- * achieved by storing a reference to a Cluster in the Design instance. Whenever
- * the Design is asked to which Cluster it belongs, it returns this reference.
- * The Cluster then provides the information whether it is active (which
- * determines whether the design should be displayed) and, if so, in which color
- * the Design is displayed.
+ * Clusters enable the user to regroup the designs in logical subsets. The
+ * data sheet keeps the cluster of each design, see
+ * {@link DataSheet#getCluster(int)}. The Cluster then provides the information
+ * whether it is active (which determines whether the design should be
+ * displayed) and, if so, in which color the Design is displayed.
  */
 public class Cluster implements Serializable {
 
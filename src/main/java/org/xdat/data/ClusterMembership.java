@@ -0,0 +1,184 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The {@link Cluster}s that the designs of a {@link DataSheet} belong to.
+ * <p>
+ * Each row has a cluster code, which is 0 for rows without a cluster and
+ * otherwise one more than the index of its cluster. The code column finds
+ * the cluster of a row directly. In addition, each cluster with members has
+ * a bitset of its rows, so that designs can be assigned to or removed from
+ * a cluster, and the designs of hidden clusters found, with operations on
+ * whole words, and so that the designs of one cluster can be iterated
+ * without looking at the others.
+ * <p>
+ * Rows beyond the end of the code column do not belong to any cluster, so
+ * appended designs need no update.
+ */
+class ClusterMembership implements Serializable {
+	static final long serialVersionUID = 1L;
+	private static final int NO_CLUSTER = 0;
+	private int[] codes = new int[0];
+	/**
+	 * The clusters by their code minus one, with null for codes that are no longer used.
+	 */
+	private final List<Cluster> clusters = new ArrayList<>();
+	private final List<BitSet> clusterRows = new ArrayList<>();
+
+	/**
+	 * @param row the row of a design
+	 * @return the cluster of the design or null if it does not belong to a cluster
+	 */
+	@Nullable
+	Cluster getCluster(int row) {
+		int code = row < this.codes.length ? this.codes[row] : NO_CLUSTER;
+		return code == NO_CLUSTER ? null : this.clusters.get(code - 1);
+	}
+
+	/**
+	 * @return the rows of the designs in the cluster, which may be modified by the caller
+	 */
+	BitSet getRows(Cluster cluster) {
+		int code = findCode(cluster);
+		return code == NO_CLUSTER ? new BitSet() : (BitSet) this.clusterRows.get(code - 1).clone();
+	}
+
+	/**
+	 * @return the rows of the designs in clusters that are not active
+	 */
+	BitSet getRowsOfInactiveClusters() {
+		BitSet rows = new BitSet();
+		for (int i = 0; i < this.clusters.size(); i++) {
+			Cluster cluster = this.clusters.get(i);
+			if (cluster != null && !cluster.isActive()) {
+				rows.or(this.clusterRows.get(i));
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Moves designs to a cluster, removing them from the clusters they belonged to before.
+	 *
+	 * @param rows the rows of the designs
+	 * @param cluster the new cluster of the designs, or null to remove them from their clusters
+	 */
+	void assign(BitSet rows, @Nullable Cluster cluster) {
+		if (rows.isEmpty()) {
+			return;
+		}
+		int code = cluster == null ? NO_CLUSTER : getOrCreateCode(cluster);
+		for (int i = 0; i < this.clusterRows.size(); i++) {
+			BitSet otherRows = this.clusterRows.get(i);
+			if (i != code - 1 && otherRows != null && otherRows.intersects(rows)) {
+				otherRows.andNot(rows);
+			}
+		}
+		if (code != NO_CLUSTER) {
+			this.clusterRows.get(code - 1).or(rows);
+		}
+		if (this.codes.length < rows.length()) {
+			if (code == NO_CLUSTER) {
+				// the rows beyond the code column have no cluster already
+				rows = rows.get(0, this.codes.length);
+			} else {
+				this.codes = Arrays.copyOf(this.codes, Math.max(rows.length(), 2 * this.codes.length));
+			}
+		}
+		fillCodes(rows, code);
+	}
+
+	/**
+	 * Removes all designs from a cluster that was removed.
+	 */
+	void remove(Cluster cluster) {
+		int code = findCode(cluster);
+		if (code == NO_CLUSTER) {
+			return;
+		}
+		fillCodes(this.clusterRows.get(code - 1), NO_CLUSTER);
+		this.clusters.set(code - 1, null);
+		this.clusterRows.set(code - 1, null);
+	}
+
+	/**
+	 * Moves the cluster codes along with their designs, after designs were
+	 * removed or read again.
+	 *
+	 * @param previousRows for each row, the previous row of its design or -1 if the design is new
+	 */
+	void remapRows(int[] previousRows) {
+		int[] newCodes = new int[previousRows.length];
+		for (BitSet rows : this.clusterRows) {
+			if (rows != null) {
+				rows.clear();
+			}
+		}
+		for (int row = 0; row < previousRows.length; row++) {
+			int previousRow = previousRows[row];
+			int code = previousRow >= 0 && previousRow < this.codes.length ? this.codes[previousRow] : NO_CLUSTER;
+			if (code != NO_CLUSTER) {
+				newCodes[row] = code;
+				this.clusterRows.get(code - 1).set(row);
+			}
+		}
+		this.codes = newCodes;
+	}
+
+	private void fillCodes(BitSet rows, int code) {
+		int start = rows.nextSetBit(0);
+		while (start >= 0) {
+			int end = rows.nextClearBit(start);
+			Arrays.fill(this.codes, start, end, code);
+			start = rows.nextSetBit(end);
+		}
+	}
+
+	private int findCode(Cluster cluster) {
+		int index = this.clusters.indexOf(cluster);
+		return index + 1;
+	}
+
+	private int getOrCreateCode(Cluster cluster) {
+		int code = findCode(cluster);
+		if (code != NO_CLUSTER) {
+			return code;
+		}
+		int index = this.clusters.indexOf(null);
+		if (index < 0) {
+			this.clusters.add(cluster);
+			this.clusterRows.add(new BitSet());
+			return this.clusters.size();
+		}
+		this.clusters.set(index, cluster);
+		this.clusterRows.set(index, new BitSet());
+		return index + 1;
+	}
+}
@@ -27,7 +27,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -36,7 +35,7 @@ public class ClusterSet implements Serializable {
 
 	static final long serialVersionUID = 1L;
 	private DataSheet dataSheet;
-	private final List<Cluster> clusters = new LinkedList<>();
+	private final List<Cluster> clusters = new ArrayList<>();
 
     private transient Set<ClusterListener> listeners;
 
@@ -72,9 +71,12 @@ public class ClusterSet implements Serializable {
 	}
 
 	public Optional<Cluster> findClusterById(int id) {
-        return this.clusters.stream()
-                .filter(c -> c.getUniqueId() == id)
-                .findAny();
+        for (Cluster cluster : this.clusters) {
+            if (cluster.getUniqueId() == id) {
+                return Optional.of(cluster);
+            }
+        }
+        return Optional.empty();
     }
 
 	public int getClusterCount() {
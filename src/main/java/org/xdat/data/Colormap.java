@@ -0,0 +1,129 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import java.awt.Color;
+import java.util.function.DoubleFunction;
+
+/**
+ * The color gradients with which the values of a parameter can be marked.
+ * <p>
+ * Each gradient is sampled once into a lookup table of {@link #SIZE}
+ * colors, so that marking the designs only stores the index of a color for
+ * each design, and no colors are created while the designs are marked or
+ * drawn.
+ */
+public enum Colormap {
+	BLUE_YELLOW_RED(Colormap::blueYellowRed);
+
+	/**
+	 * The number of colors in the lookup table of each gradient.
+	 */
+	public static final int SIZE = 1024;
+	private final Color[] colors = new Color[SIZE];
+
+	Colormap(DoubleFunction<Color> gradient) {
+		for (int i = 0; i < SIZE; i++) {
+			this.colors[i] = gradient.apply((double) i / (SIZE - 1));
+		}
+	}
+
+	/**
+	 * @param index the index of a color, from zero for the lowest values to {@link #SIZE} - 1 for the highest
+	 * @return the color
+	 */
+	public Color getColor(int index) {
+		return this.colors[index];
+	}
+
+	/**
+	 * @param ratio the position of a value in the range of the gradient, between zero and one
+	 * @return the index of the color of the value
+	 */
+	public int getIndex(double ratio) {
+		return (int) Math.round(ratio * (SIZE - 1));
+	}
+
+	private static Color blueYellowRed(double ratio) {
+		int alpha = 255;
+		if (ratio > 0.9) {
+			ratio = (ratio * 10.) - 9.;
+			int r = 165 + (int) (50. * (1. - ratio));
+			int g = (int) (48. * (1. - ratio));
+			int b = 38 + (int) (1. * (1. - ratio));
+			return new Color(r, g, b, alpha);
+		} else if (ratio > 0.8) {
+			ratio = (ratio * 10.) - 8.;
+			int r = 215 + (int) (29. * (1. - ratio));
+			int g = 48 + (int) (61. * (1. - ratio));
+			int b = 39 + (int) (28. * (1. - ratio));
+			return new Color(r, g, b, alpha);
+		} else if (ratio > 0.7) {
+			ratio = (ratio * 10.) - 7.;
+			int r = 244 + (int) (9. * (1. - ratio));
+			int g = 109 + (int) (65. * (1. - ratio));
+			int b = 67 + (int) (30. * (1. - ratio));
+			return new Color(r, g, b, alpha);
+		} else if (ratio > 0.6) {
+			ratio = (ratio * 10.) - 6;
+			int r = 253 + (int) (1. * (1. - ratio));
+			int g = 174 + (int) (50. * (1. - ratio));
+			int b = 97 + (int) (47. * (1. - ratio));
+			return new Color(r, g, b, alpha);
+		} else if (ratio > 0.5) {
+			ratio = (ratio * 10.) - 5.;
+			int r = 254 + (int) (1. * (1. - ratio));
+			int g = 224 + (int) (31. * (1. - ratio));
+			int b = 144 + (int) (47. * (1. - ratio));
+			return new Color(r, g, b, alpha);
+		} else if (ratio > 0.4) {
+			ratio = (ratio * 10.) - 4;
+			int r = 255 - (int) (31. * ratio);
+			int g = 255 - (int) (12. * ratio);
+			int b = 191 + (int) (57. * (1. - ratio));
+			return new Color(r, g, b, alpha);
+		} else if (ratio > 0.3) {
+			ratio = (ratio * 10.) - 3.;
+			int r = 224 - (int) (53. * ratio);
+			int g = 243 - (int) (26. * ratio);
+			int b = 248 - (int) (15. * ratio);
+			return new Color(r, g, b, alpha);
+		} else if (ratio > 0.2) {
+			ratio = (ratio * 10.) - 2.;
+			int r = 171 - (int) (55. * ratio);
+			int g = 217 - (int) (44. * ratio);
+			int b = 233 - (int) (24. * ratio);
+			return new Color(r, g, b, alpha);
+		} else if (ratio > 0.1) {
+			ratio = (ratio * 10.) - 1.;
+			int r = 116 - (int) (67. * ratio);
+			int g = 173 - (int) (56. * ratio);
+			int b = 209 - (int) (29. * ratio);
+			return new Color(r, g, b, alpha);
+		} else {
+			ratio = ratio * 10.;
+			int r = 69 - (int) (20. * ratio);
+			int g = 117 - (int) (63. * ratio);
+			int b = 180 - (int) (31. * ratio);
+			return new Color(r, g, b, alpha);
+		}
+	}
+}
@@ -0,0 +1,941 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Primitive storage for the values of one {@link Parameter}.
+ * <p>
+ * Values are stored by row, the row of a {@link Design} being its position
+ * in the {@link DataSheet}. Numeric values go into a store of the width of
+ * the {@link ValueEncoding} of the column, which is widened as required
+ * unless an encoding has been chosen. Values that cannot be parsed as
+ * numbers are stored as codes into a dictionary of strings. The code store
+ * is only allocated once the first non-numeric value is written, so purely
+ * numeric columns cost between one and eight bytes per design.
+ * <p>
+ * Missing values are marked in a bitmap, which is also
+ * only allocated once the first missing value is written. A missing value
+ * counts neither as a number nor as text, so it does not make the parameter
+ * non-numeric. Its string representation is {@link #MISSING_VALUE}, which
+ * is also its discrete level.
+ * <p>
+ * While the parameter is not numeric, the column additionally keeps the
+ * {@link DiscreteLevels} of its values and the level code of each row, and
+ * updates both on every write and removal. The {@link ParameterStatistics}
+ * of the values are maintained the same way.
+ * <p>
+ * If the column is created with a {@link ScratchSpace}, all per-row values
+ * are kept in memory mapped files instead of the heap. When serialized, only
+ * the rows in use are written, and they are read back into the same kind of
+ * storage.
+ */
+class Column implements Serializable {
+	static final long serialVersionUID = 5L;
+	static final String MISSING_VALUE = "-";
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int NO_TEXT = -1;
+	private static final int CODE_SLOT_SHIFT = 2;
+	private static final int QUANTIZED_STEPS = 0xFFFE;
+	private static final int QUANTIZED_NAN = 0xFFFF;
+	private static final int MAX_QUANTIZATION_WIDENINGS = 4;
+	private static final double MAX_EXACT_FLOAT_INTEGER = 1 << 24;
+	@Nullable
+	private final ScratchSpace scratchSpace;
+	private ValueEncoding encoding = ValueEncoding.BYTE;
+	private boolean encodingFixed;
+	private double quantizationMin;
+	private double quantizationMax;
+	private transient int quantizationWidenings;
+	private transient ValueStore values;
+	@Nullable
+	private transient ValueStore textCodes;
+	private final List<String> texts = new ArrayList<>();
+	private final Map<String, Integer> textIndex = new HashMap<>();
+	@Nullable
+	private BitSet missing;
+	private int size;
+	@Nullable
+	private DiscreteLevels levels;
+	@Nullable
+	private transient ValueStore levelCodes;
+	private transient ParameterStatistics statistics = new ParameterStatistics();
+	private transient int version;
+	private transient int rewriteVersion;
+	@Nullable
+	private transient BlockRanges blockRanges;
+	@Nullable
+	private transient ValueOrder valueOrder;
+	private transient int valueOrderVersion;
+
+	/**
+	 * @param scratchSpace the scratch space to keep the values in or null to keep them on the heap
+	 */
+	Column(@Nullable ScratchSpace scratchSpace) {
+		this.scratchSpace = scratchSpace;
+		this.values = createStore(INITIAL_CAPACITY, this.encoding.getSlotShift());
+	}
+
+	/**
+	 * Stores a value in the given row, growing the column if required.
+	 *
+	 * @param row the row to write
+	 * @param value the string representation of the value, which is missing if it is empty or {@code \s}
+	 * @return true if the value was stored as a number or as a missing value
+	 */
+	boolean set(int row, String value) {
+		if (isMissingValue(value)) {
+			setMissing(row);
+			return true;
+		}
+		NumberParser parser = NumberParser.getInstance();
+		double parsed = parser.parseDouble(value);
+		boolean numeric = !Double.isNaN(parsed) || parser.isNaNSymbol(value);
+		if (numeric) {
+			setNumber(row, parsed);
+		} else {
+			setText(row, value);
+		}
+		return numeric;
+	}
+
+	/**
+	 * Stores an already parsed number in the given row, growing the column if
+	 * required.
+	 *
+	 * @param row the row to write
+	 * @param value the number
+	 */
+	void setNumber(int row, double value) {
+		boolean appended = beginWrite(row);
+		prepareEncoding(value);
+		writeNumber(this.values, this.encoding, this.quantizationMin, this.quantizationMax, row, value);
+		if (this.textCodes != null) {
+			this.textCodes.setInt(row, NO_TEXT);
+		}
+		if (this.missing != null) {
+			this.missing.clear(row);
+		}
+		endWrite(row);
+		this.statistics.addNumber(readNumber(row), appended);
+	}
+
+	/**
+	 * Marks the value in the given row as missing, growing the column if
+	 * required.
+	 *
+	 * @param row the row to write
+	 */
+	void setMissing(int row) {
+		boolean appended = beginWrite(row);
+		writeNumber(this.values, this.encoding, this.quantizationMin, this.quantizationMax, row, 0);
+		if (this.textCodes != null) {
+			this.textCodes.setInt(row, NO_TEXT);
+		}
+		if (this.missing == null) {
+			this.missing = new BitSet();
+		}
+		this.missing.set(row);
+		endWrite(row);
+		this.statistics.addMissing(appended);
+	}
+
+	/**
+	 * Stores a value that is not a number in the given row, growing the
+	 * column if required.
+	 *
+	 * @param row the row to write
+	 * @param value the value
+	 */
+	void setText(int row, String value) {
+		boolean appended = beginWrite(row);
+		writeNumber(this.values, this.encoding, this.quantizationMin, this.quantizationMax, row, 0);
+		ValueStore codes = getOrCreateTextCodes();
+		codes.setInt(row, this.textIndex.computeIfAbsent(value, v -> {
+			this.texts.add(v);
+			return this.texts.size() - 1;
+		}));
+		if (this.missing != null) {
+			this.missing.clear(row);
+		}
+		endWrite(row);
+		this.statistics.addText(appended);
+	}
+
+	/**
+	 * @return true if the row is appended, false if an existing value is overwritten
+	 */
+	private boolean beginWrite(int row) {
+		ensureCapacity(row + 1);
+		if (row >= this.size) {
+			return true;
+		}
+		if (this.levels != null) {
+			this.levels.remove(this.levelCodes.getInt(row));
+		}
+		removeFromStatistics(row);
+		return false;
+	}
+
+	private void endWrite(int row) {
+		// a new level changes the ranks of other rows, so it rewrites the column like an overwritten value
+		if (row < this.size || this.levels != null) {
+			rewritten();
+		} else {
+			this.version++;
+		}
+		this.size = Math.max(this.size, row + 1);
+		if (this.levels != null) {
+			this.levelCodes.setInt(row, this.levels.add(getString(row)));
+		}
+	}
+
+	private void rewritten() {
+		this.version++;
+		this.rewriteVersion = this.version;
+	}
+
+	/**
+	 * Gets a number that changes whenever values of this column are written
+	 * or removed, so that values derived from the column can tell whether
+	 * they are outdated.
+	 *
+	 * @return the current version
+	 */
+	int getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * @param version a version returned by {@link #getVersion()}
+	 * @return true if values have only been appended since that version, so that the values of the rows that existed then are unchanged
+	 */
+	boolean isAppendOnlySince(int version) {
+		return version >= this.rewriteVersion;
+	}
+
+	/**
+	 * Continues the versions of a column that this column replaces, so that
+	 * the replacement counts as a rewrite of the replaced column.
+	 *
+	 * @param replaced the replaced column
+	 */
+	void continueVersions(Column replaced) {
+		this.version = Math.max(this.version, replaced.version) + 1;
+		this.rewriteVersion = this.version;
+	}
+
+	private void removeFromStatistics(int row) {
+		if (isStoredAsMissing(row)) {
+			this.statistics.removeMissing();
+		} else if (isStoredAsText(row)) {
+			this.statistics.removeText();
+		} else {
+			this.statistics.removeNumber();
+		}
+	}
+
+	boolean isText(int row) {
+		checkRow(row);
+		return isStoredAsText(row);
+	}
+
+	private boolean isStoredAsText(int row) {
+		return this.textCodes != null && this.textCodes.getInt(row) != NO_TEXT;
+	}
+
+	/**
+	 * @param row the row
+	 * @return true if the value in the given row is missing
+	 */
+	boolean isMissing(int row) {
+		checkRow(row);
+		return isStoredAsMissing(row);
+	}
+
+	private boolean isStoredAsMissing(int row) {
+		return this.missing != null && this.missing.get(row);
+	}
+
+	/**
+	 * @return true if at least one value in this column is missing
+	 */
+	boolean hasMissingValues() {
+		return this.missing != null && !this.missing.isEmpty();
+	}
+
+	static boolean isMissingValue(String value) {
+		return value.isEmpty() || value.equals("\\s");
+	}
+
+	/**
+	 * Reads the number in the given row, whatever the encoding of the column.
+	 *
+	 * @param row the row
+	 * @return the number, NaN if the value is missing, or zero if it is not a number
+	 */
+	double getNumber(int row) {
+		checkRow(row);
+		return isStoredAsMissing(row) ? Double.NaN : readNumber(row);
+	}
+
+	/**
+	 * Reads the numeric representations of consecutive rows in bulk, as
+	 * {@link Design#getDoubleValue(Parameter)} returns them: the ranks of the
+	 * discrete levels while these are tracked, and the numbers otherwise.
+	 * Missing numbers are read as NaN and marked.
+	 * <p>
+	 * This may be called from several threads at once, after
+	 * {@link #prepareConcurrentReads()}.
+	 *
+	 * @param firstRow the first row to read
+	 * @param length the number of rows to read
+	 * @param target the array to write the values to, starting at index zero
+	 * @param missing the set in which the rows with a missing number are marked, relative to the first row
+	 */
+	void readValues(int firstRow, int length, double[] target, BitSet missing) {
+		if (firstRow < 0 || length < 0 || firstRow + length > this.size) {
+			throw new IllegalArgumentException("Invalid rows " + firstRow + " to " + (firstRow + length - 1));
+		}
+		if (this.levels != null) {
+			for (int i = 0; i < length; i++) {
+				target[i] = this.levels.getRank(this.levelCodes.getInt(firstRow + i));
+			}
+			return;
+		}
+		// one loop per encoding, so that the encoding is not looked up for each row
+		switch (this.encoding) {
+			case BYTE:
+				for (int i = 0; i < length; i++) {
+					target[i] = this.values.getByte(firstRow + i);
+				}
+				break;
+			case SHORT:
+				for (int i = 0; i < length; i++) {
+					target[i] = this.values.getShort(firstRow + i);
+				}
+				break;
+			case INT:
+				for (int i = 0; i < length; i++) {
+					target[i] = this.values.getInt(firstRow + i);
+				}
+				break;
+			case FLOAT:
+				for (int i = 0; i < length; i++) {
+					target[i] = this.values.getFloat(firstRow + i);
+				}
+				break;
+			case DOUBLE:
+				for (int i = 0; i < length; i++) {
+					target[i] = this.values.getDouble(firstRow + i);
+				}
+				break;
+			default:
+				for (int i = 0; i < length; i++) {
+					target[i] = readNumber(firstRow + i);
+				}
+		}
+		if (this.missing != null) {
+			int end = firstRow + length;
+			for (int row = this.missing.nextSetBit(firstRow); row >= 0 && row < end; row = this.missing.nextSetBit(row + 1)) {
+				target[row - firstRow] = Double.NaN;
+				missing.set(row - firstRow);
+			}
+		}
+	}
+
+	/**
+	 * Brings the block ranges of this column up to date and prepares it for
+	 * concurrent reads, so that a {@link RangeSearch} can search its blocks
+	 * from several threads until the column is modified again.
+	 *
+	 * @return the block ranges
+	 */
+	BlockRanges prepareRangeSearch() {
+		prepareConcurrentReads();
+		if (this.blockRanges == null) {
+			this.blockRanges = new BlockRanges();
+		}
+		this.blockRanges.update(this);
+		return this.blockRanges;
+	}
+
+	/**
+	 * @return the rows of this column sorted by their values, which are sorted again if the column has been modified since
+	 */
+	ValueOrder getValueOrder() {
+		if (this.valueOrder == null || this.valueOrderVersion != this.version) {
+			this.valueOrder = ValueOrder.build(this);
+			this.valueOrderVersion = this.version;
+		}
+		return this.valueOrder;
+	}
+
+	/**
+	 * Brings lazily computed state of this column up to date, so that
+	 * {@link #readValues(int, int, double[], BitSet)} can be called from
+	 * several threads until the column is modified again.
+	 */
+	void prepareConcurrentReads() {
+		if (this.levels != null) {
+			this.levels.validateRanks();
+		}
+	}
+
+	private double readNumber(int row) {
+		return readNumber(this.values, this.encoding, this.quantizationMin, this.quantizationMax, row);
+	}
+
+	String getText(int row) {
+		checkRow(row);
+		if (this.textCodes == null || this.textCodes.getInt(row) == NO_TEXT) {
+			throw new IllegalStateException("Row " + row + " does not contain text");
+		}
+		return this.texts.get(this.textCodes.getInt(row));
+	}
+
+	String getString(int row) {
+		if (isText(row)) {
+			return getText(row);
+		} else if (isStoredAsMissing(row)) {
+			return MISSING_VALUE;
+		} else if (this.encoding == ValueEncoding.FLOAT || this.encoding == ValueEncoding.QUANTIZED) {
+			return Float.toString((float) readNumber(row));
+		} else {
+			return Double.toString(readNumber(row));
+		}
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * @param row the row
+	 * @return a hash code of the value in the given row, consistent with {@link #valueEquals(int, Column, int)}
+	 */
+	int hashValue(int row) {
+		if (isText(row)) {
+			return getText(row).hashCode();
+		} else {
+			return Double.hashCode(readNumber(row));
+		}
+	}
+
+	/**
+	 * Compares a value of this column to a value of another column without
+	 * converting numbers to strings.
+	 *
+	 * @param row the row in this column
+	 * @param other the other column
+	 * @param otherRow the row in the other column
+	 * @return true if both values are the same number or the same text, or both are missing
+	 */
+	boolean valueEquals(int row, Column other, int otherRow) {
+		boolean text = isText(row);
+		if (text != other.isText(otherRow) || isStoredAsMissing(row) != other.isStoredAsMissing(otherRow)) {
+			return false;
+		} else if (text) {
+			return getText(row).equals(other.getText(otherRow));
+		} else {
+			return Double.doubleToLongBits(readNumber(row)) == Double.doubleToLongBits(other.readNumber(otherRow));
+		}
+	}
+
+	/**
+	 * @param other another column
+	 * @return true if both columns track the same discrete levels, which then have the same ranks in both columns
+	 */
+	boolean hasSameLevels(Column other) {
+		return this.levels != null && other.levels != null && this.levels.hasSameLevels(other.levels);
+	}
+
+	/**
+	 * Gets the statistics of the values in this column. If the distribution
+	 * of the numbers is outdated because values were overwritten or removed,
+	 * it is computed again first.
+	 *
+	 * @return the statistics
+	 */
+	ParameterStatistics getStatistics() {
+		if (!this.statistics.isDistributionValid()) {
+			this.statistics.clearDistribution();
+			for (int row = 0; row < this.size; row++) {
+				if (!isStoredAsText(row) && !isStoredAsMissing(row)) {
+					this.statistics.addToDistribution(readNumber(row));
+				}
+			}
+		}
+		return this.statistics;
+	}
+
+	/**
+	 * @return the number of numeric values, which unlike the distribution is always up to date
+	 */
+	int getNumericCount() {
+		return this.statistics.getNumericCount();
+	}
+
+	/**
+	 * @return the number of non-numeric values, which unlike the distribution is always up to date
+	 */
+	int getNonNumericCount() {
+		return this.statistics.getNonNumericCount();
+	}
+
+	ValueEncoding getEncoding() {
+		return this.encoding;
+	}
+
+	/**
+	 * @return true if the encoding was chosen and is not widened automatically
+	 */
+	boolean isEncodingFixed() {
+		return this.encodingFixed;
+	}
+
+	/**
+	 * Converts all numbers of this column to another encoding.
+	 *
+	 * @param encoding the encoding to keep from now on, or null to use the narrowest encoding that holds all numbers and widen it as required
+	 */
+	void setEncoding(@Nullable ValueEncoding encoding) {
+		if (encoding != null && !encoding.isSelectable()) {
+			throw new IllegalArgumentException("Encoding " + encoding + " cannot be chosen");
+		}
+		this.encodingFixed = encoding != null;
+		if (encoding == null) {
+			ValueEncoding narrowest = ValueEncoding.BYTE;
+			for (int row = 0; row < this.size; row++) {
+				if (!isStoredAsText(row) && !isStoredAsMissing(row)) {
+					narrowest = widen(narrowest, readNumber(row));
+				}
+			}
+			reencode(narrowest, 0, 0);
+		} else if (encoding == ValueEncoding.QUANTIZED) {
+			quantize(Double.NaN);
+		} else {
+			reencode(encoding, 0, 0);
+		}
+		this.statistics.invalidateDistribution();
+		rewritten();
+	}
+
+	/**
+	 * Makes sure that the encoding of this column can take the given number
+	 * before it is written.
+	 */
+	private void prepareEncoding(double value) {
+		if (this.encoding == ValueEncoding.QUANTIZED) {
+			if (!Double.isInfinite(value) && (value < this.quantizationMin || value > this.quantizationMax)) {
+				widenQuantization(value);
+				this.statistics.invalidateDistribution();
+				rewritten();
+			}
+		} else if (!this.encodingFixed && !this.encoding.holds(value)) {
+			reencode(widen(this.encoding, value), 0, 0);
+		}
+	}
+
+	/**
+	 * @return the narrowest encoding that holds the given number as well as all numbers that the given encoding holds in this column
+	 */
+	private ValueEncoding widen(ValueEncoding encoding, double value) {
+		ValueEncoding widened = encoding.widenFor(value);
+		if (encoding == ValueEncoding.INT && widened == ValueEncoding.FLOAT) {
+			// unlike smaller integers, ints do not always fit into a float
+			for (int row = 0; row < this.size; row++) {
+				if (!isStoredAsText(row) && !isStoredAsMissing(row) && Math.abs(readNumber(row)) > MAX_EXACT_FLOAT_INTEGER) {
+					return ValueEncoding.DOUBLE;
+				}
+			}
+		}
+		return widened;
+	}
+
+	/**
+	 * Quantizes all numbers over the range of the finite numbers in this
+	 * column and the given number. Infinite numbers are clamped to the range,
+	 * NaN is kept.
+	 *
+	 * @param value the number to be written next or NaN
+	 */
+	private void quantize(double value) {
+		double min = Double.isNaN(value) ? Double.POSITIVE_INFINITY : value;
+		double max = Double.isNaN(value) ? Double.NEGATIVE_INFINITY : value;
+		for (int row = 0; row < this.size; row++) {
+			if (!isStoredAsText(row) && !isStoredAsMissing(row)) {
+				double number = readNumber(row);
+				if (Double.isFinite(number)) {
+					min = Math.min(min, number);
+					max = Math.max(max, number);
+				}
+			}
+		}
+		if (min > max) {
+			min = 0;
+			max = 0;
+		}
+		reencode(ValueEncoding.QUANTIZED, min, max);
+		this.quantizationWidenings = 0;
+	}
+
+	/**
+	 * Widens the quantization range to take the given number. The range at
+	 * least doubles, so that numbers that keep growing only requantize the
+	 * column a few times. As every requantization rounds the numbers again,
+	 * the column is stored as floats once the range has been widened
+	 * {@value #MAX_QUANTIZATION_WIDENINGS} times, until it is quantized again.
+	 *
+	 * @param value the finite number to be written next
+	 */
+	private void widenQuantization(double value) {
+		if (this.statistics.getNumericCount() == 0) {
+			reencode(ValueEncoding.QUANTIZED, value, value);
+			return;
+		}
+		double min = Math.min(this.quantizationMin, value);
+		double max = Math.max(this.quantizationMax, value);
+		double width = this.quantizationMax - this.quantizationMin;
+		if (value > this.quantizationMax) {
+			max = Math.max(max, min + 2 * width);
+		} else {
+			min = Math.min(min, max - 2 * width);
+		}
+		if (++this.quantizationWidenings > MAX_QUANTIZATION_WIDENINGS || !Double.isFinite(max - min)) {
+			boolean holdsFloats = Math.max(Math.abs(min), Math.abs(max)) <= Float.MAX_VALUE;
+			reencode(holdsFloats ? ValueEncoding.FLOAT : ValueEncoding.DOUBLE, 0, 0);
+			return;
+		}
+		reencode(ValueEncoding.QUANTIZED, min, max);
+	}
+
+	private void reencode(ValueEncoding newEncoding, double newQuantizationMin, double newQuantizationMax) {
+		ValueStore newValues = createStore(this.values.capacity(), newEncoding.getSlotShift());
+		for (int row = 0; row < this.size; row++) {
+			if (!isStoredAsText(row) && !isStoredAsMissing(row)) {
+				writeNumber(newValues, newEncoding, newQuantizationMin, newQuantizationMax, row, readNumber(row));
+			}
+		}
+		this.values.close();
+		this.values = newValues;
+		this.encoding = newEncoding;
+		this.quantizationMin = newQuantizationMin;
+		this.quantizationMax = newQuantizationMax;
+	}
+
+	private static double readNumber(ValueStore store, ValueEncoding encoding, double quantizationMin, double quantizationMax, int row) {
+		switch (encoding) {
+			case BYTE:
+				return store.getByte(row);
+			case SHORT:
+				return store.getShort(row);
+			case INT:
+				return store.getInt(row);
+			case FLOAT:
+				return store.getFloat(row);
+			case DOUBLE:
+				return store.getDouble(row);
+			default:
+				int code = store.getShort(row) & 0xFFFF;
+				return code == QUANTIZED_NAN ? Double.NaN : quantizationMin + code * (quantizationMax - quantizationMin) / QUANTIZED_STEPS;
+		}
+	}
+
+	private static void writeNumber(ValueStore store, ValueEncoding encoding, double quantizationMin, double quantizationMax, int row, double value) {
+		switch (encoding) {
+			case BYTE:
+				store.setByte(row, (byte) value);
+				break;
+			case SHORT:
+				store.setShort(row, (short) value);
+				break;
+			case INT:
+				store.setInt(row, (int) value);
+				break;
+			case FLOAT:
+				store.setFloat(row, (float) value);
+				break;
+			case DOUBLE:
+				store.setDouble(row, value);
+				break;
+			default:
+				int code;
+				if (Double.isNaN(value)) {
+					code = QUANTIZED_NAN;
+				} else if (quantizationMax == quantizationMin) {
+					code = 0;
+				} else {
+					double ratio = (value - quantizationMin) / (quantizationMax - quantizationMin);
+					code = (int) Math.round(QUANTIZED_STEPS * Math.max(0, Math.min(1, ratio)));
+				}
+				store.setShort(row, (short) code);
+		}
+	}
+
+	/**
+	 * Starts keeping track of the discrete levels of this column, unless
+	 * that is already the case.
+	 */
+	void buildLevels() {
+		if (this.levels != null) {
+			return;
+		}
+		DiscreteLevels newLevels = new DiscreteLevels();
+		ValueStore newLevelCodes = createStore(this.values.capacity(), CODE_SLOT_SHIFT);
+		for (int row = 0; row < this.size; row++) {
+			newLevelCodes.setInt(row, newLevels.add(getString(row)));
+		}
+		this.levelCodes = newLevelCodes;
+		this.levels = newLevels;
+		rewritten();
+	}
+
+	void dropLevels() {
+		if (this.levels == null) {
+			return;
+		}
+		this.levelCodes.close();
+		this.levels = null;
+		this.levelCodes = null;
+		rewritten();
+	}
+
+	int getLevelCount() {
+		return this.levels == null ? 0 : this.levels.size();
+	}
+
+	/**
+	 * @param row the row
+	 * @return the rank of the discrete level of the value in the given row
+	 */
+	int getLevelRank(int row) {
+		checkRow(row);
+		return getLevels().getRank(this.levelCodes.getInt(row));
+	}
+
+	/**
+	 * @param value the value to look up
+	 * @return the rank of the discrete level of the value or -1 if no row has that level
+	 */
+	int getLevelRank(String value) {
+		return getLevels().getRank(value);
+	}
+
+	String getLevelName(int rank) {
+		return getLevels().getName(rank);
+	}
+
+	private DiscreteLevels getLevels() {
+		if (this.levels == null) {
+			throw new IllegalStateException("Discrete levels are not tracked");
+		}
+		return this.levels;
+	}
+
+	/**
+	 * Removes the given rows in a single compacting pass.
+	 *
+	 * @param sortedRows the rows to remove in ascending order
+	 */
+	void removeRows(int[] sortedRows) {
+		if (sortedRows.length == 0) {
+			return;
+		}
+		int target = sortedRows[0];
+		int next = 0;
+		for (int source = target; source < this.size; source++) {
+			if (next < sortedRows.length && sortedRows[next] == source) {
+				if (this.levels != null) {
+					this.levels.remove(this.levelCodes.getInt(source));
+				}
+				removeFromStatistics(source);
+				next++;
+				continue;
+			}
+			this.values.copy(target, source);
+			if (this.textCodes != null) {
+				this.textCodes.setInt(target, this.textCodes.getInt(source));
+			}
+			if (this.levelCodes != null) {
+				this.levelCodes.setInt(target, this.levelCodes.getInt(source));
+			}
+			if (this.missing != null) {
+				this.missing.set(target, this.missing.get(source));
+			}
+			target++;
+		}
+		if (this.missing != null) {
+			this.missing.clear(target, this.size);
+		}
+		this.size = target;
+		rewritten();
+	}
+
+	void truncate(int newSize) {
+		for (int row = newSize; row < this.size; row++) {
+			if (this.levels != null) {
+				this.levels.remove(this.levelCodes.getInt(row));
+			}
+			removeFromStatistics(row);
+		}
+		if (this.missing != null && newSize < this.size) {
+			this.missing.clear(newSize, this.size);
+		}
+		if (newSize < this.size) {
+			this.size = newSize;
+			rewritten();
+		}
+	}
+
+	/**
+	 * Releases the storage of this column. The column must not be used
+	 * afterwards.
+	 */
+	void close() {
+		this.values.close();
+		if (this.textCodes != null) {
+			this.textCodes.close();
+		}
+		if (this.levelCodes != null) {
+			this.levelCodes.close();
+		}
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= this.size) {
+			throw new IllegalArgumentException("Invalid row " + row);
+		}
+	}
+
+	private ValueStore getOrCreateTextCodes() {
+		if (this.textCodes == null) {
+			ValueStore codes = createStore(this.values.capacity(), CODE_SLOT_SHIFT);
+			codes.fill(0, codes.capacity(), NO_TEXT);
+			this.textCodes = codes;
+		}
+		return this.textCodes;
+	}
+
+	private void ensureCapacity(int capacity) {
+		int oldCapacity = this.values.capacity();
+		if (capacity <= oldCapacity) {
+			return;
+		}
+		int newCapacity = (int) Math.min(Integer.MAX_VALUE, Math.max((long) capacity, oldCapacity + (long) (oldCapacity >> 1)));
+		this.values.grow(newCapacity);
+		if (this.textCodes != null) {
+			int oldTextCapacity = this.textCodes.capacity();
+			this.textCodes.grow(newCapacity);
+			this.textCodes.fill(oldTextCapacity, this.textCodes.capacity(), NO_TEXT);
+		}
+		if (this.levelCodes != null) {
+			this.levelCodes.grow(newCapacity);
+		}
+	}
+
+	private ValueStore createStore(int capacity, int slotShift) {
+		if (this.scratchSpace == null) {
+			return new HeapValueStore(capacity, slotShift);
+		} else {
+			return new MappedValueStore(this.scratchSpace, capacity, slotShift);
+		}
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeBoolean(this.textCodes != null);
+		for (int row = 0; row < this.size; row++) {
+			switch (this.values.getSlotShift()) {
+				case 0:
+					out.writeByte(this.values.getByte(row));
+					break;
+				case 1:
+					out.writeShort(this.values.getShort(row));
+					break;
+				case 2:
+					out.writeInt(this.values.getInt(row));
+					break;
+				default:
+					out.writeLong(this.values.getLong(row));
+			}
+			if (this.textCodes != null) {
+				out.writeInt(this.textCodes.getInt(row));
+			}
+			if (this.levelCodes != null) {
+				out.writeInt(this.levelCodes.getInt(row));
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		boolean hasTextCodes = in.readBoolean();
+		int capacity = Math.max(INITIAL_CAPACITY, this.size);
+		this.values = createStore(capacity, this.encoding.getSlotShift());
+		if (hasTextCodes) {
+			getOrCreateTextCodes();
+		}
+		if (this.levels != null) {
+			this.levelCodes = createStore(capacity, CODE_SLOT_SHIFT);
+		}
+		this.statistics = new ParameterStatistics();
+		for (int row = 0; row < this.size; row++) {
+			switch (this.values.getSlotShift()) {
+				case 0:
+					this.values.setByte(row, in.readByte());
+					break;
+				case 1:
+					this.values.setShort(row, in.readShort());
+					break;
+				case 2:
+					this.values.setInt(row, in.readInt());
+					break;
+				default:
+					this.values.setLong(row, in.readLong());
+			}
+			if (this.textCodes != null) {
+				this.textCodes.setInt(row, in.readInt());
+			}
+			if (this.levelCodes != null) {
+				this.levelCodes.setInt(row, in.readInt());
+			}
+			if (isStoredAsMissing(row)) {
+				this.statistics.addMissing(true);
+			} else if (isStoredAsText(row)) {
+				this.statistics.addText(true);
+			} else {
+				this.statistics.addNumber(readNumber(row), true);
+			}
+		}
+	}
+}
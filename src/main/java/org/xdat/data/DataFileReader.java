@@ -0,0 +1,556 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.ProgressMonitor;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the designs of a data file in parallel.
+ * <p>
+ * The first line is read on its own, as it determines the parameters. The
+ * rest of the file is cut into byte ranges that end with a line feed, and
+ * each range is decoded and parsed into a {@link Chunk} on the common
+ * ForkJoin pool. The chunks are handed to the caller strictly in file order,
+ * so that the caller can number the designs exactly as if the file had been
+ * read line by line. Only a limited number of chunks is read ahead, which
+ * bounds the memory needed for files of any size.
+ * <p>
+ * Progress is reported by bytes, so the file does not need to be read in
+ * advance to count its lines.
+ */
+class DataFileReader implements Closeable {
+	private static final int MIN_CHUNK_SIZE = 64 << 10;
+	private static final int MAX_CHUNK_SIZE = 8 << 20;
+	private static final int PROGRESS_STEPS = 1000;
+	private static final long POLL_INTERVAL_MILLIS = 100;
+	private final FileChannel channel;
+	private final long end;
+	private long completeLinesEnd;
+	private final Charset charset;
+	private final boolean splittable;
+	private final Pattern delimiter;
+	@Nullable
+	private final ByteTokenizer tokenizer;
+	private long position;
+	@Nullable
+	private Chunk partialLine;
+	private volatile boolean canceled;
+
+	/**
+	 * @param pathToInputFile the file to read
+	 * @param delimiter the regular expression separating the values of a line
+	 * @throws IOException if the file cannot be opened
+	 */
+	DataFileReader(String pathToInputFile, String delimiter) throws IOException {
+		this(pathToInputFile, delimiter, 0, false);
+	}
+
+	/**
+	 * Creates a reader for the lines that were appended to a file after the
+	 * given position. Only complete lines are read, so that a line that is
+	 * still being written is left for the next reader.
+	 *
+	 * @param pathToInputFile the file to read
+	 * @param delimiter the regular expression separating the values of a line
+	 * @param start the position to start reading at, which must be the start of a line
+	 * @throws IOException if the file cannot be opened or is shorter than the start position
+	 */
+	DataFileReader(String pathToInputFile, String delimiter, long start) throws IOException {
+		this(pathToInputFile, delimiter, start, true);
+	}
+
+	private DataFileReader(String pathToInputFile, String delimiter, long start, boolean completeLinesOnly) throws IOException {
+		this.channel = FileChannel.open(Paths.get(pathToInputFile), StandardOpenOption.READ);
+		try {
+			long size = this.channel.size();
+			if (size < start) {
+				throw new IOException("File " + pathToInputFile + " is shorter than before");
+			}
+			this.position = start;
+			this.completeLinesEnd = findCompleteLinesEnd(start, size);
+			this.end = completeLinesOnly ? this.completeLinesEnd : size;
+		} catch (IOException e) {
+			this.channel.close();
+			throw e;
+		}
+		this.charset = Charset.defaultCharset();
+		// byte ranges can only be cut at line feed bytes if every line feed byte is a line feed character
+		this.splittable = Arrays.equals("\n".getBytes(this.charset), new byte[]{'\n'});
+		this.delimiter = Pattern.compile(delimiter);
+		this.tokenizer = this.splittable ? ByteTokenizer.forDelimiter(delimiter, this.charset) : null;
+	}
+
+	/**
+	 * @return the position up to which the file has been read
+	 */
+	long getPosition() {
+		return this.position;
+	}
+
+	/**
+	 * @return the position after the last line that has been read and has a
+	 * line terminator, where reading has to continue once the file has grown
+	 */
+	long getCompleteLinesEnd() {
+		return this.completeLinesEnd;
+	}
+
+	/**
+	 * @return the chunk read from the last line of the file if that line has
+	 * no line terminator yet, or null
+	 */
+	@Nullable
+	Chunk getPartialLine() {
+		return this.partialLine;
+	}
+
+	/**
+	 * Reads the next line, like {@link java.io.BufferedReader#readLine()}.
+	 *
+	 * @return the line without its terminator or null at the end of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	@Nullable
+	String readLine() throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		while (this.position < this.end) {
+			buffer.clear();
+			int read = this.channel.read(buffer, this.position);
+			for (int i = 0; i < read; i++) {
+				byte b = buffer.get(i);
+				if (b == '\n' || b == '\r') {
+					this.position += i + 1;
+					if (b == '\r' && this.position < this.end && readByte(this.position) == '\n') {
+						this.position++;
+					}
+					return new String(line.toByteArray(), this.charset);
+				}
+				line.write(b);
+			}
+			this.position += read;
+		}
+		return line.size() == 0 ? null : new String(line.toByteArray(), this.charset);
+	}
+
+	/**
+	 * Reads all remaining lines of the file.
+	 * <p>
+	 * Stops early if the progress monitor is canceled. In that case the
+	 * consumer does not receive all chunks, and the caller is expected to
+	 * discard what it has received.
+	 * <p>
+	 * A last line without a line terminator, which may still be written, is
+	 * read into a chunk of its own, see {@link #getPartialLine()}.
+	 *
+	 * @param parameterCount the number of values to read from each line
+	 * @param progressMonitor the progress monitor to report the progress to or null
+	 * @param consumer receives the chunks in file order
+	 * @throws IOException if the file cannot be read
+	 */
+	void readDesigns(int parameterCount, @Nullable ProgressMonitor progressMonitor, Consumer<Chunk> consumer) throws IOException {
+		if (progressMonitor != null) {
+			progressMonitor.setMaximum(PROGRESS_STEPS);
+		}
+		// the first line may have been read up to the end of the file
+		this.completeLinesEnd = Math.max(this.completeLinesEnd, this.position);
+		NumberParser parser = NumberParser.getInstance();
+		int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		long chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, (this.end - this.position) / (4L * parallelism)));
+		Deque<ForkJoinTask<Chunk>> pending = new ArrayDeque<>();
+		try {
+			while (this.position < this.end || !pending.isEmpty()) {
+				while (this.position < this.end && pending.size() < 2 * parallelism + 1) {
+					long start = this.position;
+					long end = findChunkEnd(start, start + chunkSize);
+					this.position = end;
+					pending.add(ForkJoinPool.commonPool().submit(() -> readChunk(start, end, parameterCount, parser)));
+				}
+				Chunk chunk = awaitChunk(pending.peek(), progressMonitor);
+				if (chunk == null) {
+					return;
+				}
+				pending.poll();
+				if (chunk.end > this.completeLinesEnd) {
+					this.partialLine = chunk;
+				}
+				consumer.accept(chunk);
+				setProgress(progressMonitor, chunk.end);
+			}
+		} finally {
+			this.canceled = true;
+			for (ForkJoinTask<Chunk> task : pending) {
+				task.cancel(false);
+			}
+		}
+	}
+
+	/**
+	 * @return the position after the last line terminator between start and
+	 * size. A carriage return at the very end does not count, as it may be
+	 * followed by a line feed that has not been written yet.
+	 */
+	private long findCompleteLinesEnd(long start, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long blockEnd = size;
+		while (blockEnd > start) {
+			long blockStart = Math.max(start, blockEnd - buffer.capacity());
+			buffer.clear();
+			buffer.limit((int) (blockEnd - blockStart));
+			while (buffer.hasRemaining() && this.channel.read(buffer, blockStart + buffer.position()) >= 0) {
+				// read the whole block
+			}
+			for (int i = buffer.position() - 1; i >= 0; i--) {
+				byte b = buffer.get(i);
+				if (b == '\n' || b == '\r' && blockStart + i < size - 1) {
+					return blockStart + i + 1;
+				}
+			}
+			blockEnd = blockStart;
+		}
+		return start;
+	}
+
+	@Nullable
+	private Chunk awaitChunk(ForkJoinTask<Chunk> task, @Nullable ProgressMonitor progressMonitor) throws IOException {
+		while (true) {
+			if (progressMonitor != null && progressMonitor.isCanceled()) {
+				return null;
+			}
+			try {
+				return task.get(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// check for cancellation again
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Reading the file was interrupted");
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof UncheckedIOException) {
+					throw ((UncheckedIOException) cause).getCause();
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IOException(cause);
+			}
+		}
+	}
+
+	private void setProgress(@Nullable ProgressMonitor progressMonitor, long bytesRead) {
+		if (progressMonitor != null) {
+			progressMonitor.setProgress((int) (bytesRead * PROGRESS_STEPS / Math.max(1, this.end)));
+		}
+	}
+
+	/**
+	 * @param start the start of the chunk
+	 * @param minimumEnd the position the chunk should at least extend to
+	 * @return the position after the first line feed at or after the given
+	 * position, or the end of the complete lines. A last line without a line
+	 * terminator is a chunk of its own.
+	 */
+	private long findChunkEnd(long start, long minimumEnd) throws IOException {
+		if (start >= this.completeLinesEnd) {
+			return this.end;
+		} else if (!this.splittable) {
+			return this.completeLinesEnd;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long searchPosition = minimumEnd - 1;
+		while (searchPosition < this.completeLinesEnd) {
+			buffer.clear();
+			int read = this.channel.read(buffer, searchPosition);
+			if (read < 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					// the file may have grown since the complete lines were found
+					return Math.min(searchPosition + i + 1, this.completeLinesEnd);
+				}
+			}
+			searchPosition += read;
+		}
+		return this.completeLinesEnd;
+	}
+
+	private Chunk readChunk(long start, long end, int parameterCount, NumberParser parser) {
+		Chunk chunk = new Chunk(end, parameterCount);
+		if (end - start > Integer.MAX_VALUE - 8) {
+			throw new UncheckedIOException(new IOException("Line too long at byte " + start));
+		}
+		try {
+			// The chunk is copied to the heap rather than mapped, as a mapping
+			// would keep the file locked on some platforms until it is garbage
+			// collected.
+			ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+			while (buffer.hasRemaining()) {
+				if (this.canceled) {
+					return chunk;
+				} else if (this.channel.read(buffer, start + buffer.position()) < 0) {
+					throw new EOFException("Unexpected end of file at byte " + (start + buffer.position()));
+				}
+			}
+			buffer.flip();
+			if (this.tokenizer != null) {
+				this.tokenizer.readLines(buffer, chunk, parser, () -> this.canceled);
+			} else {
+				readLines(new String(buffer.array(), 0, buffer.limit(), this.charset), chunk, parser);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return chunk;
+	}
+
+	/**
+	 * Reads decoded lines into a chunk, splitting them with the regular
+	 * expression of the delimiter. This is only used for delimiters and
+	 * charsets the {@link ByteTokenizer} does not support.
+	 */
+	private void readLines(String text, Chunk chunk, NumberParser parser) {
+		int lineStart = 0;
+		while (lineStart < text.length() && !this.canceled) {
+			int lineEnd = lineStart;
+			while (lineEnd < text.length() && text.charAt(lineEnd) != '\n' && text.charAt(lineEnd) != '\r') {
+				lineEnd++;
+			}
+			addLine(this.delimiter.split(text.substring(lineStart, lineEnd)), chunk, parser);
+			if (lineEnd + 1 < text.length() && text.charAt(lineEnd) == '\r' && text.charAt(lineEnd + 1) == '\n') {
+				lineEnd++;
+			}
+			lineStart = lineEnd + 1;
+		}
+	}
+
+	private static void addLine(String[] lineElements, Chunk chunk, NumberParser parser) {
+		if (lineElements.length == 0) {
+			return;
+		}
+		boolean containsValues = false;
+		for (String lineElement : lineElements) {
+			if (!isEmpty(lineElement)) {
+				containsValues = true;
+				break;
+			}
+		}
+		if (!containsValues) {
+			chunk.skipLine();
+			return;
+		}
+		int design = chunk.addDesign();
+		for (int i = 0; i < chunk.getParameterCount(); i++) {
+			if (lineElements.length <= i || isEmpty(lineElements[i])) {
+				chunk.setMissing(design, i);
+				continue;
+			}
+			String value = lineElements[i];
+			double parsed = parser.parseDouble(value);
+			if (!Double.isNaN(parsed) || parser.isNaNSymbol(value)) {
+				chunk.setNumber(design, i, parsed);
+			} else {
+				chunk.setText(design, i, value);
+			}
+		}
+	}
+
+	private static boolean isEmpty(String lineElement) {
+		return Column.isMissingValue(lineElement);
+	}
+
+	private byte readByte(long bytePosition) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(1);
+		this.channel.read(buffer, bytePosition);
+		return buffer.get(0);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.canceled = true;
+		this.channel.close();
+	}
+
+	/**
+	 * The designs parsed from a range of lines.
+	 * <p>
+	 * Design IDs are counted the same way as when reading the file line by
+	 * line: every line that contains at least one value field consumes an ID,
+	 * even if all of its fields are blank and no design is created for it.
+	 */
+	static class Chunk {
+		private final long end;
+		private final double[][] numbers;
+		private final String[][] texts;
+		private final BitSet[] missing;
+		private int[] idOffsets = new int[64];
+		private int designCount;
+		private int idCount;
+
+		private Chunk(long end, int parameterCount) {
+			this.end = end;
+			this.numbers = new double[parameterCount][idOffsets.length];
+			this.texts = new String[parameterCount][];
+			this.missing = new BitSet[parameterCount];
+		}
+
+		/**
+		 * Consumes a design ID for a line that does not contain any values.
+		 */
+		void skipLine() {
+			this.idCount++;
+		}
+
+		/**
+		 * Adds a design and consumes its ID.
+		 *
+		 * @return the index of the new design in this chunk
+		 */
+		int addDesign() {
+			if (this.designCount == this.idOffsets.length) {
+				grow();
+			}
+			int design = this.designCount++;
+			this.idOffsets[design] = this.idCount++;
+			return design;
+		}
+
+		int getParameterCount() {
+			return this.numbers.length;
+		}
+
+		void setNumber(int design, int parameterIndex, double value) {
+			this.numbers[parameterIndex][design] = value;
+		}
+
+		void setText(int design, int parameterIndex, String value) {
+			if (this.texts[parameterIndex] == null) {
+				this.texts[parameterIndex] = new String[this.idOffsets.length];
+			}
+			this.texts[parameterIndex][design] = value;
+		}
+
+		void setMissing(int design, int parameterIndex) {
+			if (this.missing[parameterIndex] == null) {
+				this.missing[parameterIndex] = new BitSet();
+			}
+			this.missing[parameterIndex].set(design);
+		}
+
+		private void grow() {
+			int newLength = this.idOffsets.length * 2;
+			this.idOffsets = Arrays.copyOf(this.idOffsets, newLength);
+			for (int i = 0; i < this.numbers.length; i++) {
+				this.numbers[i] = Arrays.copyOf(this.numbers[i], newLength);
+				if (this.texts[i] != null) {
+					this.texts[i] = Arrays.copyOf(this.texts[i], newLength);
+				}
+			}
+		}
+
+		int getDesignCount() {
+			return this.designCount;
+		}
+
+		/**
+		 * @return the number of design IDs consumed by the lines of this chunk
+		 */
+		int getIdCount() {
+			return this.idCount;
+		}
+
+		/**
+		 * @param design the index of the design in this chunk
+		 * @return the ID of the design relative to the first ID of this chunk
+		 */
+		int getIdOffset(int design) {
+			return this.idOffsets[design];
+		}
+
+		/**
+		 * Adds the values of all designs of this chunk for a parameter to
+		 * statistics, as appended values.
+		 *
+		 * @param parameterIndex the index of the parameter
+		 * @param statistics the statistics to add to
+		 */
+		void addToStatistics(int parameterIndex, ParameterStatistics statistics) {
+			for (int design = 0; design < this.designCount; design++) {
+				if (this.missing[parameterIndex] != null && this.missing[parameterIndex].get(design)) {
+					statistics.addMissing(true);
+				} else if (this.texts[parameterIndex] != null && this.texts[parameterIndex][design] != null) {
+					statistics.addText(true);
+				} else {
+					statistics.addNumber(this.numbers[parameterIndex][design], true);
+				}
+			}
+		}
+
+		/**
+		 * Writes a value of a design to a column.
+		 *
+		 * @param design the index of the design in this chunk
+		 * @param parameterIndex the index of the parameter
+		 * @param column the column to write to
+		 * @param row the row to write
+		 * @return true if the value is a number or missing
+		 */
+		boolean writeValue(int design, int parameterIndex, Column column, int row) {
+			if (this.missing[parameterIndex] != null && this.missing[parameterIndex].get(design)) {
+				column.setMissing(row);
+				return true;
+			}
+			String text = this.texts[parameterIndex] == null ? null : this.texts[parameterIndex][design];
+			if (text == null) {
+				column.setNumber(row, this.numbers[parameterIndex][design]);
+				return true;
+			} else {
+				column.setText(row, text);
+				return false;
+			}
+		}
+	}
+}
@@ -23,39 +23,99 @@ package org.xdat.data;
 import org.jetbrains.annotations.Nullable;
 import org.xdat.Main;
 import org.xdat.UserPreferences;
-import org.xdat.chart.ParallelCoordinatesChart;
 import org.xdat.exceptions.InconsistentDataException;
+import org.xdat.exceptions.InvalidExpressionException;
 
 import javax.swing.JOptionPane;
 import javax.swing.ProgressMonitor;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import javax.swing.SwingUtilities;
+import java.awt.Color;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.Set;
 import java.util.function.Consumer;
 
 public class DataSheet implements Serializable {
 
-	static final long serialVersionUID = 8;
+	static final long serialVersionUID = 17;
 	private List<Design> data = new ArrayList<>();
 	private Map<Integer, Design> designIdsMap = new HashMap<>();
-	private final List<Parameter> parameters = new LinkedList<>();
+	private BitSet selection = new BitSet();
+	private final ClusterMembership clusterMembership = new ClusterMembership();
+	private final GradientColoring gradientColoring = new GradientColoring();
+	private final List<Parameter> parameters = new ArrayList<>();
+	/**
+	 * The indices of the parameters by their names, built when a parameter is
+	 * first looked up by its name.
+	 */
+	@Nullable
+	private transient Map<String, Integer> parameterIndices;
 	private transient List<DatasheetListener> listeners;
+	private transient BitSet pendingFilterChanges;
+	private transient int transactionDepth;
+	private transient int dataVersion;
+	private transient int rewriteVersion;
+	/**
+	 * Whether the designs are being read again or appended. Guarded by this
+	 * data sheet, as updates run on a worker thread while appended designs
+	 * are added on the event dispatch thread.
+	 */
+	private transient boolean updating;
 	private String delimiter;
+	@Nullable
+	private String sourceFile;
+	private long sourceLength;
+	private int nextDesignId;
+	/**
+	 * The design read from the last line of the source file if that line had
+	 * no line terminator yet, or null. The source length ends before that
+	 * line, so that it is read again once it is complete.
+	 */
+	@Nullable
+	private Design partialLineDesign;
+	private int partialLineIds;
+	private boolean dataHasHeaders;
+	private boolean sampled;
+	private long fileDesignCount;
+	@Nullable
+	private final ScratchSpace scratchSpace;
+
+	/**
+	 * Gets a number that changes whenever designs are added, removed or
+	 * modified. State that is kept per row outside of the data sheet can
+	 * compare it to find out whether it is outdated.
+	 *
+	 * @return the current data version
+	 */
+	public int getDataVersion() {
+		return this.dataVersion;
+	}
+
+	/**
+	 * Tells whether designs have only been appended since the given data
+	 * version, so that state kept per row for the rows that existed then is
+	 * still valid.
+	 *
+	 * @param version a data version returned by {@link #getDataVersion()}
+	 * @return true if no designs have been modified or removed since that version
+	 */
+	public boolean isAppendOnlySince(int version) {
+		return version >= this.rewriteVersion;
+	}
 
 	public void initTransientData() {
 		this.listeners = new ArrayList<>();
+		this.pendingFilterChanges = new BitSet();
 	}
 
 	public DataSheet(String pathToInputFile, boolean dataHasHeaders, Main mainWindow, ProgressMonitor progressMonitor) throws IOException {
@@ -64,7 +124,8 @@ public class DataSheet implements Serializable {
 		this.delimiter = userPreferences.getDelimiter();
 		if (userPreferences.isTreatConsecutiveAsOne())
 			this.delimiter = this.delimiter + "+";
-		importData(pathToInputFile, dataHasHeaders, progressMonitor);
+		this.scratchSpace = userPreferences.isUseMappedStorage() ? new ScratchSpace() : null;
+		importData(pathToInputFile, dataHasHeaders, userPreferences.getImportSampleSize(), progressMonitor);
 		boolean continueChecking = true;
 		for (Parameter parameter : this.parameters) {
 			if (parameter.isMixed(this) && continueChecking) {
@@ -75,48 +136,94 @@ public class DataSheet implements Serializable {
 		}
 	}
 
-	private void importData(String pathToInputFile, boolean dataHasHeaders, ProgressMonitor progressMonitor) throws IOException {
+	/**
+	 * Reads the parameters and designs from a file.
+	 * <p>
+	 * If the file contains more designs than the sample size, only a uniform
+	 * random sample of them is kept, which is chosen while the file is read
+	 * in a single pass. The statistics of all values in the file are then
+	 * kept with the parameters, so that axes cover the range of the whole
+	 * file. The designs keep the ids they would have if all designs had been
+	 * imported, so that {@link #loadFullData(ProgressMonitor)} can keep them.
+	 *
+	 * @param sampleSize the largest number of designs to import, or 0 to import all designs
+	 */
+	private void importData(String pathToInputFile, boolean dataHasHeaders, int sampleSize, ProgressMonitor progressMonitor) throws IOException {
 		List<Design> buffer = new ArrayList<>();
 		if (this.data != null) {
 			buffer = new ArrayList<>(this.data);
 		}
-		int lineCount = getLineCount(pathToInputFile);
-		progressMonitor.setMaximum(lineCount);
-
-		BufferedReader f;
-		String line;
 		int idCounter = 1;
-		f = new BufferedReader(new FileReader(pathToInputFile));
-		line = (f.readLine()).trim();
+		DataFileReader f = new DataFileReader(pathToInputFile, this.delimiter);
+		String line;
+		try {
+			line = readFirstLine(f, pathToInputFile);
+		} catch (IOException e) {
+			f.close();
+			throw e;
+		}
 
 		String[] lineElements = line.split(this.delimiter);
 		if (dataHasHeaders) {
 			// if data has headers read the parameter names from the first line
 			for (String lineElement : lineElements) {
-				this.parameters.add(new Parameter(this.getUniqueParameterName(lineElement), this));
+				addParameter(new Parameter(this.getUniqueParameterName(lineElement), this));
 			}
 		} else {
 			// if data does not have headers read the first Design from the first line and create default Parameter names
-			Design newDesign = new Design(idCounter++);
+			Design newDesign = new Design(idCounter++, this.data.size());
 			for (int i = 0; i < lineElements.length; i++) {
-				this.parameters.add(new Parameter("Parameter " + (i + 1), this));
+				addParameter(new Parameter("Parameter " + (i + 1), this));
 				newDesign.setValue(this.parameters.get(i), lineElements[i], this);
 
 			}
 			this.data.add(newDesign);
 			this.designIdsMap.put(newDesign.getId(), newDesign);
-			progressMonitor.setProgress(idCounter - 1);
+		}
+		Reservoir reservoir = sampleSize > 0 ? new Reservoir(sampleSize) : null;
+		ParameterStatistics[] fileStatistics = new ParameterStatistics[this.parameters.size()];
+		if (reservoir != null) {
+			for (int i = 0; i < fileStatistics.length; i++) {
+				fileStatistics[i] = new ParameterStatistics();
+			}
+			for (int row = 0; row < this.data.size(); row++) {
+				reservoir.offer();
+				for (int i = 0; i < fileStatistics.length; i++) {
+					fileStatistics[i].addValue(this.parameters.get(i).getColumn(), row);
+				}
+			}
 		}
 		try {
-			readDesignsFromFile(progressMonitor, f, idCounter);
+			idCounter = readDesignsFromFile(progressMonitor, f, idCounter, reservoir, fileStatistics);
 		} catch (IOException e) {
 
 			this.data = buffer;
+			truncateColumns();
 			throw e;
+		} catch (UncheckedIOException e) {
+			this.data = buffer;
+			truncateColumns();
+			throw e.getCause();
+		} finally {
+			f.close();
 		}
-		f.close();
 		if (progressMonitor.isCanceled()) {
 			this.data = buffer;
+			truncateColumns();
+		} else {
+			setSource(pathToInputFile, f.getCompleteLinesEnd(), idCounter);
+			this.dataHasHeaders = dataHasHeaders;
+			if (reservoir != null && reservoir.isSampling()) {
+				this.sampled = true;
+				this.fileDesignCount = reservoir.getOfferedCount();
+				for (int i = 0; i < fileStatistics.length; i++) {
+					// a design that made the parameter non-numeric may have been replaced
+					this.parameters.get(i).updateNumeric(this);
+					this.parameters.get(i).setFileStatistics(fileStatistics[i]);
+				}
+			} else {
+				setPartialLine(f.getPartialLine());
+			}
 		}
 
 		for (Parameter parameter : this.parameters) {
@@ -124,175 +231,742 @@ public class DataSheet implements Serializable {
 		}
 	}
 
-	public void updateData(String pathToInputFile, boolean dataHasHeaders, ProgressMonitor progressMonitor, ClusterSet clusterSet) throws IOException, InconsistentDataException {
-		int lineCount = getLineCount(pathToInputFile);
-		progressMonitor.setMaximum(lineCount);
+	/**
+	 * Reads the designs of this data sheet again from a file with the same
+	 * parameters.
+	 * <p>
+	 * The lines of the file are compared to the current designs. Designs
+	 * whose values have not changed are kept, including their id, selection,
+	 * cluster and gradient color, and new designs are only created for new
+	 * or modified lines. Axes are only fitted again if the range, the
+	 * discrete levels or the type of their parameter changed. On all other
+	 * axes, filters are only evaluated for the new designs.
+	 *
+	 * @param pathToInputFile the file to read
+	 * @param dataHasHeaders whether the first line contains the parameter names
+	 * @param progressMonitor the progress monitor
+	 * @throws IOException if the file cannot be read
+	 * @throws InconsistentDataException if the file has a different number of parameters
+	 */
+	public void updateData(String pathToInputFile, boolean dataHasHeaders, ProgressMonitor progressMonitor) throws IOException, InconsistentDataException {
+		readDataAgain(pathToInputFile, dataHasHeaders, progressMonitor, false);
+	}
 
-		BufferedReader f;
-		String line;
-		int idCounter = 1;
-		f = new BufferedReader(new FileReader(pathToInputFile));
+	/**
+	 * Reads all designs of the source file, if only a sample of them was
+	 * imported.
+	 * <p>
+	 * Like {@link #updateData(String, boolean, ProgressMonitor)}, this keeps
+	 * the charts and the sampled designs with their selection, cluster and
+	 * gradient color. The sampled designs are found by their ids, which were
+	 * assigned as if all designs had been imported.
+	 *
+	 * @param progressMonitor the progress monitor
+	 * @throws IOException if the file cannot be read
+	 * @throws InconsistentDataException if the file now has a different number of parameters
+	 */
+	public void loadFullData(ProgressMonitor progressMonitor) throws IOException, InconsistentDataException {
+		String file = this.sourceFile;
+		if (!this.sampled || file == null) {
+			return;
+		}
+		readDataAgain(file, this.dataHasHeaders, progressMonitor, true);
+	}
+
+	/**
+	 * @param matchIds whether designs are matched by their ids and values rather than by their values only
+	 */
+	private void readDataAgain(String pathToInputFile, boolean dataHasHeaders, ProgressMonitor progressMonitor, boolean matchIds) throws IOException, InconsistentDataException {
+		awaitUpdate();
+		try {
+			readDataAgainWhileUpdating(pathToInputFile, dataHasHeaders, progressMonitor, matchIds);
+		} finally {
+			endUpdate();
+		}
+	}
+
+	private void readDataAgainWhileUpdating(String pathToInputFile, boolean dataHasHeaders, ProgressMonitor progressMonitor, boolean matchIds) throws IOException, InconsistentDataException {
+		DataFileReader f = new DataFileReader(pathToInputFile, this.delimiter);
 
 		// check datasheet to be read for consistency
-		line = (f.readLine()).trim();
+		String line;
+		try {
+			line = readFirstLine(f, pathToInputFile);
+		} catch (IOException e) {
+			f.close();
+			throw e;
+		}
 		String[] lineElements = line.split(this.delimiter);
-		if (lineElements.length != this.getParameterCount()) {
+		Parameter[] parameterArray = getFileParameters();
+		if (lineElements.length != parameterArray.length) {
 			f.close();
 			throw new InconsistentDataException(pathToInputFile);
 		}
 
-		List<Design> buffer = new ArrayList<>(this.data);
-		Map<Integer, Design> idbuffer = new HashMap<>(this.designIdsMap);
-		// clusterId -> designHashes
-		Map<Integer, Set<Integer>> clustersToDesignHashes = computeClusterDesignHashes(this.data);
-		this.data.clear();
-		this.designIdsMap.clear();
+		double[] previousMin = new double[this.parameters.size()];
+		double[] previousMax = new double[this.parameters.size()];
+		for (int i = 0; i < this.parameters.size(); i++) {
+			Parameter parameter = this.parameters.get(i);
+			if (parameter.isNumeric()) {
+				previousMin[i] = getMinValueOf(parameter);
+				previousMax[i] = getMaxValueOf(parameter);
+			}
+		}
+		// The values are read into new columns that are only put on the
+		// parameters once all of them have been read, as the designs are
+		// displayed from the current columns in the meantime.
+		Column[] oldColumns = new Column[parameterArray.length];
+		Column[] newColumns = new Column[parameterArray.length];
+		boolean[] previousNumeric = new boolean[parameterArray.length];
+		boolean[] numeric = new boolean[parameterArray.length];
+		for (int i = 0; i < parameterArray.length; i++) {
+			oldColumns[i] = parameterArray[i].getColumn();
+			previousNumeric[i] = parameterArray[i].isNumeric();
+			numeric[i] = true;
+			newColumns[i] = createColumn();
+			ValueEncoding encoding = parameterArray[i].getChosenEncoding();
+			if (encoding == ValueEncoding.QUANTIZED) {
+				// the numbers are kept exactly while they are read and only quantized once all of them are known
+				newColumns[i].setEncoding(ValueEncoding.DOUBLE);
+			} else if (encoding != null) {
+				newColumns[i].setEncoding(encoding);
+			}
+		}
 
-		// if data has headers read the parameter names from the first line
-		if (dataHasHeaders){
-			for (Parameter parameter : this.parameters) {
-				parameter.setName(null);
+		int rowCount = 0;
+		int lineIdCounter = 1;
+		// the ids the designs would get on import, kept for matching them by id
+		int[][] rowIds = {new int[64]};
+		if (!dataHasHeaders) {
+			for (int i = 0; i < parameterArray.length; i++) {
+				numeric[i] &= newColumns[i].set(0, lineElements[i]);
 			}
-			for (int i = 0; i < lineElements.length; i++) {
-				this.parameters.get(i).setName(this.getUniqueParameterName(lineElements[i]));
+			rowIds[0][rowCount++] = lineIdCounter++;
+		}
+
+		try {
+			int[] counters = {rowCount, lineIdCounter};
+			f.readDesigns(parameterArray.length, progressMonitor, chunk -> {
+				if (matchIds) {
+					rowIds[0] = addRowIds(chunk, rowIds[0], counters[0], counters[1]);
+				}
+				counters[0] = addRows(chunk, newColumns, numeric, counters[0]);
+				counters[1] += chunk.getIdCount();
+			});
+			rowCount = counters[0];
+			lineIdCounter = counters[1];
+		} catch (IOException e) {
+			closeColumns(newColumns);
+			throw e;
+		} catch (UncheckedIOException e) {
+			closeColumns(newColumns);
+			throw e.getCause();
+		} finally {
+			f.close();
+		}
+		if (progressMonitor.isCanceled()) {
+			closeColumns(newColumns);
+			return;
+		}
+		for (int i = 0; i < parameterArray.length; i++) {
+			if (parameterArray[i].getChosenEncoding() == ValueEncoding.QUANTIZED) {
+				newColumns[i].setEncoding(ValueEncoding.QUANTIZED);
 			}
-			// if data does not have headers read the first Design from the first line and create default Parameter names
+			if (!numeric[i]) {
+				newColumns[i].buildLevels();
+			}
+		}
+
+		int oldRowCount = this.data.size();
+		int[] previousRows;
+		if (matchIds) {
+			int[] oldIds = this.data.stream().mapToInt(Design::getId).toArray();
+			previousRows = RowMatcher.matchIds(oldIds, oldColumns, rowIds[0], newColumns, rowCount);
 		} else {
-			Design newDesign = new Design(idCounter++);
+			previousRows = RowMatcher.match(oldColumns, oldRowCount, newColumns, rowCount);
+		}
+
+		// the columns and the designs are replaced together on the event dispatch thread, so that they are never displayed while they disagree
+		int newRowCount = rowCount;
+		int lastLineId = lineIdCounter;
+		long sourceLength = f.getCompleteLinesEnd();
+		DataFileReader.Chunk partialLine = f.getPartialLine();
+		invokeOnEventDispatchThread(() -> {
+			for (int i = 0; i < parameterArray.length; i++) {
+				parameterArray[i].setColumn(newColumns[i], numeric[i]);
+			}
+
+			// if data has headers read the parameter names from the first line
+			if (dataHasHeaders) {
+				for (Parameter parameter : parameterArray) {
+					parameter.setName(null);
+				}
+				this.parameterIndices = null;
+				// the parameters read from the file are in the same order in the list of all parameters
+				int index = 0;
+				for (int i = 0; i < lineElements.length; i++) {
+					String name = this.getUniqueParameterName(lineElements[i]);
+					parameterArray[i].setName(name);
+					while (this.parameters.get(index) != parameterArray[i]) {
+						index++;
+					}
+					getParameterIndices().putIfAbsent(name, index);
+				}
+			} else {
+				for (int i = 0; i < parameterArray.length; i++) {
+					parameterArray[i].setName("Parameter " + (i + 1));
+				}
+				this.parameterIndices = null;
+			}
+
+			BitSet removedRows = RowMatcher.getUnmatchedRows(previousRows, oldRowCount);
+			for (int row = removedRows.nextSetBit(0); row >= 0; row = removedRows.nextSetBit(row + 1)) {
+				this.designIdsMap.remove(this.data.get(row).getId());
+			}
+			int idCounter = matchIds ? Math.max(lastLineId, getNextDesignId()) : getNextDesignId();
+			List<Design> newData = new ArrayList<>(newRowCount);
+			for (int row = 0; row < newRowCount; row++) {
+				Design design;
+				if (previousRows[row] < 0) {
+					// designs are only matched by id if their values are the same, so a changed design gets a new id
+					design = new Design(matchIds && !this.designIdsMap.containsKey(rowIds[0][row]) ? rowIds[0][row] : idCounter++, row);
+					this.designIdsMap.put(design.getId(), design);
+				} else {
+					design = this.data.get(previousRows[row]);
+					design.setRow(row);
+				}
+				newData.add(design);
+			}
+			this.data = newData;
+			closeColumns(oldColumns);
+			setSource(pathToInputFile, sourceLength, idCounter);
+			setPartialLine(partialLine);
+			this.dataHasHeaders = dataHasHeaders;
+			this.sampled = false;
+			this.fileDesignCount = 0;
+			int previousVersion = this.dataVersion;
+			this.dataVersion++;
+			this.rewriteVersion = this.dataVersion;
+
+			boolean[] axisAutofitRequired = initialiseBooleanArray(false);
+			boolean[] axisResetFilterRequired = initialiseBooleanArray(false);
+			boolean[] axisApplyFiltersRequired = initialiseBooleanArray(false);
 			for (int i = 0; i < this.parameters.size(); i++) {
-				if (lineElements.length <= i) {
-					newDesign.setValue(this.parameters.get(i), "-", this);
+				Parameter parameter = this.parameters.get(i);
+				int fileIndex = Arrays.asList(parameterArray).indexOf(parameter);
+				if (fileIndex >= 0) {
+					// all values of the file have been read now
+					parameter.setFileStatistics(null);
+				}
+				if (fileIndex >= 0 && previousNumeric[fileIndex] != parameter.isNumeric()) {
+					axisAutofitRequired[i] = true;
+					axisResetFilterRequired[i] = true;
+				} else if (fileIndex >= 0 && !parameter.isNumeric()) {
+					// the ranks of all values change with the set of levels
+					axisAutofitRequired[i] = !oldColumns[fileIndex].hasSameLevels(newColumns[fileIndex]);
 				} else {
-					this.parameters.get(i).setName("Parameter " + (i + 1));
-					newDesign.setValue(this.parameters.get(i), lineElements[i], this);
+					// unchanged designs keep their derived values, so like above only a changed range requires fitting again
+					axisAutofitRequired[i] = getMinValueOf(parameter) != previousMin[i] || getMaxValueOf(parameter) != previousMax[i];
 				}
+				axisApplyFiltersRequired[i] = axisAutofitRequired[i];
+			}
+			flagDerivedParameters(axisAutofitRequired, axisApplyFiltersRequired);
 
+			fireListeners(l -> l.onDesignsUpdated(previousVersion, previousRows));
+			remapSelection(previousRows);
+			this.clusterMembership.remapRows(previousRows);
+			this.gradientColoring.remapRows(previousRows);
+			fireOnDataChanged(axisAutofitRequired, axisResetFilterRequired, axisApplyFiltersRequired, false);
+			fireDataPanelUpdateRequired();
+		});
+	}
+
+	/**
+	 * Records the ids that the designs of a chunk get on import.
+	 *
+	 * @param rowIds the ids of the rows before the chunk
+	 * @param firstRow the row of the first design of the chunk
+	 * @param firstId the id of the first line of the chunk
+	 * @return the ids of the rows including the chunk, possibly in a new array
+	 */
+	private static int[] addRowIds(DataFileReader.Chunk chunk, int[] rowIds, int firstRow, int firstId) {
+		int requiredLength = firstRow + chunk.getDesignCount();
+		if (requiredLength > rowIds.length) {
+			rowIds = Arrays.copyOf(rowIds, Math.max(requiredLength, 2 * rowIds.length));
+		}
+		for (int d = 0; d < chunk.getDesignCount(); d++) {
+			rowIds[firstRow + d] = firstId + chunk.getIdOffset(d);
+		}
+		return rowIds;
+	}
+
+	private void truncateColumns() {
+		for (Parameter parameter : getFileParameters()) {
+			parameter.getColumn().truncate(this.data.size());
+		}
+	}
+
+	private static void closeColumns(Column[] columns) {
+		for (Column column : columns) {
+			column.close();
+		}
+	}
+
+	/**
+	 * @return the parameters whose values are read from the file, in their order
+	 */
+	private Parameter[] getFileParameters() {
+		return this.parameters.stream().filter(parameter -> !parameter.isDerived()).toArray(Parameter[]::new);
+	}
+
+	/**
+	 * Makes derived parameters share the flags of the parameters they are
+	 * computed from, as their values change with them.
+	 *
+	 * @param flags arrays of flags, indexed like the parameters
+	 */
+	private void flagDerivedParameters(boolean[]... flags) {
+		for (int i = 0; i < this.parameters.size(); i++) {
+			Parameter parameter = this.parameters.get(i);
+			if (!parameter.isDerived()) {
+				continue;
 			}
+			for (int source = 0; source < this.parameters.size(); source++) {
+				if (((DerivedParameter) parameter).dependsOn(this.parameters.get(source))) {
+					for (boolean[] parameterFlags : flags) {
+						parameterFlags[i] |= parameterFlags[source];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return an ID that is larger than the IDs of all current designs
+	 */
+	private int getNextDesignId() {
+		int nextId = this.nextDesignId;
+		for (Design design : this.data) {
+			nextId = Math.max(nextId, design.getId() + 1);
+		}
+		return nextId;
+	}
+
+	Column createColumn() {
+		return new Column(this.scratchSpace);
+	}
+
+	/**
+	 * Releases the storage of this data sheet. If the values were kept in
+	 * memory mapped scratch files, these files are deleted. The data sheet
+	 * must not be used afterwards.
+	 */
+	public void dispose() {
+		if (this.scratchSpace != null) {
+			this.scratchSpace.close();
+		}
+	}
+
+	private String readFirstLine(DataFileReader f, String pathToInputFile) throws IOException {
+		String line = f.readLine();
+		if (line == null) {
+			throw new IOException("File " + pathToInputFile + " is empty");
+		}
+		return line.trim();
+	}
+
+	/**
+	 * @return the ID for the next design
+	 */
+	private int readDesignsFromFile(ProgressMonitor progressMonitor, DataFileReader f, int firstId, @Nullable Reservoir reservoir, ParameterStatistics[] fileStatistics) throws IOException {
+		int[] idCounter = {firstId};
+		Parameter[] parameterArray = getFileParameters();
+		if (reservoir == null) {
+			f.readDesigns(parameterArray.length, progressMonitor, chunk -> idCounter[0] = addDesigns(chunk, parameterArray, idCounter[0], 0));
+		} else {
+			f.readDesigns(parameterArray.length, progressMonitor, chunk -> idCounter[0] = addSampledDesigns(chunk, parameterArray, idCounter[0], reservoir, fileStatistics));
+		}
+		return idCounter[0];
+	}
+
+	/**
+	 * @param firstDesign the first design of the chunk to add
+	 * @return the ID for the next design
+	 */
+	private int addDesigns(DataFileReader.Chunk chunk, Parameter[] parameterArray, int firstId, int firstDesign) {
+		int firstRow = this.data.size();
+		addRows(chunk, parameterArray, firstDesign, firstRow);
+		for (int d = firstDesign; d < chunk.getDesignCount(); d++) {
+			Design newDesign = new Design(firstId + chunk.getIdOffset(d), firstRow + d - firstDesign);
 			this.data.add(newDesign);
 			this.designIdsMap.put(newDesign.getId(), newDesign);
 		}
+		return firstId + chunk.getIdCount();
+	}
+
+	/**
+	 * Offers the designs of a chunk to a reservoir sample. A design that is
+	 * sampled is either appended or replaces the design in the row that the
+	 * reservoir chose.
+	 *
+	 * @return the ID for the next design
+	 */
+	private int addSampledDesigns(DataFileReader.Chunk chunk, Parameter[] parameterArray, int firstId, Reservoir reservoir, ParameterStatistics[] fileStatistics) {
+		for (int i = 0; i < parameterArray.length; i++) {
+			chunk.addToStatistics(i, fileStatistics[i]);
+		}
+		for (int d = 0; d < chunk.getDesignCount(); d++) {
+			int row = reservoir.offer();
+			if (row < 0) {
+				continue;
+			}
+			writeRow(chunk, d, parameterArray, row);
+			Design newDesign = new Design(firstId + chunk.getIdOffset(d), row);
+			if (row == this.data.size()) {
+				this.data.add(newDesign);
+			} else {
+				this.designIdsMap.remove(this.data.set(row, newDesign).getId());
+			}
+			this.designIdsMap.put(newDesign.getId(), newDesign);
+		}
+		return firstId + chunk.getIdCount();
+	}
 
+	/**
+	 * Writes the values of a chunk to the columns, without creating designs.
+	 *
+	 * @param firstDesign the first design of the chunk to write
+	 * @return the row after the last written row
+	 */
+	private int addRows(DataFileReader.Chunk chunk, Parameter[] parameterArray, int firstDesign, int firstRow) {
+		for (int d = firstDesign; d < chunk.getDesignCount(); d++) {
+			writeRow(chunk, d, parameterArray, firstRow + d - firstDesign);
+		}
+		return firstRow + chunk.getDesignCount() - firstDesign;
+	}
+
+	/**
+	 * Writes the values of a chunk to columns that do not belong to the
+	 * parameters yet.
+	 *
+	 * @param numeric for each column, whether all values written so far are numbers, which is updated
+	 * @return the row after the last written row
+	 */
+	private static int addRows(DataFileReader.Chunk chunk, Column[] columns, boolean[] numeric, int firstRow) {
+		for (int d = 0; d < chunk.getDesignCount(); d++) {
+			for (int i = 0; i < columns.length; i++) {
+				numeric[i] &= chunk.writeValue(d, i, columns[i], firstRow + d);
+			}
+		}
+		return firstRow + chunk.getDesignCount();
+	}
+
+	private void writeRow(DataFileReader.Chunk chunk, int design, Parameter[] parameterArray, int row) {
+		for (int i = 0; i < parameterArray.length; i++) {
+			if (!chunk.writeValue(design, i, parameterArray[i].getColumn(), row)) {
+				parameterArray[i].setNumeric(false, this);
+			}
+		}
+	}
+
+	/**
+	 * Runs changes to the designs that are displayed on the event dispatch
+	 * thread and waits for them to complete.
+	 */
+	private static void invokeOnEventDispatchThread(Runnable changes) throws InterruptedIOException {
+		if (SwingUtilities.isEventDispatchThread()) {
+			changes.run();
+			return;
+		}
 		try {
-			readDesignsFromFile(progressMonitor, f, idCounter);
-		} catch (IOException e) {
-			this.data = buffer;
-			this.designIdsMap = idbuffer;
-			throw e;
+			SwingUtilities.invokeAndWait(changes);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Waiting for the designs to be replaced was interrupted");
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
 		}
-		f.close();
-		if (progressMonitor.isCanceled()) {
-			this.data = buffer;
-			this.designIdsMap = idbuffer;
+	}
+
+	/**
+	 * Waits until designs that are being appended have been added and marks
+	 * the data sheet as updating.
+	 */
+	private synchronized void awaitUpdate() throws InterruptedIOException {
+		while (this.updating) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Waiting for appended designs was interrupted");
+			}
 		}
+		this.updating = true;
+	}
 
-		for (Parameter parameter : this.parameters) {
-			parameter.updateNumeric(this);
-			parameter.updateDiscreteLevels(this);
+	/**
+	 * Marks the data sheet as updating, unless it is already updating.
+	 *
+	 * @return true if the data sheet has been marked as updating
+	 */
+	private synchronized boolean tryUpdate() {
+		if (this.updating) {
+			return false;
 		}
+		this.updating = true;
+		return true;
+	}
 
-		restoreClustersFromHashes(clustersToDesignHashes, this.data, clusterSet);
+	private synchronized void endUpdate() {
+		this.updating = false;
+		notifyAll();
+	}
 
-		fireOnDataChanged(initialiseBooleanArray(true), initialiseBooleanArray(true), initialiseBooleanArray(true), false);
-		fireDataPanelUpdateRequired();
+	/**
+	 * @return true if the designs are currently being read again or appended
+	 */
+	public synchronized boolean isUpdating() {
+		return this.updating;
+	}
 
+	private synchronized void setSource(String pathToInputFile, long length, int nextDesignId) {
+		this.sourceFile = pathToInputFile;
+		this.sourceLength = length;
+		this.nextDesignId = nextDesignId;
 	}
 
-	private void restoreClustersFromHashes(Map<Integer, Set<Integer>> clustersToDesignHashes, List<Design> designs, ClusterSet clusterSet) {
-		for (Map.Entry<Integer, Set<Integer>> entry : clustersToDesignHashes.entrySet()) {
-			Integer clusterId = entry.getKey();
-			Set<Integer> designHashes = entry.getValue();
-			clusterSet.findClusterById(clusterId).ifPresent(cluster -> {
-				for (Design design : designs) {
-					if (designHashes.contains(design.computeValuesHash(parameters))) {
-						design.setCluster(cluster);
-					}
-				}
-			});
+	/**
+	 * Remembers the last line of the source file if it had no line
+	 * terminator yet, so that its design is replaced once the line is
+	 * complete. Such a line is always read last, so its design is the last
+	 * design.
+	 *
+	 * @param partialLine the chunk read from that line or null
+	 */
+	private void setPartialLine(@Nullable DataFileReader.Chunk partialLine) {
+		this.partialLineIds = partialLine == null ? 0 : partialLine.getIdCount();
+		this.partialLineDesign = partialLine == null || partialLine.getDesignCount() == 0 ? null : this.data.get(this.data.size() - 1);
+	}
+
+	/**
+	 * @return the file the designs were last imported from or null if unknown
+	 */
+	@Nullable
+	public String getSourceFile() {
+		return this.sourceFile;
+	}
+
+	/**
+	 * Reads the lines that were appended to the source file since the last
+	 * import, update or append.
+	 * <p>
+	 * This method does not modify the data sheet and may be called from a
+	 * worker thread. The result is added with {@link #appendDesigns(AppendedDesigns)}.
+	 *
+	 * @return the appended designs
+	 * @throws IOException if the file cannot be read or has become shorter, or if only a sample of it was imported
+	 */
+	public AppendedDesigns readAppendedDesigns() throws IOException {
+		String file;
+		long start;
+		boolean sampled;
+		synchronized (this) {
+			file = this.sourceFile;
+			start = this.sourceLength;
+			sampled = this.sampled;
+		}
+		if (file == null) {
+			throw new IOException("The data sheet has no source file");
+		} else if (sampled) {
+			throw new IOException("Only a sample of the designs in " + file + " was imported.\nPlease load the full data first.");
+		}
+		List<DataFileReader.Chunk> chunks = new ArrayList<>();
+		try (DataFileReader f = new DataFileReader(file, this.delimiter, start)) {
+			f.readDesigns(getFileParameters().length, null, chunks::add);
+			return new AppendedDesigns(file, start, f.getPosition(), chunks);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
 		}
 	}
 
-	private Map<Integer, Set<Integer>> computeClusterDesignHashes(List<Design> designs) {
-		Map<Integer, Set<Integer>> clustersToDesignHashes = new HashMap<>();
-		for (Design design : designs) {
-			@Nullable Cluster cluster = design.getCluster();
-			if(cluster != null) {
-				clustersToDesignHashes
-						.computeIfAbsent(cluster.getUniqueId(), k -> new HashSet<>())
-						.add(design.computeValuesHash(parameters));
+	/**
+	 * Adds designs that were appended to the source file.
+	 * <p>
+	 * Only the new designs are added, the existing designs keep their state.
+	 * Axes are only fitted again if the new designs are outside of the
+	 * previous range of their parameter, or if new discrete levels appear.
+	 * Filters only evaluate the new designs, unless their axis is fitted
+	 * again. The designs are ignored if the data sheet is being updated from
+	 * a file or has been updated since they were read.
+	 * <p>
+	 * If the last line of the file had no line terminator when it was read
+	 * before, its design is replaced by the design of the complete line.
+	 *
+	 * @param appendedDesigns the designs read by {@link #readAppendedDesigns()}
+	 */
+	public void appendDesigns(AppendedDesigns appendedDesigns) {
+		if (!tryUpdate()) {
+			return;
+		}
+		try {
+			// the source length is only compared now, as an update may have finished since the designs were read
+			if (appendedDesigns.getSourceFile().equals(this.sourceFile) && appendedDesigns.getStart() == this.sourceLength) {
+				addAppendedDesigns(appendedDesigns);
 			}
+		} finally {
+			endUpdate();
 		}
-		return clustersToDesignHashes;
 	}
 
-	private void readDesignsFromFile(ProgressMonitor progressMonitor, BufferedReader f, int idCounter) throws IOException {
-		String line;
-		String[] lineElements;
-		while ((line = f.readLine()) != null && !progressMonitor.isCanceled()) // read all  subsequent lines  into Designs
-		{
-			progressMonitor.setProgress(idCounter - 1);
-			Design newDesign;
-			lineElements = line.split(this.delimiter);
-			if (lineElements.length > 0) {
-				newDesign = new Design(idCounter++);
-				boolean newDesignContainsValues = false;
-				for (String lineElement : lineElements) {
-					if (lineElement.length() > 0 && (!lineElement.equals("\\s"))) {
-						newDesignContainsValues = true; // found non-empty empty
-						break;
-					}
-				}
-				if (newDesignContainsValues) {
-					for (int i = 0; i < this.parameters.size(); i++) {
-						if (lineElements.length <= i || lineElements[i].length() <= 0 || lineElements[i].equals("\\s")) {
-							newDesign.setValue(this.parameters.get(i), "-", this);
-						} else {
-							newDesign.setValue(this.parameters.get(i), lineElements[i], this);
-						}
-					}
-					this.data.add(newDesign);
-					this.designIdsMap.put(newDesign.getId(), newDesign);
-				}
+	private void addAppendedDesigns(AppendedDesigns appendedDesigns) {
+		Parameter[] parameterArray = getFileParameters();
+		int parameterCount = this.parameters.size();
+		boolean[] previousNumeric = new boolean[parameterCount];
+		int[] previousLevelCount = new int[parameterCount];
+		double[] previousMin = new double[parameterCount];
+		double[] previousMax = new double[parameterCount];
+		for (int i = 0; i < parameterCount; i++) {
+			Parameter parameter = this.parameters.get(i);
+			previousNumeric[i] = parameter.isNumeric();
+			previousLevelCount[i] = previousNumeric[i] ? 0 : parameter.getDiscreteLevelCount();
+			previousMin[i] = getMinValueOf(parameter);
+			previousMax[i] = getMaxValueOf(parameter);
+		}
+
+		int firstRow = this.data.size();
+		List<DataFileReader.Chunk> chunks = appendedDesigns.getChunks();
+		// the last line that was read before is read again now that it is complete
+		int idCounter = this.nextDesignId - this.partialLineIds;
+		int replacedRow = findPartialLineRow(chunks);
+		if (replacedRow >= 0) {
+			writeRow(chunks.get(0), 0, parameterArray, replacedRow);
+			for (Parameter parameter : parameterArray) {
+				// the replaced value may have been the last one that is not a number
+				parameter.updateNumeric(this);
+			}
+		}
+		for (int c = 0; c < chunks.size(); c++) {
+			idCounter = addDesigns(chunks.get(c), parameterArray, idCounter, c == 0 && replacedRow >= 0 ? 1 : 0);
+		}
+		setSource(this.sourceFile, appendedDesigns.getEnd(), idCounter);
+		setPartialLine(null);
+		if (this.data.size() == firstRow && replacedRow < 0) {
+			return;
+		}
+		int previousVersion = this.dataVersion;
+		this.dataVersion++;
+		if (replacedRow >= 0) {
+			this.rewriteVersion = this.dataVersion;
+		}
+
+		boolean[] axisAutofitRequired = initialiseBooleanArray(false);
+		boolean[] axisResetFilterRequired = initialiseBooleanArray(false);
+		boolean[] axisApplyFiltersRequired = initialiseBooleanArray(false);
+		for (int i = 0; i < parameterCount; i++) {
+			Parameter parameter = this.parameters.get(i);
+			if (previousNumeric[i] != parameter.isNumeric()) {
+				axisAutofitRequired[i] = true;
+				axisResetFilterRequired[i] = true;
+			} else if (parameter.isNumeric() && replacedRow >= 0) {
+				// the replaced value may also have been the minimum or the maximum
+				axisAutofitRequired[i] = getMinValueOf(parameter) != previousMin[i] || getMaxValueOf(parameter) != previousMax[i];
+			} else if (parameter.isNumeric()) {
+				// derived parameters only compute the appended designs here
+				axisAutofitRequired[i] = getMinValueOf(parameter) < previousMin[i] || getMaxValueOf(parameter) > previousMax[i];
+			} else {
+				// the replaced value may have been the only one of its level
+				axisAutofitRequired[i] = replacedRow >= 0 || parameter.getDiscreteLevelCount() != previousLevelCount[i];
 			}
+			axisApplyFiltersRequired[i] = axisAutofitRequired[i];
 		}
+		flagDerivedParameters(axisAutofitRequired, axisApplyFiltersRequired);
+		if (replacedRow < 0) {
+			fireListeners(l -> l.onDesignsAppended(firstRow));
+		} else {
+			// the replaced design keeps its state, but is evaluated again like the appended designs
+			int[] previousRows = new int[this.data.size()];
+			for (int row = 0; row < previousRows.length; row++) {
+				previousRows[row] = row < firstRow && row != replacedRow ? row : -1;
+			}
+			fireListeners(l -> l.onDesignsUpdated(previousVersion, previousRows));
+		}
+		fireOnDataChanged(axisAutofitRequired, axisResetFilterRequired, axisApplyFiltersRequired, false);
+		fireDataPanelUpdateRequired();
+	}
+
+	/**
+	 * @return the row of the design that was read from the last line before
+	 * it was complete, if the first appended line is that line and has a
+	 * design, or else -1
+	 */
+	private int findPartialLineRow(List<DataFileReader.Chunk> chunks) {
+		Design design = this.partialLineDesign;
+		if (design == null || chunks.isEmpty()) {
+			return -1;
+		} else if (this.designIdsMap.get(design.getId()) != design) {
+			// the design has been removed in the meantime, so the complete line is appended
+			return -1;
+		}
+		DataFileReader.Chunk firstChunk = chunks.get(0);
+		return firstChunk.getDesignCount() > 0 && firstChunk.getIdOffset(0) == 0 ? design.getRow() : -1;
 	}
 
 	public void setValueAt(Object newValue, int rowIndex, int columnIndex) {
 		Parameter parameter = this.parameters.get(columnIndex - 1);
+		if (parameter.isDerived()) {
+			return;
+		}
 		boolean previousNumeric = parameter.isNumeric();
 		boolean[] axisAutofitRequired = initialiseBooleanArray(false);
 		boolean[] axisResetFilterRequired = initialiseBooleanArray(false);
 		boolean[] axisApplyFiltersRequired = initialiseBooleanArray(false);
 		this.data.get(rowIndex).setValue(parameters.get(columnIndex - 1), newValue.toString(), this);
+		this.dataVersion++;
+		this.rewriteVersion = this.dataVersion;
 
-		if (!previousNumeric) {
-			parameter.updateDiscreteLevels(this);
-		}
-
-		Optional<Float> parsed = NumberParser.parseNumber(newValue.toString());
-		boolean parsable = parsed.isPresent();
-
-		if(previousNumeric && !parsable) {
-			parameter.setNumeric(false, this);
-		} else if (!previousNumeric && parsable) {
-			parameter.updateNumeric(this);
-		}
+		// setting a value that is not a number has already made the parameter non-numeric
+		parameter.updateNumeric(this);
 		if (previousNumeric != parameter.isNumeric()) {
 			axisAutofitRequired[columnIndex - 1] = true;
 			axisResetFilterRequired[columnIndex - 1] = true;
 		}
 
 		axisApplyFiltersRequired[columnIndex - 1] = true;
+		flagDerivedParameters(axisAutofitRequired, axisApplyFiltersRequired);
 		fireOnDataChanged(axisAutofitRequired, axisResetFilterRequired, axisApplyFiltersRequired, false);
 	}
 
-	private int getLineCount(String pathToInputFile) throws IOException {
-		BufferedReader f;
-		f = new BufferedReader(new FileReader(pathToInputFile));
-		int lineCount = 0;
-		while ((f.readLine()) != null)
-			lineCount++;
-		f.close();
-		return lineCount;
+	/**
+	 * Chooses how the numbers of a parameter are stored and converts them.
+	 * As the conversion may round the numbers, the axes of the parameter are
+	 * fitted and filtered again.
+	 *
+	 * @param parameter the parameter
+	 * @param encoding one of the encodings that can be chosen, or null to choose the encoding automatically
+	 */
+	public void setChosenEncoding(Parameter parameter, @Nullable ValueEncoding encoding) {
+		if (parameter.getChosenEncoding() == encoding) {
+			return;
+		}
+		int index = this.parameters.indexOf(parameter);
+		parameter.setChosenEncoding(encoding);
+		this.dataVersion++;
+		this.rewriteVersion = this.dataVersion;
+
+		boolean[] axisAutofitRequired = initialiseBooleanArray(false);
+		boolean[] axisResetFilterRequired = initialiseBooleanArray(false);
+		boolean[] axisApplyFiltersRequired = initialiseBooleanArray(false);
+		axisAutofitRequired[index] = true;
+		axisApplyFiltersRequired[index] = true;
+		flagDerivedParameters(axisAutofitRequired, axisApplyFiltersRequired);
+		fireOnDataChanged(axisAutofitRequired, axisResetFilterRequired, axisApplyFiltersRequired, false);
+		fireDataPanelUpdateRequired();
 	}
 
 	public Design getDesign(int i) {
@@ -303,36 +977,71 @@ public class DataSheet implements Serializable {
 		return this.designIdsMap.get(id);
 	}
 
+	/**
+	 * Removes designs in a single pass over the data sheet.
+	 * <p>
+	 * Filters only have to be evaluated again on axes whose parameter
+	 * changed its type or lost discrete levels, because only there the
+	 * numeric representation of the remaining designs changes.
+	 *
+	 * @param designsToRemove the rows of the designs to remove
+	 */
 	public void removeDesigns(int[] designsToRemove) {
+		BitSet removed = new BitSet(this.data.size());
+		for (int row : designsToRemove) {
+			removed.set(row);
+		}
+		if (removed.isEmpty()) {
+			return;
+		}
 		boolean[] axisAutofitRequired = initialiseBooleanArray(false);
 		boolean[] axisResetFilterRequired = initialiseBooleanArray(false);
 		boolean[] axisApplyFiltersRequired = initialiseBooleanArray(false);
 
 		boolean[] discrete = new boolean[this.parameters.size()]; // check which parameters are discrete
+		int[] previousLevelCount = new int[this.parameters.size()];
 		for (int i = 0; i < this.parameters.size(); i++) {
 			discrete[i] = !this.parameters.get(i).isNumeric();
+			previousLevelCount[i] = discrete[i] ? this.parameters.get(i).getDiscreteLevelCount() : 0;
 		}
 
-		for (int i = designsToRemove.length - 1; i >= 0; i--) {
-			Design removedDesign = data.remove(designsToRemove[i]);
-			this.designIdsMap.remove(removedDesign.getId());
-			// check if that makes any non-numeric parameter numeric
-			for (Parameter parameter : this.parameters) {
-				if (!parameter.isNumeric()) {
-					String string = removedDesign.getStringValue(parameter);
-					if (!NumberParser.parseNumber(string).isPresent()) {
-						parameter.updateNumeric(this);
-						parameter.updateDiscreteLevels(this);
-					}
-				}
+		// the remaining designs point to their new rows before the columns are compacted
+		int[] previousRows = new int[this.data.size() - removed.cardinality()];
+		int target = 0;
+		for (int row = 0; row < this.data.size(); row++) {
+			Design design = this.data.get(row);
+			if (removed.get(row)) {
+				this.designIdsMap.remove(design.getId());
+			} else {
+				design.setRow(target);
+				previousRows[target] = row;
+				this.data.set(target++, design);
 			}
 		}
+		this.data.subList(target, this.data.size()).clear();
+
+		int[] removedRows = removed.stream().toArray();
+		// derived parameters compute their values again from the compacted columns when they are next used
+		for (Parameter parameter : getFileParameters()) {
+			parameter.getColumn().removeRows(removedRows);
+			// removing the last non-numeric values makes the parameter numeric
+			parameter.updateNumeric(this);
+		}
+		int previousVersion = this.dataVersion;
+		this.dataVersion++;
+		this.rewriteVersion = this.dataVersion;
 
 		for (int i = 0; i < this.parameters.size(); i++) {
-			axisAutofitRequired[i] = discrete[i] && this.parameters.get(i).isNumeric();
-			axisApplyFiltersRequired[i] = true;
+			Parameter parameter = this.parameters.get(i);
+			axisAutofitRequired[i] = discrete[i] && parameter.isNumeric();
+			axisApplyFiltersRequired[i] = axisAutofitRequired[i] || discrete[i] && parameter.getDiscreteLevelCount() != previousLevelCount[i];
 		}
+		flagDerivedParameters(axisAutofitRequired, axisApplyFiltersRequired);
 
+		fireListeners(l -> l.onDesignsUpdated(previousVersion, previousRows));
+		remapSelection(previousRows);
+		this.clusterMembership.remapRows(previousRows);
+		this.gradientColoring.remapRows(previousRows);
 		fireOnDataChanged(axisAutofitRequired, axisResetFilterRequired, axisApplyFiltersRequired, false);
 		fireDataPanelUpdateRequired();
 	}
@@ -354,44 +1063,102 @@ public class DataSheet implements Serializable {
 	}
 
 	public Parameter getParameter(String parameterName) {
-		for (Parameter parameter : this.parameters) {
-			if (parameterName.equals(parameter.getName())) {
-				return parameter;
-			}
-		}
-		throw new IllegalArgumentException("Parameter " + parameterName + " not found");
+		return this.parameters.get(getParameterIndex(parameterName));
 	}
 
+	/**
+	 * Removes a parameter, together with the derived parameters that are
+	 * computed from it.
+	 *
+	 * @param parameterName the name of the parameter
+	 */
 	public void removeParameter(String parameterName){
-		boolean removed = this.parameters.removeIf(p -> p.getName().equals(parameterName));
-		if (removed) {
-			fireDataPanelUpdateRequired();
-			fireOnDataChanged(false, false, false, true);
+		if (!parameterExists(parameterName)) {
+			return;
+		}
+		Parameter parameter = getParameter(parameterName);
+		List<Parameter> removedParameters = new ArrayList<>();
+		this.parameters.removeIf(p -> {
+			boolean removed = p == parameter || p.isDerived() && ((DerivedParameter) p).dependsOn(parameter);
+			if (removed) {
+				removedParameters.add(p);
+			}
+			return removed;
+		});
+		this.parameterIndices = null;
+		fireDataPanelUpdateRequired();
+		fireOnDataChanged(false, false, false, true);
+		// only once the listeners have dropped their references to the removed parameters
+		for (Parameter removedParameter : removedParameters) {
+			removedParameter.close();
 		}
 	}
 
+	/**
+	 * Adds a parameter whose values are computed from other parameters.
+	 * <p>
+	 * The expression is compiled once. The values are computed a column at
+	 * a time when they are first needed, and kept until the values of a
+	 * source change. Parallel coordinates charts add an axis for the new
+	 * parameter.
+	 *
+	 * @param name the name of the new parameter, which is made unique if required
+	 * @param expression the expression, as described in {@link Expression}
+	 * @return the new parameter
+	 * @throws InvalidExpressionException if the expression cannot be compiled
+	 */
+	public Parameter addDerivedParameter(String name, String expression) throws InvalidExpressionException {
+		Expression compiledExpression = Expression.compile(expression, this.parameters);
+		Parameter parameter = new DerivedParameter(getUniqueParameterName(name), compiledExpression, this);
+		parameter.setTicLabelDigitCount(UserPreferences.getInstance().getParallelCoordinatesAxisTicLabelDigitCount());
+		addParameter(parameter);
+		fireDataPanelUpdateRequired();
+		fireOnDataChanged(false, false, false, true);
+		return parameter;
+	}
+
 	public int getParameterIndex(String parameterName) {
-		for (int i = 0; i < this.parameters.size(); i++) {
-			if (parameterName.equals(this.parameters.get(i).getName())) {
-				return i;
+		Integer index = getParameterIndices().get(parameterName);
+		if (index == null) {
+			throw new IllegalArgumentException("Parameter " + parameterName + " not found");
+		}
+		return index;
+	}
+
+	public boolean parameterExists(String parameterName) {
+		return getParameterIndices().containsKey(parameterName);
+	}
+
+	public boolean parameterExists(Parameter param) {
+		Integer index = getParameterIndices().get(param.getName());
+		return index != null && this.parameters.get(index) == param;
+	}
+
+	private Map<String, Integer> getParameterIndices() {
+		if (this.parameterIndices == null) {
+			Map<String, Integer> indices = new HashMap<>(2 * this.parameters.size());
+			for (int i = 0; i < this.parameters.size(); i++) {
+				indices.putIfAbsent(this.parameters.get(i).getName(), i);
 			}
+			this.parameterIndices = indices;
 		}
-		throw new IllegalArgumentException("Parameter " + parameterName + " not found");
+		return this.parameterIndices;
 	}
 
-    public boolean parameterExists(Parameter param) {
-		return this.parameters.contains(param);
+	private void addParameter(Parameter parameter) {
+		this.parameters.add(parameter);
+		if (this.parameterIndices != null) {
+			this.parameterIndices.putIfAbsent(parameter.getName(), this.parameters.size() - 1);
+		}
 	}
 
 	public double getMaxValueOf(Parameter param) {
 		if (param.isNumeric()) {
-			double max = Double.NEGATIVE_INFINITY;
-			for (Design datum : this.data) {
-				if (max < datum.getDoubleValue(param)) {
-					max = datum.getDoubleValue(param);
-				}
-			}
-			return max;
+			// a sample covers the range of the whole file, unless its values have been modified
+			double min = Math.min(param.getStatistics().getMin(), param.getFileStatistics().getMin());
+			double max = Math.max(param.getStatistics().getMax(), param.getFileStatistics().getMax());
+			// without any numbers, for instance if all values are missing, the axis collapses to zero
+			return min <= max ? max : 0;
 		} else {
 			return param.getDiscreteLevelCount() - 1;
 		}
@@ -399,13 +1166,10 @@ public class DataSheet implements Serializable {
 
 	public double getMinValueOf(Parameter param) {
 		if (param.isNumeric()) {
-			double min = Double.POSITIVE_INFINITY;
-			for (Design datum : this.data) {
-				if (min > datum.getDoubleValue(param)) {
-					min = datum.getDoubleValue(param);
-				}
-			}
-			return min;
+			double min = Math.min(param.getStatistics().getMin(), param.getFileStatistics().getMin());
+			double max = Math.max(param.getStatistics().getMax(), param.getFileStatistics().getMax());
+			// without any numbers, for instance if all values are missing, the axis collapses to zero
+			return min <= max ? min : 0;
 		} else {
 			return 0.0;
 		}
@@ -415,6 +1179,90 @@ public class DataSheet implements Serializable {
 		return this.data.size();
 	}
 
+	/**
+	 * @param row the row of a design
+	 * @return true if the design is selected
+	 */
+	public boolean isSelected(int row) {
+		return this.selection.get(row);
+	}
+
+	public int getSelectedDesignCount() {
+		return this.selection.cardinality();
+	}
+
+	/**
+	 * @return the rows of the selected designs, which may be modified by the caller
+	 */
+	public BitSet getSelectedRows() {
+		return (BitSet) this.selection.clone();
+	}
+
+	/**
+	 * Selects exactly the designs in the given rows.
+	 *
+	 * @param rows the rows of the designs to select
+	 */
+	public void setSelectedRows(BitSet rows) {
+		BitSet newSelection = (BitSet) rows.clone();
+		newSelection.clear(this.data.size(), Math.max(this.data.size(), newSelection.length()));
+		changeSelection(newSelection);
+	}
+
+	/**
+	 * Selects the designs in the given rows that are not selected and
+	 * unselects those that are.
+	 *
+	 * @param rows the rows of the designs to select or unselect
+	 */
+	public void toggleSelectedRows(BitSet rows) {
+		BitSet newSelection = getSelectedRows();
+		newSelection.xor(rows);
+		setSelectedRows(newSelection);
+	}
+
+	public void clearSelection() {
+		changeSelection(new BitSet());
+	}
+
+	private void changeSelection(BitSet newSelection) {
+		BitSet changedRows = this.selection;
+		changedRows.xor(newSelection);
+		this.selection = newSelection;
+		if (!changedRows.isEmpty()) {
+			fireListeners(l -> l.onSelectionChanged(changedRows));
+		}
+	}
+
+	/**
+	 * Keeps designs that moved to other rows selected.
+	 *
+	 * @param previousRows for each row, the previous row of its design or -1 if the design is new
+	 */
+	private void remapSelection(int[] previousRows) {
+		BitSet newSelection = new BitSet(previousRows.length);
+		for (int row = 0; row < previousRows.length; row++) {
+			if (previousRows[row] >= 0 && this.selection.get(previousRows[row])) {
+				newSelection.set(row);
+			}
+		}
+		changeSelection(newSelection);
+	}
+
+	/**
+	 * @return true if only a sample of the designs in the source file was imported
+	 */
+	public boolean isSampled() {
+		return this.sampled;
+	}
+
+	/**
+	 * @return the number of designs in the source file if only a sample of them was imported, or else the number of designs
+	 */
+	public long getFileDesignCount() {
+		return this.sampled ? this.fileDesignCount : this.data.size();
+	}
+
 	private String getUniqueParameterName(String nameSuggestion) {
 		String name = nameSuggestion;
 		int id = 2;
@@ -425,25 +1273,13 @@ public class DataSheet implements Serializable {
 	}
 
 	private boolean isNameUnique(String name) {
-		boolean unique = true;
-		for (Parameter parameter : this.parameters) {
-			if (name.equals(parameter.getName())) {
-				unique = false;
-				break;
-			}
-		}
-		return unique;
-	}
-
-	public void evaluateBoundsForAllDesigns(ParallelCoordinatesChart chart) {
-		for (int i = 0; i < this.getDesignCount(); i++) {
-			this.data.get(i).evaluateBounds(chart);
-		}
+		return !getParameterIndices().containsKey(name);
 	}
 
 	public void moveParameter(int oldIndex, int newIndex) {
 		Parameter param = this.parameters.remove(oldIndex);
 		this.parameters.add(newIndex, param);
+		this.parameterIndices = null;
 	}
 
 	private boolean[] initialiseBooleanArray(boolean value) {
@@ -468,13 +1304,121 @@ public class DataSheet implements Serializable {
 		}
 	}
 
+	/**
+	 * @param row the row of a design
+	 * @return the cluster of the design or null if it does not belong to a cluster
+	 */
+	@Nullable
+	public Cluster getCluster(int row) {
+		return this.clusterMembership.getCluster(row);
+	}
+
+	/**
+	 * Moves designs to a cluster, removing them from the clusters they
+	 * belonged to before.
+	 *
+	 * @param rows the rows of the designs
+	 * @param cluster the new cluster of the designs, or null to remove them from their clusters
+	 */
+	public void setCluster(BitSet rows, @Nullable Cluster cluster) {
+		this.clusterMembership.assign(rows, cluster);
+	}
+
+	/**
+	 * @param cluster a cluster
+	 * @return the rows of the designs in the cluster, which may be modified by the caller
+	 */
+	public BitSet getClusterRows(Cluster cluster) {
+		return this.clusterMembership.getRows(cluster);
+	}
+
+	/**
+	 * @return the rows of the designs that are hidden because their cluster is not active
+	 */
+	public BitSet getRowsOfInactiveClusters() {
+		return this.clusterMembership.getRowsOfInactiveClusters();
+	}
+
+	/**
+	 * Finds the designs with a value of a parameter within a range. A value v
+	 * is within the range unless {@code v - tolerance > max} or
+	 * {@code v + tolerance < min}. Designs with a missing value or NaN are
+	 * within any range, as they have no position on an axis.
+	 *
+	 * @param parameter the parameter
+	 * @param min the lower end of the range, or negative infinity
+	 * @param max the upper end of the range, or positive infinity
+	 * @param tolerance the amount by which a value may exceed the range
+	 * @param firstRow the row of the first design to check
+	 * @return the rows of the designs within the range, none of which is before the first row
+	 */
+	public BitSet findRowsWithinRange(Parameter parameter, double min, double max, double tolerance, int firstRow) {
+		RangeSearch search = createRangeSearch(parameter, min, max, tolerance, firstRow);
+		search.searchAllBlocks();
+		return search.getRows();
+	}
+
+	/**
+	 * Prepares a search for the designs with a value of a parameter within a
+	 * range, whose blocks can be searched in parallel. The range is defined
+	 * as for {@link #findRowsWithinRange(Parameter, double, double, double, int)}.
+	 *
+	 * @param parameter the parameter
+	 * @param min the lower end of the range, or negative infinity
+	 * @param max the upper end of the range, or positive infinity
+	 * @param tolerance the amount by which a value may exceed the range
+	 * @param firstRow the row of the first design to check
+	 * @return the search
+	 */
+	public RangeSearch createRangeSearch(Parameter parameter, double min, double max, double tolerance, int firstRow) {
+		return new RangeSearch(parameter.getColumn(), min, max, tolerance, firstRow);
+	}
+
+	/**
+	 * Gets the rows of the designs sorted by their values of a parameter. The
+	 * order is kept until the values of the parameter change.
+	 *
+	 * @param parameter the parameter
+	 * @return the rows of the designs with a value that is neither missing nor NaN, sorted by that value
+	 */
+	public ValueOrder getValueOrder(Parameter parameter) {
+		return parameter.getColumn().getValueOrder();
+	}
+
+	/**
+	 * @param row the row of a design
+	 * @return the color with which the design is marked by the color gradient or null if it is not marked
+	 */
+	@Nullable
+	public Color getGradientColor(int row) {
+		return this.gradientColoring.getColor(row);
+	}
+
+	/**
+	 * Marks all designs with a value of a parameter in a range with the color
+	 * of their value in a color gradient, and removes the marks of all other
+	 * designs.
+	 *
+	 * @param parameter the parameter
+	 * @param min the value with the first color of the gradient
+	 * @param max the value with the last color of the gradient
+	 * @param inverted true if min has the last color and max the first
+	 * @param colormap the gradient
+	 */
+	public void applyColorGradient(Parameter parameter, double min, double max, boolean inverted, Colormap colormap) {
+		this.gradientColoring.apply(parameter.getColumn(), getDesignCount(), min, max, inverted, colormap);
+	}
+
+	/**
+	 * Removes the marks of the color gradient from all designs.
+	 */
+	public void removeColorGradient() {
+		this.gradientColoring.clear();
+	}
+
 	void onClustersUpdated(List<Cluster> changed, List<Cluster> added, List<Cluster> removed) {
 		for (Cluster removedCluster : removed) {
-			for (int j = 0; j < getDesignCount(); j++) {
-				if (removedCluster.equals(getDesign(j).getCluster())) {
-					getDesign(j).setCluster(null);
-				}
-			}
+			this.clusterMembership.remove(removedCluster);
 		}
 		if (changed.isEmpty() && added.isEmpty() && removed.isEmpty()) {
 			return;
@@ -498,6 +1442,66 @@ public class DataSheet implements Serializable {
 		fireListeners(DatasheetListener::onDataPanelUpdateRequired);
 	}
 
+	/**
+	 * Reports that the Filters of a parameter changed, at once or at the end
+	 * of the current transaction. The listeners are always notified on the
+	 * event dispatch thread.
+	 *
+	 * @param column the index of the parameter
+	 */
+	public void fireFiltersChanged(int column) {
+		boolean fire;
+		synchronized (this) {
+			this.pendingFilterChanges.set(column);
+			fire = this.transactionDepth == 0;
+		}
+		if (fire) {
+			firePendingFilterChanges();
+		}
+	}
+
+	/**
+	 * Runs changes as one transaction. The Filter changes made by them are
+	 * reported to the listeners once, when the outermost transaction ends.
+	 *
+	 * @param changes the changes
+	 */
+	public void runTransaction(Runnable changes) {
+		synchronized (this) {
+			this.transactionDepth++;
+		}
+		boolean fire;
+		try {
+			changes.run();
+		} finally {
+			synchronized (this) {
+				this.transactionDepth--;
+				fire = this.transactionDepth == 0;
+			}
+		}
+		if (fire) {
+			firePendingFilterChanges();
+		}
+	}
+
+	private void firePendingFilterChanges() {
+		if (!SwingUtilities.isEventDispatchThread()) {
+			// the charts repaint from the listeners, so changes made by worker threads are reported later on the EDT
+			SwingUtilities.invokeLater(this::firePendingFilterChanges);
+			return;
+		}
+		BitSet changedColumns;
+		synchronized (this) {
+			if (this.transactionDepth > 0 || this.pendingFilterChanges.isEmpty()) {
+				// reported at the end of the transaction that is running now
+				return;
+			}
+			changedColumns = this.pendingFilterChanges;
+			this.pendingFilterChanges = new BitSet();
+		}
+		fireListeners(l -> l.onFiltersChanged(changedColumns));
+	}
+
 	public void fireOnDataChanged(boolean axisAutofitRequired, boolean axisResetFilterRequired, boolean axisApplyFiltersRequired, boolean parametersChanged) {
 		boolean[] autofit = new boolean[parameters.size()];
 		boolean[] resetFilter = new boolean[parameters.size()];
@@ -509,6 +1513,7 @@ public class DataSheet implements Serializable {
 	}
 
 	public void fireOnDataChanged(boolean[] axisAutofitRequired, boolean[] axisResetFilterRequired, boolean[] axisApplyFiltersRequired, boolean parametersChanged) {
-		fireListeners(l -> l.onDataChanged(axisAutofitRequired, axisResetFilterRequired, axisApplyFiltersRequired, parametersChanged));
+		// the Filters that the listeners reset or apply again are reported once, after all listeners
+		runTransaction(() -> fireListeners(l -> l.onDataChanged(axisAutofitRequired, axisResetFilterRequired, axisApplyFiltersRequired, parametersChanged)));
 	}
 }
\ No newline at end of file
@@ -19,8 +19,53 @@
  */
 package org.xdat.data;
 
+import java.util.BitSet;
+
 public interface DatasheetListener {
     void onClustersChanged();
     void onDataPanelUpdateRequired();
     void onDataChanged(boolean[] autoFitRequired, boolean[] filterResetRequired, boolean[] applyFiltersRequired, boolean parametersChanged);
+
+    /**
+     * Called when designs were appended to the data sheet, before
+     * {@link #onDataChanged(boolean[], boolean[], boolean[], boolean)}.
+     *
+     * @param firstRow the row of the first new design
+     */
+    default void onDesignsAppended(int firstRow) {
+    }
+
+    /**
+     * Called when the designs were read again from a file, designs were
+     * removed or a design read from an incomplete last line was replaced,
+     * before {@link #onDataChanged(boolean[], boolean[], boolean[], boolean)}.
+     * Designs whose values did not change are kept, but may have moved to
+     * other rows.
+     *
+     * @param previousVersion the data version before the designs were read again
+     * @param previousRows for each row, the previous row of its design or -1 if the design is new or its values changed
+     */
+    default void onDesignsUpdated(int previousVersion, int[] previousRows) {
+    }
+
+    /**
+     * Called when designs were selected or unselected, including when the
+     * rows of selected designs changed.
+     *
+     * @param changedRows the rows whose selection changed
+     */
+    default void onSelectionChanged(BitSet changedRows) {
+    }
+
+    /**
+     * Called when Filters were moved or applied again. The designs passing
+     * the Filters are evaluated when they are next requested. Changes made
+     * within {@link DataSheet#runTransaction(Runnable)} are reported once,
+     * when the transaction ends. This is always called on the event dispatch
+     * thread.
+     *
+     * @param changedColumns the indices of the parameters whose Filters changed
+     */
+    default void onFiltersChanged(BitSet changedColumns) {
+    }
 }
@@ -0,0 +1,174 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A parameter whose values are computed from other parameters by an
+ * {@link Expression}.
+ * <p>
+ * The computed values are kept in a column like the values of any other
+ * parameter, so charts, filters and the data table treat a derived parameter
+ * like all others. The values are computed lazily, when the column is
+ * accessed for the first time after a column of a source has changed. If
+ * values were only appended to the sources since then, only the new rows
+ * are computed.
+ * <p>
+ * The values are always numeric. Derived parameters can refer to other
+ * derived parameters, but not to themselves, as only existing parameters can
+ * be referred to.
+ */
+class DerivedParameter extends Parameter {
+	static final long serialVersionUID = 1L;
+	private final DataSheet dataSheet;
+	private final Expression expression;
+	@Nullable
+	private transient volatile Evaluation evaluation;
+
+	DerivedParameter(String name, Expression expression, DataSheet dataSheet) {
+		super(name, dataSheet);
+		this.dataSheet = dataSheet;
+		this.expression = expression;
+	}
+
+	Expression getExpression() {
+		return this.expression;
+	}
+
+	@Override
+	public boolean isDerived() {
+		return true;
+	}
+
+	/**
+	 * @param parameter another parameter
+	 * @return true if the values of this parameter are computed from the given parameter, directly or through other derived parameters
+	 */
+	boolean dependsOn(Parameter parameter) {
+		for (Parameter source : this.expression.getSources()) {
+			if (source == parameter || source instanceof DerivedParameter && ((DerivedParameter) source).dependsOn(parameter)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	Column getColumn() {
+		Evaluation evaluation = this.evaluation;
+		if (evaluation == null || !evaluation.isUpToDate(this.expression.getSources(), this.dataSheet)) {
+			evaluate();
+		}
+		return super.getColumn();
+	}
+
+	/**
+	 * Converts the computed values to another encoding. Unlike for other
+	 * parameters, precision is regained immediately, as the values are
+	 * computed again.
+	 */
+	@Override
+	void setChosenEncoding(@Nullable ValueEncoding encoding) {
+		super.setChosenEncoding(encoding);
+		this.evaluation = null;
+	}
+
+	private synchronized void evaluate() {
+		Column column = super.getColumn();
+		Evaluation previous = this.evaluation;
+		if (previous != null && previous.isUpToDate(this.expression.getSources(), this.dataSheet)) {
+			return;
+		}
+		Evaluation current = new Evaluation(this.expression.getSources(), this.dataSheet);
+		int rowCount = current.rowCount;
+		int firstRow = previous != null && current.isAppendOnlySince(previous) && column.size() <= rowCount ? column.size() : 0;
+		double[] values = new double[rowCount - firstRow];
+		BitSet missing = this.expression.evaluate(current.columns, firstRow, values);
+
+		Column target = column;
+		if (firstRow == 0) {
+			target = this.dataSheet.createColumn();
+			if (getChosenEncoding() != null) {
+				// compute at full precision and convert once when the column is set, instead of rounding or requantizing for each row
+				target.setEncoding(ValueEncoding.DOUBLE);
+			}
+		}
+		for (int i = 0; i < values.length; i++) {
+			if (missing.get(i)) {
+				target.setMissing(firstRow + i);
+			} else {
+				target.setNumber(firstRow + i, values[i]);
+			}
+		}
+		if (target != column) {
+			setColumn(target);
+			column.close();
+		}
+		this.evaluation = current;
+	}
+
+	/**
+	 * The columns of the sources and their versions at the time the values
+	 * were computed, and the number of rows computed.
+	 */
+	private static class Evaluation {
+		private final Column[] columns;
+		private final int[] versions;
+		private final int rowCount;
+
+		private Evaluation(List<Parameter> sources, DataSheet dataSheet) {
+			this.columns = new Column[sources.size()];
+			this.versions = new int[sources.size()];
+			int rowCount = sources.isEmpty() ? dataSheet.getDesignCount() : Integer.MAX_VALUE;
+			for (int i = 0; i < this.columns.length; i++) {
+				this.columns[i] = sources.get(i).getColumn();
+				this.versions[i] = this.columns[i].getVersion();
+				rowCount = Math.min(rowCount, this.columns[i].size());
+			}
+			this.rowCount = rowCount;
+		}
+
+		private boolean isUpToDate(List<Parameter> sources, DataSheet dataSheet) {
+			for (int i = 0; i < this.columns.length; i++) {
+				// the columns are replaced when the data is read again, and derived sources are brought up to date here
+				Column column = sources.get(i).getColumn();
+				if (column != this.columns[i] || column.getVersion() != this.versions[i]) {
+					return false;
+				}
+			}
+			// without sources, the number of designs is all that counts
+			return this.columns.length > 0 || this.rowCount == dataSheet.getDesignCount();
+		}
+
+		private boolean isAppendOnlySince(Evaluation previous) {
+			for (int i = 0; i < this.columns.length; i++) {
+				if (this.columns[i] != previous.columns[i] || !this.columns[i].isAppendOnlySince(previous.versions[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
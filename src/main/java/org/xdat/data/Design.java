@@ -20,181 +20,82 @@
 
 package org.xdat.data;
 
-import org.jetbrains.annotations.Nullable;
-import org.xdat.chart.Axis;
-import org.xdat.chart.Filter;
-import org.xdat.chart.ParallelCoordinatesChart;
-
-import java.awt.Color;
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
 
 public class Design implements Serializable {
 
-	static final long serialVersionUID = 4L;
-	private final Map<Parameter, String> stringParameterValues = new HashMap<>(0, 1);
-	private final Map<Parameter, Float> numericalParameterValues = new HashMap<>(0, 1);
+	static final long serialVersionUID = 10L;
 	private final int id;
-	@Nullable
-	private Cluster cluster = null;
-	private final Map<Filter, Boolean> activationMap = new HashMap<>();
-	private boolean insideBounds;
-	private boolean selected = false;
-	private Color gradientColor = null;
-	public Design(int id) {
+	private int row;
+	/**
+	 * Creates a view on one row of the columns of a {@link DataSheet}.
+	 * <p>
+	 * The values of a design are not stored in the design itself, but in the
+	 * columns of its parameters.
+	 *
+	 * @param id the id of the design
+	 * @param row the row of the design in the data sheet
+	 */
+	public Design(int id, int row) {
 		this.id = id;
+		this.row = row;
 	}
 
 	public void setValue(Parameter param, String parameterValue, DataSheet dataSheet) {
-		Optional<Float> parsed = NumberParser.parseNumber(parameterValue);
-		if (parsed.isPresent()) {
-			this.numericalParameterValues.put(param, parsed.get());
-			this.stringParameterValues.remove(param);
-		} else {
+		boolean numeric = param.getColumn().set(this.row, parameterValue);
+		if (!numeric) {
 			param.setNumeric(false, dataSheet);
-			this.stringParameterValues.put(param, parameterValue);
-			this.numericalParameterValues.remove(param);
 		}
 	}
 
 	public double getDoubleValue(Parameter param) {
-		if (stringParameterValues.containsKey(param)) {
-			return param.getDoubleValueOf(stringParameterValues.get(param));
-		} else if (numericalParameterValues.containsKey(param) && param.isNumeric()) {
-			return (numericalParameterValues.get(param));
-		} else if (numericalParameterValues.containsKey(param)) {
-			return param.getDoubleValueOf(Float.toString(numericalParameterValues.get(param)));
-		} else {
-			throw new IllegalArgumentException("Unknown parameter " + param.getName());
-		}
-	}
-
-	public String getStringValue(Parameter param) {
-		if (stringParameterValues.containsKey(param)) {
-			return (stringParameterValues.get(param));
-		} else if (numericalParameterValues.containsKey(param)) {
-			return Float.toString(numericalParameterValues.get(param));
+		Column column = param.getColumn();
+		checkParameter(param, column);
+		if (!param.isNumeric()) {
+			return column.getLevelRank(this.row);
+		} else if (column.isText(this.row)) {
+			return param.getDoubleValueOf(column.getText(this.row));
 		} else {
-			throw new IllegalArgumentException("Unknown parameter " + param.getName());
+			return column.getNumber(this.row);
 		}
 	}
 
-	public boolean isActive(ParallelCoordinatesChart chart) {
-		for (int i = 0; i < chart.getAxisCount(); i++) {
-			Filter uf = chart.getAxis(i).getUpperFilter();
-			Filter lf = chart.getAxis(i).getLowerFilter();
-			if (!this.activationMap.containsKey(uf)) {
-				this.activationMap.put(uf, true);
-			}
-			if (!this.activationMap.containsKey(lf)) {
-				this.activationMap.put(lf, true);
-			}
-			if (chart.getAxis(i).isFilterInverted()) {
-				if (!(this.activationMap.get(uf) || this.activationMap.get(lf)))
-					return false;
-			} else {
-				if (!this.activationMap.get(uf))
-					return false;
-				if (!this.activationMap.get(lf))
-					return false;
-			}
-		}
-		return true;
+	/**
+	 * Tells whether the value of a numeric parameter is missing, in which
+	 * case {@link #getDoubleValue(Parameter)} returns NaN. Missing values of
+	 * non-numeric parameters are a discrete level like any other value and
+	 * are therefore not reported here.
+	 *
+	 * @param param the parameter
+	 * @return true if the parameter is numeric and its value is missing for this design
+	 */
+	public boolean isMissing(Parameter param) {
+		Column column = param.getColumn();
+		checkParameter(param, column);
+		return param.isNumeric() && column.isMissing(this.row);
 	}
 
-	public void setActive(Filter filter, boolean active) {
-		this.activationMap.put(filter, active);
+	public String getStringValue(Parameter param) {
+		Column column = param.getColumn();
+		checkParameter(param, column);
+		return column.getString(this.row);
 	}
 
-	public void evaluateBounds(ParallelCoordinatesChart chart) {
-		this.insideBounds = true;
-		for (int i = 0; i < chart.getAxisCount(); i++) {
-			if (!isInsideBounds(chart.getAxis(i))) {
-				this.insideBounds = false;
-				return;
-			}
+	private void checkParameter(Parameter param, Column column) {
+		if (this.row >= column.size()) {
+			throw new IllegalArgumentException("Unknown parameter " + param.getName());
 		}
 	}
 
-	private boolean isInsideBounds(Axis axis) {
-		double value = this.getDoubleValue(axis.getParameter());
-		double max = axis.getMax();
-		double min = axis.getMin();
-		return min <= value && value <= max;
+	public int getRow() {
+		return this.row;
 	}
 
-	public boolean isInsideBounds(ParallelCoordinatesChart chart) {
-		return this.insideBounds;
-	}
-
-	public boolean isSelected() {
-		return this.selected;
-	}
-
-	public void setSelected(boolean selected) {
-		this.selected = selected;
+	void setRow(int row) {
+		this.row = row;
 	}
 
 	public int getId() {
 		return id;
 	}
-
-	@Nullable
-	public Cluster getCluster() {
-		return cluster;
-	}
-
-	public void setCluster(@Nullable Cluster cluster) {
-		this.cluster = cluster;
-	}
-
-	public Color getGradientColor() {
-		return gradientColor;
-	}
-
-	public void setAxisGradientColor(Color gradientColor) {
-		this.gradientColor = gradientColor;
-	}
-	
-	public void removeAxisGradientColor() {
-		this.gradientColor = null;
-	}
-
-	public boolean hasGradientColor() {
-		return (this.gradientColor != null);
-	}
-
-	public int computeValuesHash(List<Parameter> parameters) {
-		return Objects.hash(parameters.stream()
-				.map(p -> new ParameterValue(p, getStringValue(p)))
-				.toArray());
-	}
-
-	private static class ParameterValue {
-		private final Parameter parameter;
-		private final String value;
-
-		private ParameterValue(Parameter parameter, String value) {
-			this.parameter = parameter;
-			this.value = value;
-		}
-
-		@Override
-		public boolean equals(Object o) {
-			if (this == o) return true;
-			if (o == null || getClass() != o.getClass()) return false;
-			ParameterValue that = (ParameterValue) o;
-			return Objects.equals(parameter, that.parameter) &&
-					Objects.equals(value, that.value);
-		}
-
-		@Override
-		public int hashCode() {
-			return Objects.hash(parameter, value);
-		}
-	}
 }
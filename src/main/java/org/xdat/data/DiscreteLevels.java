@@ -0,0 +1,180 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary of the discrete levels of a non-numeric {@link Parameter}.
+ * <p>
+ * Each level gets a stable integer code when it is first added. Levels are
+ * compared ignoring case, so values that only differ in case share a level.
+ * The code of a level does not change when other levels are added or
+ * removed, but its rank does: ranks number the levels in reverse
+ * alphabetical order and are what the charts use as numeric representation
+ * of a discrete value. The rank mapping is rebuilt lazily, only after the set
+ * of levels has changed.
+ * <p>
+ * The number of designs using each level is counted, so that a level
+ * disappears when the last design using it is changed or removed.
+ */
+class DiscreteLevels implements Serializable {
+	static final long serialVersionUID = 1L;
+	private static final Comparator<String> ORDER = new ReverseStringComparator();
+	private final List<String> names = new ArrayList<>();
+	private final Map<String, Integer> codesByKey = new HashMap<>();
+	private int[] counts = new int[16];
+	private int size;
+	private int[] rankOfCode = new int[0];
+	private int[] codeOfRank = new int[0];
+	private boolean ranksValid = true;
+
+	/**
+	 * Adds one occurrence of a value.
+	 *
+	 * @param value the value
+	 * @return the code of the level of the value
+	 */
+	int add(String value) {
+		String key = toKey(value);
+		Integer code = this.codesByKey.get(key);
+		if (code == null) {
+			code = this.names.size();
+			this.names.add(value);
+			this.codesByKey.put(key, code);
+			if (code >= this.counts.length) {
+				this.counts = Arrays.copyOf(this.counts, Math.max(code + 1, this.counts.length * 2));
+			}
+			this.size++;
+			this.ranksValid = false;
+		}
+		this.counts[code]++;
+		return code;
+	}
+
+	/**
+	 * Removes one occurrence of the level with the given code.
+	 *
+	 * @param code the code returned when the value was added
+	 */
+	void remove(int code) {
+		if (--this.counts[code] == 0) {
+			this.codesByKey.remove(toKey(this.names.get(code)));
+			this.names.set(code, null);
+			this.size--;
+			this.ranksValid = false;
+		}
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * @param other another dictionary
+	 * @return true if both dictionaries contain the same levels, ignoring case
+	 */
+	boolean hasSameLevels(DiscreteLevels other) {
+		return this.codesByKey.keySet().equals(other.codesByKey.keySet());
+	}
+
+	int getRank(int code) {
+		return getRankOfCode()[code];
+	}
+
+	/**
+	 * @param value the value to look up
+	 * @return the rank of the level of the value or -1 if there is no such level
+	 */
+	int getRank(String value) {
+		Integer code = this.codesByKey.get(toKey(value));
+		return code == null ? -1 : getRank(code);
+	}
+
+	String getName(int rank) {
+		validateRanks();
+		return this.names.get(this.codeOfRank[rank]);
+	}
+
+	private int[] getRankOfCode() {
+		validateRanks();
+		return this.rankOfCode;
+	}
+
+	void validateRanks() {
+		if (this.ranksValid) {
+			return;
+		}
+		Integer[] codes = new Integer[this.size];
+		int index = 0;
+		for (int code = 0; code < this.names.size(); code++) {
+			if (this.names.get(code) != null) {
+				codes[index++] = code;
+			}
+		}
+		Arrays.sort(codes, (c1, c2) -> ORDER.compare(this.names.get(c1), this.names.get(c2)));
+		int[] newRankOfCode = new int[this.names.size()];
+		int[] newCodeOfRank = new int[codes.length];
+		for (int rank = 0; rank < codes.length; rank++) {
+			newRankOfCode[codes[rank]] = rank;
+			newCodeOfRank[rank] = codes[rank];
+		}
+		this.rankOfCode = newRankOfCode;
+		this.codeOfRank = newCodeOfRank;
+		this.ranksValid = true;
+	}
+
+	/**
+	 * Builds the key under which a value is looked up, so that values
+	 * compare equal exactly when {@link String#compareToIgnoreCase} considers
+	 * them equal.
+	 */
+	private static String toKey(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (fold(c) != c) {
+				char[] chars = value.toCharArray();
+				for (int j = i; j < chars.length; j++) {
+					chars[j] = fold(chars[j]);
+				}
+				return new String(chars);
+			}
+		}
+		return value;
+	}
+
+	private static char fold(char c) {
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+	private static class ReverseStringComparator implements Comparator<String>, Serializable {
+		static final long serialVersionUID = 0L;
+		public int compare(String s1, String s2) {
+			return (s2.compareToIgnoreCase(s1));
+		}
+	}
+}
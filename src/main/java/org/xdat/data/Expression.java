@@ -0,0 +1,585 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import org.xdat.exceptions.InvalidExpressionException;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * An arithmetic expression over the values of other parameters, which
+ * defines the values of a {@link DerivedParameter}.
+ * <p>
+ * The expression is compiled once into a tree of nodes that refer to the
+ * source parameters directly, so it is not affected by parameters being
+ * renamed. The tree is evaluated a column at a time rather than per design:
+ * the rows are split into chunks, and each node computes its values for a
+ * whole chunk in a single loop over arrays, the leaves reading the source
+ * columns in bulk. The chunks are evaluated in parallel.
+ * <p>
+ * Expressions consist of numbers, the operators {@code + - * / % ^},
+ * parentheses, the constants {@code pi} and {@code e}, calls of the
+ * functions in {@link Function} and references to parameters. A parameter
+ * is referenced by its name, which has to be put in double quotes unless it
+ * only consists of letters, digits and underscores and does not start with
+ * a digit. The value of a parameter is its numeric representation, as
+ * returned by {@link Design#getDoubleValue(Parameter)}. Where a value of a
+ * source is missing, the result is missing as well.
+ */
+class Expression implements Serializable {
+	static final long serialVersionUID = 1L;
+	private static final int CHUNK_SIZE = 4096;
+	private final String text;
+	private final Node root;
+	private final List<Parameter> sources;
+
+	private Expression(String text, Node root, List<Parameter> sources) {
+		this.text = text;
+		this.root = root;
+		this.sources = sources;
+	}
+
+	/**
+	 * @param text the expression
+	 * @param parameters the parameters that the expression may refer to
+	 * @return the compiled expression
+	 * @throws InvalidExpressionException if the expression cannot be parsed or refers to unknown parameters or functions
+	 */
+	static Expression compile(String text, List<Parameter> parameters) throws InvalidExpressionException {
+		return new Parser(text, parameters).parse();
+	}
+
+	String getText() {
+		return this.text;
+	}
+
+	/**
+	 * @return the distinct parameters that the expression refers to
+	 */
+	List<Parameter> getSources() {
+		return Collections.unmodifiableList(this.sources);
+	}
+
+	/**
+	 * Evaluates the expression for consecutive rows.
+	 *
+	 * @param columns the columns of the sources, in the order of {@link #getSources()}
+	 * @param firstRow the first row to evaluate
+	 * @param target the array to write the results to, one per row starting with the first row
+	 * @return the rows for which the result is missing, relative to the first row
+	 */
+	BitSet evaluate(Column[] columns, int firstRow, double[] target) {
+		for (Column column : columns) {
+			column.prepareConcurrentReads();
+		}
+		int chunkCount = (target.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		BitSet[] missingInChunks = new BitSet[chunkCount];
+		IntStream.range(0, chunkCount).parallel().forEach(index -> {
+			int offset = index * CHUNK_SIZE;
+			Chunk chunk = new Chunk(columns, firstRow + offset, Math.min(CHUNK_SIZE, target.length - offset));
+			double[] values = chunk.borrow();
+			this.root.evaluate(chunk, values);
+			System.arraycopy(values, 0, target, offset, chunk.length);
+			missingInChunks[index] = chunk.missing;
+		});
+		BitSet missing = new BitSet();
+		for (int index = 0; index < chunkCount; index++) {
+			BitSet missingInChunk = missingInChunks[index];
+			for (int row = missingInChunk.nextSetBit(0); row >= 0; row = missingInChunk.nextSetBit(row + 1)) {
+				missing.set(index * CHUNK_SIZE + row);
+			}
+		}
+		return missing;
+	}
+
+	@Override
+	public String toString() {
+		return this.text;
+	}
+
+	/**
+	 * The rows evaluated by one task, with the arrays for the intermediate
+	 * results of the nodes.
+	 */
+	private static class Chunk {
+		private final Column[] columns;
+		private final int firstRow;
+		private final int length;
+		private final BitSet missing = new BitSet();
+		private final Deque<double[]> buffers = new ArrayDeque<>();
+
+		private Chunk(Column[] columns, int firstRow, int length) {
+			this.columns = columns;
+			this.firstRow = firstRow;
+			this.length = length;
+		}
+
+		private double[] borrow() {
+			double[] buffer = this.buffers.poll();
+			return buffer == null ? new double[this.length] : buffer;
+		}
+
+		private void release(double[] buffer) {
+			this.buffers.push(buffer);
+		}
+	}
+
+	private abstract static class Node implements Serializable {
+		static final long serialVersionUID = 1L;
+
+		/**
+		 * Computes the values of this node for all rows of a chunk.
+		 *
+		 * @param chunk the chunk
+		 * @param target the array to write the values to, starting at index zero
+		 */
+		abstract void evaluate(Chunk chunk, double[] target);
+	}
+
+	private static class Constant extends Node {
+		static final long serialVersionUID = 1L;
+		private final double value;
+
+		private Constant(double value) {
+			this.value = value;
+		}
+
+		@Override
+		void evaluate(Chunk chunk, double[] target) {
+			for (int i = 0; i < chunk.length; i++) {
+				target[i] = this.value;
+			}
+		}
+	}
+
+	private static class Reference extends Node {
+		static final long serialVersionUID = 1L;
+		private final int source;
+
+		private Reference(int source) {
+			this.source = source;
+		}
+
+		@Override
+		void evaluate(Chunk chunk, double[] target) {
+			chunk.columns[this.source].readValues(chunk.firstRow, chunk.length, target, chunk.missing);
+		}
+	}
+
+	private static class Negation extends Node {
+		static final long serialVersionUID = 1L;
+		private final Node operand;
+
+		private Negation(Node operand) {
+			this.operand = operand;
+		}
+
+		@Override
+		void evaluate(Chunk chunk, double[] target) {
+			this.operand.evaluate(chunk, target);
+			for (int i = 0; i < chunk.length; i++) {
+				target[i] = -target[i];
+			}
+		}
+	}
+
+	private static class Operation extends Node {
+		static final long serialVersionUID = 1L;
+		private final char operator;
+		private final Node left;
+		private final Node right;
+
+		private Operation(char operator, Node left, Node right) {
+			this.operator = operator;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		void evaluate(Chunk chunk, double[] target) {
+			this.left.evaluate(chunk, target);
+			double[] operands = chunk.borrow();
+			this.right.evaluate(chunk, operands);
+			int length = chunk.length;
+			// one loop per operator, so that each loop body is a single arithmetic instruction
+			switch (this.operator) {
+				case '+':
+					for (int i = 0; i < length; i++) {
+						target[i] += operands[i];
+					}
+					break;
+				case '-':
+					for (int i = 0; i < length; i++) {
+						target[i] -= operands[i];
+					}
+					break;
+				case '*':
+					for (int i = 0; i < length; i++) {
+						target[i] *= operands[i];
+					}
+					break;
+				case '/':
+					for (int i = 0; i < length; i++) {
+						target[i] /= operands[i];
+					}
+					break;
+				case '%':
+					for (int i = 0; i < length; i++) {
+						target[i] %= operands[i];
+					}
+					break;
+				default:
+					for (int i = 0; i < length; i++) {
+						target[i] = Math.pow(target[i], operands[i]);
+					}
+			}
+			chunk.release(operands);
+		}
+	}
+
+	private static class Call extends Node {
+		static final long serialVersionUID = 1L;
+		private final Function function;
+		private final Node[] arguments;
+
+		private Call(Function function, Node[] arguments) {
+			this.function = function;
+			this.arguments = arguments;
+		}
+
+		@Override
+		void evaluate(Chunk chunk, double[] target) {
+			this.arguments[0].evaluate(chunk, target);
+			int length = chunk.length;
+			if (this.arguments.length == 1) {
+				DoubleUnaryOperator operator = this.function.getUnaryOperator();
+				for (int i = 0; i < length; i++) {
+					target[i] = operator.applyAsDouble(target[i]);
+				}
+				return;
+			}
+			DoubleBinaryOperator operator = this.function.getBinaryOperator();
+			double[] operands = chunk.borrow();
+			for (int argument = 1; argument < this.arguments.length; argument++) {
+				this.arguments[argument].evaluate(chunk, operands);
+				for (int i = 0; i < length; i++) {
+					target[i] = operator.applyAsDouble(target[i], operands[i]);
+				}
+			}
+			chunk.release(operands);
+		}
+	}
+
+	/**
+	 * The functions that can be called in an expression. Functions of one
+	 * argument take a unary operator, functions of two or more arguments
+	 * apply a binary operator from left to right.
+	 */
+	enum Function {
+		ABS(1, Math::abs, null),
+		SQRT(1, Math::sqrt, null),
+		CBRT(1, Math::cbrt, null),
+		EXP(1, Math::exp, null),
+		LOG(1, Math::log, null),
+		LOG10(1, Math::log10, null),
+		SIN(1, Math::sin, null),
+		COS(1, Math::cos, null),
+		TAN(1, Math::tan, null),
+		ASIN(1, Math::asin, null),
+		ACOS(1, Math::acos, null),
+		ATAN(1, Math::atan, null),
+		SINH(1, Math::sinh, null),
+		COSH(1, Math::cosh, null),
+		TANH(1, Math::tanh, null),
+		FLOOR(1, Math::floor, null),
+		CEIL(1, Math::ceil, null),
+		ROUND(1, Math::rint, null),
+		SIGNUM(1, Math::signum, null),
+		POW(2, null, Math::pow),
+		ATAN2(2, null, Math::atan2),
+		HYPOT(2, null, Math::hypot),
+		MIN(-1, null, Math::min),
+		MAX(-1, null, Math::max);
+
+		private final int argumentCount;
+		private final DoubleUnaryOperator unaryOperator;
+		private final DoubleBinaryOperator binaryOperator;
+
+		Function(int argumentCount, DoubleUnaryOperator unaryOperator, DoubleBinaryOperator binaryOperator) {
+			this.argumentCount = argumentCount;
+			this.unaryOperator = unaryOperator;
+			this.binaryOperator = binaryOperator;
+		}
+
+		/**
+		 * @return the name of the function in expressions
+		 */
+		String getName() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+
+		/**
+		 * @param count a number of arguments
+		 * @return true if the function can be called with that many arguments
+		 */
+		boolean accepts(int count) {
+			return this.argumentCount < 0 ? count >= 1 : count == this.argumentCount;
+		}
+
+		private DoubleUnaryOperator getUnaryOperator() {
+			// functions of any number of arguments return their only argument
+			return this.unaryOperator == null ? DoubleUnaryOperator.identity() : this.unaryOperator;
+		}
+
+		private DoubleBinaryOperator getBinaryOperator() {
+			return this.binaryOperator;
+		}
+	}
+
+	/**
+	 * Recursive descent parser for expressions, with the usual precedence:
+	 * {@code ^} binds strongest and is right associative, then come the signs,
+	 * then {@code * / %} and finally {@code + -}.
+	 */
+	private static class Parser {
+		private final String text;
+		private final List<Parameter> parameters;
+		private final List<Parameter> sources = new ArrayList<>();
+		private int position;
+
+		private Parser(String text, List<Parameter> parameters) {
+			this.text = text;
+			this.parameters = parameters;
+		}
+
+		private Expression parse() throws InvalidExpressionException {
+			Node root = parseSum();
+			skipWhitespace();
+			if (this.position < this.text.length()) {
+				throw error("unexpected '" + this.text.charAt(this.position) + "' at position " + (this.position + 1));
+			}
+			return new Expression(this.text, root, this.sources);
+		}
+
+		private Node parseSum() throws InvalidExpressionException {
+			Node node = parseProduct();
+			while (true) {
+				char operator = peek();
+				if (operator != '+' && operator != '-') {
+					return node;
+				}
+				this.position++;
+				node = new Operation(operator, node, parseProduct());
+			}
+		}
+
+		private Node parseProduct() throws InvalidExpressionException {
+			Node node = parseSign();
+			while (true) {
+				char operator = peek();
+				if (operator != '*' && operator != '/' && operator != '%') {
+					return node;
+				}
+				this.position++;
+				node = new Operation(operator, node, parseSign());
+			}
+		}
+
+		private Node parseSign() throws InvalidExpressionException {
+			char sign = peek();
+			if (sign == '-') {
+				this.position++;
+				return new Negation(parseSign());
+			} else if (sign == '+') {
+				this.position++;
+				return parseSign();
+			}
+			return parsePower();
+		}
+
+		private Node parsePower() throws InvalidExpressionException {
+			Node base = parsePrimary();
+			if (peek() != '^') {
+				return base;
+			}
+			this.position++;
+			return new Operation('^', base, parseSign());
+		}
+
+		private Node parsePrimary() throws InvalidExpressionException {
+			char c = peek();
+			int start = this.position;
+			if (c == '(') {
+				this.position++;
+				Node node = parseSum();
+				expect(')');
+				return node;
+			} else if (c == '"') {
+				int end = this.text.indexOf('"', start + 1);
+				if (end < 0) {
+					throw error("missing closing quote for the name at position " + (start + 1));
+				}
+				this.position = end + 1;
+				return reference(this.text.substring(start + 1, end));
+			} else if (Character.isDigit(c) || c == '.') {
+				return new Constant(parseNumber());
+			} else if (isNameStart(c)) {
+				while (this.position < this.text.length() && isNamePart(this.text.charAt(this.position))) {
+					this.position++;
+				}
+				String name = this.text.substring(start, this.position);
+				if (peek() == '(') {
+					return call(name);
+				}
+				return nameOrConstant(name);
+			} else if (c == 0) {
+				throw error("unexpected end");
+			} else {
+				throw error("unexpected '" + c + "' at position " + (start + 1));
+			}
+		}
+
+		private double parseNumber() throws InvalidExpressionException {
+			int start = this.position;
+			while (this.position < this.text.length() && (Character.isDigit(this.text.charAt(this.position)) || this.text.charAt(this.position) == '.')) {
+				this.position++;
+			}
+			if (this.position < this.text.length() && Character.toLowerCase(this.text.charAt(this.position)) == 'e') {
+				int exponent = this.position + 1;
+				if (exponent < this.text.length() && (this.text.charAt(exponent) == '+' || this.text.charAt(exponent) == '-')) {
+					exponent++;
+				}
+				if (exponent < this.text.length() && Character.isDigit(this.text.charAt(exponent))) {
+					this.position = exponent;
+					while (this.position < this.text.length() && Character.isDigit(this.text.charAt(this.position))) {
+						this.position++;
+					}
+				}
+			}
+			String number = this.text.substring(start, this.position);
+			try {
+				return Double.parseDouble(number);
+			} catch (NumberFormatException e) {
+				throw error("invalid number " + number + " at position " + (start + 1));
+			}
+		}
+
+		private Node call(String name) throws InvalidExpressionException {
+			Function function = null;
+			for (Function candidate : Function.values()) {
+				if (candidate.getName().equals(name)) {
+					function = candidate;
+				}
+			}
+			if (function == null) {
+				throw error("unknown function " + name);
+			}
+			expect('(');
+			List<Node> arguments = new ArrayList<>();
+			if (peek() != ')') {
+				arguments.add(parseSum());
+				while (peek() == ',') {
+					this.position++;
+					arguments.add(parseSum());
+				}
+			}
+			expect(')');
+			if (!function.accepts(arguments.size())) {
+				throw error("function " + name + " cannot take " + arguments.size() + " arguments");
+			}
+			return new Call(function, arguments.toArray(new Node[0]));
+		}
+
+		private Node nameOrConstant(String name) throws InvalidExpressionException {
+			// parameters take precedence over constants of the same name
+			for (Parameter parameter : this.parameters) {
+				if (parameter.getName().equals(name)) {
+					return reference(name);
+				}
+			}
+			if (name.equals("pi")) {
+				return new Constant(Math.PI);
+			} else if (name.equals("e")) {
+				return new Constant(Math.E);
+			}
+			return reference(name);
+		}
+
+		private Node reference(String name) throws InvalidExpressionException {
+			for (Parameter parameter : this.parameters) {
+				if (parameter.getName().equals(name)) {
+					int source = this.sources.indexOf(parameter);
+					if (source < 0) {
+						source = this.sources.size();
+						this.sources.add(parameter);
+					}
+					return new Reference(source);
+				}
+			}
+			throw error("unknown parameter " + name);
+		}
+
+		private void expect(char expected) throws InvalidExpressionException {
+			if (peek() != expected) {
+				throw error("'" + expected + "' expected at position " + (this.position + 1));
+			}
+			this.position++;
+		}
+
+		/**
+		 * Skips whitespace and returns the next character without consuming it.
+		 *
+		 * @return the next character or zero at the end of the expression
+		 */
+		private char peek() {
+			skipWhitespace();
+			return this.position < this.text.length() ? this.text.charAt(this.position) : 0;
+		}
+
+		private void skipWhitespace() {
+			while (this.position < this.text.length() && Character.isWhitespace(this.text.charAt(this.position))) {
+				this.position++;
+			}
+		}
+
+		private static boolean isNameStart(char c) {
+			return Character.isLetter(c) || c == '_';
+		}
+
+		private static boolean isNamePart(char c) {
+			return Character.isLetterOrDigit(c) || c == '_';
+		}
+
+		private InvalidExpressionException error(String reason) {
+			return new InvalidExpressionException(this.text, reason);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.Color;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+/**
+ * The colors with which the designs of a {@link DataSheet} are marked
+ * according to their values of a parameter.
+ * <p>
+ * Each row has the index of its color in the lookup table of a
+ * {@link Colormap}, or one of two special indices for rows that are not
+ * marked and for rows whose value is the only one in the range of the
+ * gradient. The indices are computed in parallel, one chunk of rows per
+ * task.
+ * <p>
+ * Rows beyond the end of the index column are not marked, so appended
+ * designs need no update.
+ */
+class GradientColoring implements Serializable {
+	static final long serialVersionUID = 1L;
+	private static final int CHUNK_SIZE = 4096;
+	private static final short NO_COLOR = -1;
+	private static final short CONSTANT_COLOR = Colormap.SIZE;
+	private static final Color COLOR_OF_CONSTANT = new Color(0, 0, 255, 150);
+	private Colormap colormap = Colormap.BLUE_YELLOW_RED;
+	private short[] indices = new short[0];
+
+	/**
+	 * @param row the row of a design
+	 * @return the color with which the design is marked or null if it is not marked
+	 */
+	@Nullable
+	Color getColor(int row) {
+		int index = row < this.indices.length ? this.indices[row] : NO_COLOR;
+		if (index == NO_COLOR) {
+			return null;
+		}
+		return index == CONSTANT_COLOR ? COLOR_OF_CONSTANT : this.colormap.getColor(index);
+	}
+
+	/**
+	 * Marks all designs with a value in a range with the color of their
+	 * value, and removes the marks of all others.
+	 *
+	 * @param column the column of the parameter
+	 * @param rowCount the number of rows
+	 * @param min the value with the first color of the gradient
+	 * @param max the value with the last color of the gradient
+	 * @param inverted true if min has the last color and max the first
+	 * @param colormap the gradient
+	 */
+	void apply(Column column, int rowCount, double min, double max, boolean inverted, Colormap colormap) {
+		double range = max - min;
+		short[] newIndices = new short[rowCount];
+		column.prepareConcurrentReads();
+		int chunkCount = (rowCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+			int firstRow = chunk * CHUNK_SIZE;
+			int length = Math.min(CHUNK_SIZE, rowCount - firstRow);
+			double[] values = new double[length];
+			BitSet missing = new BitSet();
+			column.readValues(firstRow, length, values, missing);
+			for (int i = 0; i < length; i++) {
+				short index;
+				if (missing.get(i)) {
+					index = NO_COLOR;
+				} else if (range == 0) {
+					index = CONSTANT_COLOR;
+				} else {
+					double ratio = inverted ? (max - values[i]) / range : (values[i] - min) / range;
+					// also rejects NaN
+					index = ratio >= 0 && ratio <= 1 ? (short) colormap.getIndex(ratio) : NO_COLOR;
+				}
+				newIndices[firstRow + i] = index;
+			}
+		});
+		this.colormap = colormap;
+		this.indices = newIndices;
+	}
+
+	/**
+	 * Removes the marks of all designs.
+	 */
+	void clear() {
+		this.indices = new short[0];
+	}
+
+	/**
+	 * Moves the color indices along with their designs, after designs were
+	 * removed or read again.
+	 *
+	 * @param previousRows for each row, the previous row of its design or -1 if the design is new
+	 */
+	void remapRows(int[] previousRows) {
+		if (this.indices.length == 0) {
+			return;
+		}
+		short[] newIndices = new short[previousRows.length];
+		Arrays.fill(newIndices, NO_COLOR);
+		for (int row = 0; row < previousRows.length; row++) {
+			int previousRow = previousRows[row];
+			if (previousRow >= 0 && previousRow < this.indices.length) {
+				newIndices[row] = this.indices[previousRow];
+			}
+		}
+		this.indices = newIndices;
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@link ValueStore} backed by a byte buffer on the heap.
+ */
+class HeapValueStore implements ValueStore {
+	private final int slotShift;
+	private ByteBuffer slots;
+
+	/**
+	 * @param capacity the number of slots
+	 * @param slotShift the base two logarithm of the width of a slot in bytes
+	 */
+	HeapValueStore(int capacity, int slotShift) {
+		this.slotShift = slotShift;
+		this.slots = allocate(capacity);
+	}
+
+	@Override
+	public byte getByte(int index) {
+		return this.slots.get(index);
+	}
+
+	@Override
+	public void setByte(int index, byte value) {
+		this.slots.put(index, value);
+	}
+
+	@Override
+	public short getShort(int index) {
+		return this.slots.getShort(index << 1);
+	}
+
+	@Override
+	public void setShort(int index, short value) {
+		this.slots.putShort(index << 1, value);
+	}
+
+	@Override
+	public int getInt(int index) {
+		return this.slots.getInt(index << 2);
+	}
+
+	@Override
+	public void setInt(int index, int value) {
+		this.slots.putInt(index << 2, value);
+	}
+
+	@Override
+	public long getLong(int index) {
+		return this.slots.getLong(index << 3);
+	}
+
+	@Override
+	public void setLong(int index, long value) {
+		this.slots.putLong(index << 3, value);
+	}
+
+	@Override
+	public int getSlotShift() {
+		return this.slotShift;
+	}
+
+	@Override
+	public int capacity() {
+		return this.slots.capacity() >> this.slotShift;
+	}
+
+	@Override
+	public void grow(int minCapacity) {
+		if (minCapacity > capacity()) {
+			ByteBuffer newSlots = allocate(minCapacity);
+			this.slots.clear();
+			newSlots.put(this.slots);
+			newSlots.clear();
+			this.slots = newSlots;
+		}
+	}
+
+	@Override
+	public void copy(int targetIndex, int sourceIndex) {
+		switch (this.slotShift) {
+			case 0:
+				setByte(targetIndex, getByte(sourceIndex));
+				break;
+			case 1:
+				setShort(targetIndex, getShort(sourceIndex));
+				break;
+			case 2:
+				setInt(targetIndex, getInt(sourceIndex));
+				break;
+			default:
+				setLong(targetIndex, getLong(sourceIndex));
+		}
+	}
+
+	@Override
+	public void close() {
+		this.slots = allocate(0);
+	}
+
+	private ByteBuffer allocate(int capacity) {
+		int byteCount = (int) Math.min(Integer.MAX_VALUE, (long) capacity << this.slotShift);
+		return ByteBuffer.allocate(byteCount).order(ByteOrder.nativeOrder());
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * {@link ValueStore} backed by a file in a {@link ScratchSpace} that is
+ * accessed through memory mapped segments.
+ * <p>
+ * The values live in the page cache of the operating system instead of the
+ * Java heap, so the size of a data sheet is only limited by the disk space
+ * of the scratch directory. The file is mapped in segments of fixed size,
+ * which keeps single mappings small and allows the store to grow without
+ * copying the values that are already written.
+ */
+class MappedValueStore implements ValueStore {
+	private static final int SEGMENT_SHIFT = 20;
+	private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+	private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+	private final ScratchSpace scratchSpace;
+	private final int slotShift;
+	private final File file;
+	private final FileChannel channel;
+	private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+	/**
+	 * @param scratchSpace the scratch space to create the file in
+	 * @param capacity the number of slots
+	 * @param slotShift the base two logarithm of the width of a slot in bytes
+	 */
+	MappedValueStore(ScratchSpace scratchSpace, int capacity, int slotShift) {
+		this.scratchSpace = scratchSpace;
+		this.slotShift = slotShift;
+		try {
+			this.file = scratchSpace.createFile();
+			this.channel = new RandomAccessFile(this.file, "rw").getChannel();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		scratchSpace.register(this);
+		grow(capacity);
+	}
+
+	@Override
+	public byte getByte(int index) {
+		return this.segments[index >>> SEGMENT_SHIFT].get(index & SEGMENT_MASK);
+	}
+
+	@Override
+	public void setByte(int index, byte value) {
+		this.segments[index >>> SEGMENT_SHIFT].put(index & SEGMENT_MASK, value);
+	}
+
+	@Override
+	public short getShort(int index) {
+		return this.segments[index >>> SEGMENT_SHIFT].getShort((index & SEGMENT_MASK) << 1);
+	}
+
+	@Override
+	public void setShort(int index, short value) {
+		this.segments[index >>> SEGMENT_SHIFT].putShort((index & SEGMENT_MASK) << 1, value);
+	}
+
+	@Override
+	public int getInt(int index) {
+		return this.segments[index >>> SEGMENT_SHIFT].getInt((index & SEGMENT_MASK) << 2);
+	}
+
+	@Override
+	public void setInt(int index, int value) {
+		this.segments[index >>> SEGMENT_SHIFT].putInt((index & SEGMENT_MASK) << 2, value);
+	}
+
+	@Override
+	public float getFloat(int index) {
+		return this.segments[index >>> SEGMENT_SHIFT].getFloat((index & SEGMENT_MASK) << 2);
+	}
+
+	@Override
+	public void setFloat(int index, float value) {
+		this.segments[index >>> SEGMENT_SHIFT].putFloat((index & SEGMENT_MASK) << 2, value);
+	}
+
+	@Override
+	public long getLong(int index) {
+		return this.segments[index >>> SEGMENT_SHIFT].getLong((index & SEGMENT_MASK) << 3);
+	}
+
+	@Override
+	public void setLong(int index, long value) {
+		this.segments[index >>> SEGMENT_SHIFT].putLong((index & SEGMENT_MASK) << 3, value);
+	}
+
+	@Override
+	public double getDouble(int index) {
+		return this.segments[index >>> SEGMENT_SHIFT].getDouble((index & SEGMENT_MASK) << 3);
+	}
+
+	@Override
+	public void setDouble(int index, double value) {
+		this.segments[index >>> SEGMENT_SHIFT].putDouble((index & SEGMENT_MASK) << 3, value);
+	}
+
+	@Override
+	public int getSlotShift() {
+		return this.slotShift;
+	}
+
+	@Override
+	public int capacity() {
+		return (int) Math.min(Integer.MAX_VALUE, (long) this.segments.length << SEGMENT_SHIFT);
+	}
+
+	@Override
+	public void grow(int minCapacity) {
+		int segmentCount = (int) (((long) minCapacity + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+		if (segmentCount <= this.segments.length) {
+			return;
+		}
+		MappedByteBuffer[] newSegments = Arrays.copyOf(this.segments, segmentCount);
+		long segmentBytes = (long) SEGMENT_SIZE << this.slotShift;
+		try {
+			for (int i = this.segments.length; i < segmentCount; i++) {
+				newSegments[i] = this.channel.map(FileChannel.MapMode.READ_WRITE, i * segmentBytes, segmentBytes);
+				newSegments[i].order(ByteOrder.nativeOrder());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.segments = newSegments;
+	}
+
+	@Override
+	public void copy(int targetIndex, int sourceIndex) {
+		switch (this.slotShift) {
+			case 0:
+				setByte(targetIndex, getByte(sourceIndex));
+				break;
+			case 1:
+				setShort(targetIndex, getShort(sourceIndex));
+				break;
+			case 2:
+				setInt(targetIndex, getInt(sourceIndex));
+				break;
+			default:
+				setLong(targetIndex, getLong(sourceIndex));
+		}
+	}
+
+	@Override
+	public void close() {
+		this.segments = new MappedByteBuffer[0];
+		try {
+			this.channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		this.scratchSpace.unregister(this);
+		if (!this.file.delete()) {
+			// mapped files cannot be deleted on some platforms before the mapping is garbage collected
+			this.file.deleteOnExit();
+		}
+	}
+}
@@ -17,32 +17,263 @@
  * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
  * 
  */
+
 package org.xdat.data;
 
 import org.xdat.UserPreferences;
 
+import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
 import java.text.ParsePosition;
-import java.util.Optional;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
-
+/**
+ * Parses the numbers of a data file.
+ * <p>
+ * The accepted inputs are those of {@link NumberFormat#getInstance(Locale)}
+ * for the locale of the parser, with the additional requirement that the
+ * whole text is parsed and that no two decimal or grouping symbols are less
+ * than three characters apart.
+ * <p>
+ * Plain numbers are parsed directly from the characters, without creating
+ * any objects. Inputs that are rare in data files, such as non-ASCII digits,
+ * the infinity symbol or more significant digits than a double can hold
+ * exactly, are handed to a NumberFormat so that their results stay exactly
+ * the same. Instances are immutable and can be shared between threads.
+ */
 public class NumberParser {
+	private static final Map<Locale, NumberParser> INSTANCES = new ConcurrentHashMap<>();
+	private static final Pattern WRONG_DOT_GROUPING = Pattern.compile(".*\\..{0,2}?\\..*");
+	private static final Pattern WRONG_COMMA_GROUPING = Pattern.compile(".*,.{0,2}?,.*");
+	private static final int MAX_LONG_DIGITS = 18;
+	private static final int MAX_EXACT_DIGITS = 15;
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	private static final long[] LONG_POWERS_OF_TEN = {
+			1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L,
+			1000000000L, 10000000000L, 100000000000L, 1000000000000L, 10000000000000L,
+			100000000000000L, 1000000000000000L, 10000000000000000L, 100000000000000000L,
+			1000000000000000000L
+	};
+	private final Locale locale;
+	private final char decimalSeparator;
+	private final char groupingSeparator;
+	private final char minusSign;
+	private final char exponentSeparator;
+	private final boolean asciiSymbols;
+	private final String nanSymbol;
+
+	private NumberParser(Locale locale) {
+		this.locale = locale;
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+		this.decimalSeparator = symbols.getDecimalSeparator();
+		this.groupingSeparator = symbols.getGroupingSeparator();
+		this.minusSign = symbols.getMinusSign();
+		String exponentString = symbols.getExponentSeparator();
+		this.exponentSeparator = exponentString.length() == 1 ? exponentString.charAt(0) : 0;
+		this.nanSymbol = symbols.getNaN();
+		this.asciiSymbols = isAscii(this.decimalSeparator) && isAscii(this.groupingSeparator)
+				&& isAscii(this.minusSign) && isAscii(this.exponentSeparator)
+				&& symbols.getZeroDigit() == '0';
+	}
+
+	/**
+	 * @return the parser for the locale set in the {@link UserPreferences}
+	 */
+	public static NumberParser getInstance() {
+		return getInstance(UserPreferences.getInstance().getLocale());
+	}
+
+	public static NumberParser getInstance(Locale locale) {
+		return INSTANCES.computeIfAbsent(locale, NumberParser::new);
+	}
 
-	public static Optional<Float> parseNumber(String string) {
-		NumberFormat nf = NumberFormat.getInstance(UserPreferences.getInstance().getLocale());
+	/**
+	 * @param text the text to check
+	 * @return true if the text can be parsed as a number, including the NaN symbol of the locale
+	 */
+	public boolean isNumber(CharSequence text) {
+		return !Double.isNaN(parseDouble(text)) || isNaNSymbol(text);
+	}
+
+	public double parseDouble(CharSequence text) {
+		return parseDouble(text, 0, text.length());
+	}
+
+	/**
+	 * Parses the given range of characters as a number.
+	 * <p>
+	 * NaN is returned both if the range is not a number and if it is the NaN
+	 * symbol of the locale. Use {@link #isNaNSymbol(CharSequence, int, int)}
+	 * to tell these cases apart where that matters.
+	 *
+	 * @param text the text containing the number
+	 * @param start the index of the first character of the number
+	 * @param end the index after the last character of the number
+	 * @return the number or NaN
+	 */
+	public double parseDouble(CharSequence text, int start, int end) {
+		if (!this.asciiSymbols) {
+			return parseWithNumberFormat(text, start, end);
+		}
+		int position = start;
+		boolean negative = false;
+		if (position < end && text.charAt(position) == this.minusSign) {
+			negative = true;
+			position++;
+		}
+
+		// The following mirrors DecimalFormat.subparse() for the ASCII characters
+		long significand = 0;
+		int digitCount = 0;
+		int decimalAt = 0;
+		int exponent = 0;
+		boolean sawDigit = false;
+		boolean sawDecimal = false;
+		int backup = -1;
+		int lastDot = start - 4;
+		int lastComma = start - 4;
+		for (; position < end; position++) {
+			char c = text.charAt(position);
+			if (c >= 0x80) {
+				return parseWithNumberFormat(text, start, end);
+			} else if (c >= '0' && c <= '9') {
+				backup = -1;
+				sawDigit = true;
+				if (c == '0' && digitCount == 0) {
+					// leading zeros only move the decimal point
+					if (sawDecimal) {
+						decimalAt--;
+					}
+					continue;
+				}
+				if (++digitCount > MAX_LONG_DIGITS) {
+					return parseWithNumberFormat(text, start, end);
+				}
+				significand = significand * 10 + (c - '0');
+			} else if (c == this.decimalSeparator) {
+				if (sawDecimal) {
+					break;
+				}
+				decimalAt = digitCount;
+				sawDecimal = true;
+			} else if (c == this.groupingSeparator) {
+				if (sawDecimal) {
+					break;
+				}
+				backup = position;
+			} else if (c == this.exponentSeparator) {
+				int exponentPosition = position + 1;
+				boolean negativeExponent = false;
+				if (exponentPosition < end && text.charAt(exponentPosition) == this.minusSign) {
+					negativeExponent = true;
+					exponentPosition++;
+				}
+				int exponentStart = exponentPosition;
+				while (exponentPosition < end && text.charAt(exponentPosition) >= '0' && text.charAt(exponentPosition) <= '9') {
+					exponent = exponent * 10 + (text.charAt(exponentPosition) - '0');
+					if (exponent > 100000) {
+						return parseWithNumberFormat(text, start, end);
+					}
+					exponentPosition++;
+				}
+				if (exponentPosition > exponentStart) {
+					position = exponentPosition;
+					if (negativeExponent) {
+						exponent = -exponent;
+					}
+				} else {
+					exponent = 0;
+				}
+				break;
+			} else {
+				break;
+			}
+			if (c == '.') {
+				if (position - lastDot <= 3) {
+					return Double.NaN;
+				}
+				lastDot = position;
+			} else if (c == ',') {
+				if (position - lastComma <= 3) {
+					return Double.NaN;
+				}
+				lastComma = position;
+			}
+		}
+		if (backup != -1) {
+			position = backup;
+		}
+		if (position < end || !sawDigit) {
+			return Double.NaN;
+		}
+		if (!sawDecimal) {
+			decimalAt = digitCount;
+		}
+		decimalAt += exponent;
+
+		if (significand == 0) {
+			return negative ? -0.0 : 0.0;
+		}
+		while (significand % 10 == 0) {
+			significand /= 10;
+			digitCount--;
+		}
+		int scale = decimalAt - digitCount;
+		double value;
+		if (scale >= 0 && decimalAt <= MAX_LONG_DIGITS) {
+			// NumberFormat returns integers that fit into a long as Long
+			value = significand * LONG_POWERS_OF_TEN[scale];
+		} else if (scale >= 0 && decimalAt > MAX_LONG_DIGITS + 1 && digitCount <= MAX_EXACT_DIGITS && scale < POWERS_OF_TEN.length) {
+			value = significand * POWERS_OF_TEN[scale];
+		} else if (scale < 0 && digitCount <= MAX_EXACT_DIGITS && -scale < POWERS_OF_TEN.length) {
+			value = significand / POWERS_OF_TEN[-scale];
+		} else {
+			return parseWithNumberFormat(text, start, end);
+		}
+		return negative ? -value : value;
+	}
+
+	public boolean isNaNSymbol(CharSequence text) {
+		return isNaNSymbol(text, 0, text.length());
+	}
+
+	public boolean isNaNSymbol(CharSequence text, int start, int end) {
+		if (end - start != this.nanSymbol.length()) {
+			return false;
+		}
+		for (int i = 0; i < this.nanSymbol.length(); i++) {
+			if (text.charAt(start + i) != this.nanSymbol.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private double parseWithNumberFormat(CharSequence text, int start, int end) {
+		String string = text.subSequence(start, end).toString();
+		NumberFormat nf = NumberFormat.getInstance(this.locale);
 		ParsePosition parsePosition = new ParsePosition(0);
 		Number number = nf.parse(string, parsePosition);
 		if (number == null) {
-			return Optional.empty();
+			return Double.NaN;
 		} else if (parsePosition.getIndex() < string.length()) {
 			// could not parse the whole string
-			return Optional.empty();
-		} else if ((Pattern.matches(".*\\..{0,2}?\\..*", string) || Pattern.matches(".*,.{0,2}?,.*", string))) {
+			return Double.NaN;
+		} else if (WRONG_DOT_GROUPING.matcher(string).matches() || WRONG_COMMA_GROUPING.matcher(string).matches()) {
 			// Recognized wrong distance of digit grouping symbols
-			return Optional.empty();
+			return Double.NaN;
 		} else {
-			return Optional.of(number.floatValue());
+			return number.doubleValue();
 		}
 	}
+
+	private static boolean isAscii(char c) {
+		return c > 0 && c < 0x80;
+	}
 }
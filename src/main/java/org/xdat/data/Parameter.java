@@ -20,15 +20,11 @@
 
 package org.xdat.data;
 
+import org.jetbrains.annotations.Nullable;
 import org.xdat.exceptions.CorruptDataException;
 
 import java.awt.FontMetrics;
 import java.io.Serializable;
-import java.util.Comparator;
-import java.util.Iterator;
-import java.util.Optional;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
 
 /**
  * A Parameter represents a parameter of a {@link org.xdat.data.DataSheet}.
@@ -40,19 +36,31 @@ import java.util.stream.Collectors;
  * <p>
  * Numeric parameters are used for columns that only contain numbers. Discrete
  * parameters are used for all columns that contain at least one non-numeric
- * value. All values are stored in a TreeSet and sorted in alphabetical order.
+ * value. Their values are kept as {@link DiscreteLevels} and sorted in
+ * alphabetical order.
  * This makes it possible to also treat information on parameters that are not
  * quantifiable, such as different shapes of an object or similar.
+ * <p>
+ * The numbers of a parameter are stored in the narrowest {@link ValueEncoding}
+ * that holds them, unless an encoding has been chosen for the parameter.
+ * <p>
+ * The values of a {@link DerivedParameter} are not read from a file, but
+ * computed from other parameters.
  * 
  */
 public class Parameter implements Serializable {
-	static final long serialVersionUID = 4L;
+	static final long serialVersionUID = 8L;
 	private String name;
+	private Column column;
 	private boolean numeric = true;
-	private TreeSet<String> discreteLevels = new TreeSet<>(new ReverseStringComparator());
+	@Nullable
+	private ParameterStatistics fileStatistics;
+	@Nullable
+	private ValueEncoding encoding;
     private int ticLabelDigitCount = 3;
 	public Parameter(String name, DataSheet dataSheet) {
 		this.name = name;
+		this.column = dataSheet.createColumn();
 	}
 
 	public String getName() {
@@ -63,6 +71,108 @@ public class Parameter implements Serializable {
 		this.name = name;
 	}
 
+	Column getColumn() {
+		return column;
+	}
+
+	/**
+	 * Releases the storage of the values after this parameter was removed.
+	 * Unlike {@link #getColumn()}, this does not compute the values of a
+	 * derived parameter, whose sources may already be released.
+	 */
+	void close() {
+		this.column.close();
+	}
+
+	/**
+	 * Gets a number that changes whenever values of this parameter are
+	 * written or removed, so that state derived from the values can tell
+	 * whether it is outdated.
+	 *
+	 * @return the current version
+	 */
+	public int getVersion() {
+		return getColumn().getVersion();
+	}
+
+	/**
+	 * @param version a version returned by {@link #getVersion()}
+	 * @return true if values have only been appended since that version
+	 */
+	public boolean isAppendOnlySince(int version) {
+		return getColumn().isAppendOnlySince(version);
+	}
+
+	/**
+	 * @return the statistics of the values of this parameter
+	 */
+	public ParameterStatistics getStatistics() {
+		return getColumn().getStatistics();
+	}
+
+	/**
+	 * Gets the statistics of the values of this parameter in its source file.
+	 * These differ from the statistics of the current values if only a sample
+	 * of the designs in the file was imported.
+	 *
+	 * @return the statistics of all values in the source file if only a sample was imported, or else the statistics of the current values
+	 */
+	public ParameterStatistics getFileStatistics() {
+		return this.fileStatistics == null ? getStatistics() : this.fileStatistics;
+	}
+
+	void setFileStatistics(@Nullable ParameterStatistics fileStatistics) {
+		this.fileStatistics = fileStatistics;
+	}
+
+	void setColumn(Column column) {
+		column.continueVersions(this.column);
+		this.column = column;
+		if (column.isEncodingFixed() ? column.getEncoding() != this.encoding : this.encoding != null) {
+			column.setEncoding(this.encoding);
+		}
+		updateDiscreteLevels();
+	}
+
+	/**
+	 * Replaces the column and at the same time whether this parameter is
+	 * numeric, such as after the values were read again.
+	 *
+	 * @param column the new column
+	 * @param numeric whether all values in the new column are numbers
+	 */
+	void setColumn(Column column, boolean numeric) {
+		this.numeric = numeric;
+		setColumn(column);
+	}
+
+	/**
+	 * @return the encoding in which the numbers of this parameter are currently stored
+	 */
+	public ValueEncoding getEncoding() {
+		return getColumn().getEncoding();
+	}
+
+	/**
+	 * @return the encoding chosen for this parameter or null if the encoding is chosen automatically
+	 */
+	@Nullable
+	public ValueEncoding getChosenEncoding() {
+		return this.encoding;
+	}
+
+	/**
+	 * Converts the numbers of this parameter to another encoding. Precision
+	 * that was lost when the numbers were stored before is only regained
+	 * when the data is read again.
+	 *
+	 * @param encoding one of the encodings that can be chosen, or null to choose the encoding automatically
+	 */
+	void setChosenEncoding(@Nullable ValueEncoding encoding) {
+		this.encoding = encoding;
+		this.column.setEncoding(encoding);
+	}
+
 	/**
 	 * Checks whether the parameter is mixed. A parameter is mixed if at least
 	 * one design has a numeric value and at least one design has a non-numeric
@@ -72,36 +182,40 @@ public class Parameter implements Serializable {
 	 * @param dataSheet
 	 */
 	boolean isMixed(DataSheet dataSheet) {
-		return getType(dataSheet) == ParameterType.MIXED;
+		return getType() == ParameterType.MIXED;
 	}
 
-	private ParameterType getType(DataSheet dataSheet){
-		boolean foundNumericValue = false;
-		boolean foundStringValue = false;
-        for (Design design : dataSheet.getDesigns()) {
-            String string = design.getStringValue(this);
-            if(NumberParser.parseNumber(string).isPresent()){
-                foundNumericValue = true;
-            } else {
-                foundStringValue = true;
-            }
-            if(foundNumericValue && foundStringValue) {
-                return ParameterType.MIXED;
-            }
-        }
-        if (foundStringValue) {
-            return ParameterType.NON_NUMERIC;
-        } else if (foundNumericValue) {
-            return ParameterType.NUMERIC;
-        }
-        // This can only happen if we have no designs. Consider the parameter numeric in this case
-        return ParameterType.NUMERIC;
+	/**
+	 * Gets the type of this parameter from the numbers of numeric and
+	 * non-numeric values, which the column keeps up to date as values are
+	 * written and removed. Unlike {@link #getStatistics()}, this does not
+	 * compute the distribution again after values were overwritten.
+	 *
+	 * @return the type
+	 */
+	private ParameterType getType() {
+		Column column = getColumn();
+		if (column.getNonNumericCount() == 0) {
+			// This includes the case without designs, where the parameter is considered numeric
+			return ParameterType.NUMERIC;
+		} else if (column.getNumericCount() == 0) {
+			return ParameterType.NON_NUMERIC;
+		} else {
+			return ParameterType.MIXED;
+		}
 	}
 
 	public boolean isNumeric() {
 		return numeric;
 	}
 
+	/**
+	 * @return true if the values of this parameter are computed from other parameters rather than read from a file
+	 */
+	public boolean isDerived() {
+		return false;
+	}
+
 	void setNumeric(boolean numeric, DataSheet dataSheet) {
 		if (numeric == this.numeric) {
 			return;
@@ -114,18 +228,13 @@ public class Parameter implements Serializable {
 	 * Gets a numeric representation of a string value for this parameter.
 	 * <p>
 	 * If the parameter is numeric, an attempt is made to parse the string as a
-	 * Double. If this attempt fails, the parameter is not  considered numeric anymore,
-	 * but is transformed into a discrete parameter.
+	 * Double.
 	 * <p>
-	 * If the parameter is not numeric, the string is looked up in the TreeSet
-	 * discreteLevels that should contain all discrete values (that is Strings)
-	 * that were found in the data sheet for this parameter. If the value is not
-	 * found it is added as a new discrete level for this parameter. The treeSet
-	 * is then searched again in order to get the correct index of the new
-	 * discrete level.
-	 * <p>
-	 * If this second search does not yield the result, something unexpected has
-	 * gone wrong and a CorruptDataException is thrown.
+	 * Otherwise the string is looked up in the discrete levels of this
+	 * parameter, which contain all values that are currently found in the data
+	 * sheet for this parameter. The numeric representation is the index of the
+	 * level in alphabetical order. If no design has the given value, a
+	 * CorruptDataException is thrown.
 	 * 
 	 * @param string
 	 *            the string
@@ -133,33 +242,17 @@ public class Parameter implements Serializable {
 	 */
 	double getDoubleValueOf(String string) {
 		if (this.numeric) {
-			Optional<Float> parsed = NumberParser.parseNumber(string);
-			if(parsed.isPresent()) {
-				return parsed.get();
+			NumberParser parser = NumberParser.getInstance();
+			double parsed = parser.parseDouble(string);
+			if (!Double.isNaN(parsed) || parser.isNaNSymbol(string)) {
+				return parsed;
 			}
 		}
-
-		int index = 0;
-		Iterator<String> it = discreteLevels.iterator();
-		while (it.hasNext()) {
-			if (string.equalsIgnoreCase(it.next())) {
-				return index;
-			}
-			index++;
-		}
-
-		// String not found, add it to discrete levels
-		this.discreteLevels.add(string);
-		index = 0;
-		it = discreteLevels.iterator();
-		while (it.hasNext()) {
-			String next = it.next();
-			if (string.equalsIgnoreCase(next)) {
-				return index;
-			}
-			index++;
+		int rank = getColumn().getLevelRank(string);
+		if (rank < 0) {
+			throw new CorruptDataException(this);
 		}
-		throw new CorruptDataException(this);
+		return rank;
 	}
 
 	/**
@@ -171,7 +264,7 @@ public class Parameter implements Serializable {
 	 * <p>
 	 * If it is discrete, the double value is casted to an Integer value and
 	 * this value is used as an index to look up the corresponding discrete
-	 * value string in the TreeSet discreteLevels.
+	 * level in alphabetical order.
 	 * <p>
 	 * If no value is found for the given index the data is assumed to be
 	 * corrupt and a CorruptDataException is thrown.
@@ -186,16 +279,10 @@ public class Parameter implements Serializable {
 			return Double.toString(value);
 		} else {
 			int index = (int) value;
-			int currentIndex = 0;
-			Iterator<String> it = discreteLevels.iterator();
-			while (it.hasNext()) {
-				String next = it.next();
-				if (currentIndex == index) {
-					return next;
-				}
-				currentIndex++;
+			if (index < 0 || index >= getDiscreteLevelCount()) {
+				throw new CorruptDataException(this);
 			}
-			throw new CorruptDataException(this);
+			return getColumn().getLevelName(index);
 		}
 	}
 
@@ -203,26 +290,34 @@ public class Parameter implements Serializable {
 		if (this.isNumeric()) {
 			throw new RuntimeException("Parameter " + this.name + " is numeric!");
 		} else {
-			// log("getDiscreteLevelCount returning size "+this.discreteLevels.size());
-			return this.discreteLevels.size();
+			return getColumn().getLevelCount();
 		}
 	}
 
 	void updateNumeric(DataSheet dataSheet) {
-		this.setNumeric(getType(dataSheet) == ParameterType.NUMERIC, dataSheet);
+		this.setNumeric(getType() == ParameterType.NUMERIC, dataSheet);
 
 	}
 
-	void updateDiscreteLevels(DataSheet dataSheet){
-	    this.discreteLevels.clear();
-	    if (isNumeric()) {
-	        return;
-        }
-	    this.discreteLevels.addAll(dataSheet.getDesigns()
-                .stream()
-                .map(d -> d.getStringValue(this))
-                .collect(Collectors.toSet()));
-    }
+	/**
+	 * Makes sure the discrete levels are tracked if and only if this parameter
+	 * is not numeric. Once tracked, the levels are kept up to date by the
+	 * column as values are written or removed, so this only has to scan the
+	 * data when the parameter stops being numeric.
+	 *
+	 * @param dataSheet the data sheet
+	 */
+	void updateDiscreteLevels(DataSheet dataSheet) {
+		updateDiscreteLevels();
+	}
+
+	private void updateDiscreteLevels() {
+		if (isNumeric()) {
+			this.column.dropLevels();
+		} else {
+			this.column.buildLevels();
+		}
+	}
 
 
     public void setTicLabelDigitCount(int value) {
@@ -240,15 +335,8 @@ public class Parameter implements Serializable {
 
 	public int getLongestTicLabelStringLength(FontMetrics fm, String numberFormat, DataSheet dataSheet) {
 		if (this.isNumeric()) {
-			double minValue = Double.POSITIVE_INFINITY;
-			double maxValue = Double.NEGATIVE_INFINITY;
-
-			for (int i = 0; i < dataSheet.getDesignCount(); i++) {
-				if (dataSheet.getDesign(i).getDoubleValue(this) > maxValue)
-					maxValue = dataSheet.getDesign(i).getDoubleValue(this);
-				if (dataSheet.getDesign(i).getDoubleValue(this) < minValue)
-					minValue = dataSheet.getDesign(i).getDoubleValue(this);
-			}
+			double minValue = dataSheet.getMinValueOf(this);
+			double maxValue = dataSheet.getMaxValueOf(this);
 			int minLength = fm.stringWidth(String.format(numberFormat, minValue));
 			int maxLength = fm.stringWidth(String.format(numberFormat, maxValue));
 			return Math.max(minLength, maxLength);
@@ -267,11 +355,4 @@ public class Parameter implements Serializable {
 	public String toString() {
 		return name;
 	}
-
-	private static class ReverseStringComparator implements Comparator<String>, Serializable {
-		static final long serialVersionUID = 0L;
-		public int compare(String s1, String s2) {
-			return (s2.compareToIgnoreCase(s1));
-		}
-	}
 }
@@ -0,0 +1,212 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import java.io.Serializable;
+
+/**
+ * Summary statistics of the values of a {@link Parameter}.
+ * <p>
+ * The statistics are kept by the column of the parameter. The numbers of
+ * numeric and non-numeric values are always up to date. The distribution of
+ * the numbers is updated as designs are appended, and computed again in a
+ * single pass when it is requested after values have been modified or
+ * removed. NaN values are counted as numeric values, but are not part of
+ * the distribution. Missing values are counted separately and are neither
+ * numeric nor non-numeric.
+ * <p>
+ * An instance reflects the values of the parameter at the time it was
+ * obtained from {@link Parameter#getStatistics()} and must not be kept.
+ * <p>
+ * If only a sample of the designs in a file is imported, the statistics of
+ * all values in the file are collected while it is read and kept with the
+ * parameter, see {@link Parameter#getFileStatistics()}.
+ */
+public class ParameterStatistics implements Serializable {
+	static final long serialVersionUID = 1L;
+	private int numericCount;
+	private int nonNumericCount;
+	private int missingCount;
+	private boolean distributionValid = true;
+	private int distributionCount;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	private double mean;
+	private double squaredDeviationSum;
+
+	ParameterStatistics() {
+	}
+
+	/**
+	 * @return the number of values
+	 */
+	public int getCount() {
+		return this.numericCount + this.nonNumericCount + this.missingCount;
+	}
+
+	/**
+	 * @return the number of values that are numbers, including NaN
+	 */
+	public int getNumericCount() {
+		return this.numericCount;
+	}
+
+	/**
+	 * @return the number of values that are not numbers
+	 */
+	public int getNonNumericCount() {
+		return this.nonNumericCount;
+	}
+
+	/**
+	 * @return the number of missing values
+	 */
+	public int getMissingCount() {
+		return this.missingCount;
+	}
+
+	/**
+	 * @return the smallest number or positive infinity if there is none
+	 */
+	public double getMin() {
+		return this.min;
+	}
+
+	/**
+	 * @return the largest number or negative infinity if there is none
+	 */
+	public double getMax() {
+		return this.max;
+	}
+
+	/**
+	 * @return the mean of all numbers or NaN if there is none
+	 */
+	public double getMean() {
+		return this.distributionCount == 0 ? Double.NaN : this.mean;
+	}
+
+	/**
+	 * @return the population variance of all numbers or NaN if there is none
+	 */
+	public double getVariance() {
+		return this.distributionCount == 0 ? Double.NaN : this.squaredDeviationSum / this.distributionCount;
+	}
+
+	void addNumber(double value, boolean appended) {
+		this.numericCount++;
+		if (!appended) {
+			this.distributionValid = false;
+		} else if (this.distributionValid) {
+			addToDistribution(value);
+		}
+	}
+
+	void addText(boolean appended) {
+		this.nonNumericCount++;
+		if (!appended) {
+			this.distributionValid = false;
+		}
+	}
+
+	void addMissing(boolean appended) {
+		this.missingCount++;
+		if (!appended) {
+			this.distributionValid = false;
+		}
+	}
+
+	/**
+	 * Adds the value of a row of a column, which is appended.
+	 */
+	void addValue(Column column, int row) {
+		if (column.isMissing(row)) {
+			addMissing(true);
+		} else if (column.isText(row)) {
+			addText(true);
+		} else {
+			addNumber(column.getNumber(row), true);
+		}
+	}
+
+	/**
+	 * Removes a number that is overwritten or deleted.
+	 */
+	void removeNumber() {
+		this.numericCount--;
+		this.distributionValid = false;
+	}
+
+	/**
+	 * Removes a value that is not a number and is overwritten or deleted.
+	 */
+	void removeText() {
+		this.nonNumericCount--;
+	}
+
+	/**
+	 * Removes a missing value that is overwritten or deleted.
+	 */
+	void removeMissing() {
+		this.missingCount--;
+	}
+
+	boolean isDistributionValid() {
+		return this.distributionValid;
+	}
+
+	/**
+	 * Makes the distribution be computed again when it is requested next,
+	 * after numbers have been converted.
+	 */
+	void invalidateDistribution() {
+		this.distributionValid = false;
+	}
+
+	void clearDistribution() {
+		this.distributionCount = 0;
+		this.min = Double.POSITIVE_INFINITY;
+		this.max = Double.NEGATIVE_INFINITY;
+		this.mean = 0;
+		this.squaredDeviationSum = 0;
+		this.distributionValid = true;
+	}
+
+	/**
+	 * Adds a number to the distribution, using Welford's method for mean and
+	 * variance.
+	 */
+	void addToDistribution(double value) {
+		if (Double.isNaN(value)) {
+			return;
+		}
+		if (this.min > value) {
+			this.min = value;
+		}
+		if (this.max < value) {
+			this.max = value;
+		}
+		this.distributionCount++;
+		double delta = value - this.mean;
+		this.mean += delta / this.distributionCount;
+		this.squaredDeviationSum += delta * (value - this.mean);
+	}
+}
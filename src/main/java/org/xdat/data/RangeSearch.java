@@ -0,0 +1,127 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A search for the rows of a parameter with a value within a range, see
+ * {@link DataSheet#findRowsWithinRange(Parameter, double, double, double, int)}.
+ * <p>
+ * The rows are searched block by block. Blocks in which all values are
+ * within the range, or none of them is, are decided by their smallest and
+ * largest value alone, see {@link BlockRanges}. Only the values of the other
+ * blocks are read. The rows found are collected in the words of a bit set.
+ * <p>
+ * The blocks cover separate words, so that they can be searched from
+ * several threads at once, as long as the data sheet is not modified.
+ */
+public class RangeSearch {
+	private static final ThreadLocal<double[]> VALUE_BUFFERS = ThreadLocal.withInitial(() -> new double[BlockRanges.BLOCK_SIZE]);
+	private final Column column;
+	private final BlockRanges blockRanges;
+	private final double min;
+	private final double max;
+	private final double tolerance;
+	private final int firstRow;
+	private final int rowCount;
+	private final long[] words;
+
+	RangeSearch(Column column, double min, double max, double tolerance, int firstRow) {
+		this.column = column;
+		this.blockRanges = column.prepareRangeSearch();
+		this.min = min;
+		this.max = max;
+		this.tolerance = tolerance;
+		this.firstRow = firstRow;
+		this.rowCount = column.size();
+		this.words = new long[(this.rowCount + 63) >>> 6];
+	}
+
+	/**
+	 * @return the number of blocks to search
+	 */
+	public int getBlockCount() {
+		int firstBlock = this.firstRow / BlockRanges.BLOCK_SIZE;
+		int blockCount = (this.rowCount + BlockRanges.BLOCK_SIZE - 1) / BlockRanges.BLOCK_SIZE;
+		return Math.max(0, blockCount - firstBlock);
+	}
+
+	/**
+	 * Searches all blocks on the calling thread.
+	 */
+	public void searchAllBlocks() {
+		for (int i = 0; i < getBlockCount(); i++) {
+			searchBlock(i);
+		}
+	}
+
+	/**
+	 * @param index the index of the block to search, from zero to {@link #getBlockCount()}
+	 */
+	public void searchBlock(int index) {
+		int block = this.firstRow / BlockRanges.BLOCK_SIZE + index;
+		int start = Math.max(this.firstRow, block * BlockRanges.BLOCK_SIZE);
+		int end = Math.min(this.rowCount, (block + 1) * BlockRanges.BLOCK_SIZE);
+		if (this.blockRanges.isAllWithin(block, this.min, this.max, this.tolerance)) {
+			setRange(this.words, start, end);
+		} else if (!this.blockRanges.isNoneWithin(block, this.min, this.max, this.tolerance)) {
+			int length = end - start;
+			double[] values = VALUE_BUFFERS.get();
+			this.column.readValues(start, length, values, new BitSet());
+			double min = this.min;
+			double max = this.max;
+			double tolerance = this.tolerance;
+			for (int i = 0; i < length; i++) {
+				double value = values[i];
+				// no branch on the outcome, so that the loop does not suffer from mispredictions
+				long within = !(value - tolerance > max) & !(value + tolerance < min) ? 1L : 0L;
+				int row = start + i;
+				this.words[row >>> 6] |= within << row;
+			}
+		}
+	}
+
+	/**
+	 * @return the rows found in the blocks searched so far, none of which is before the first row
+	 */
+	public BitSet getRows() {
+		return BitSet.valueOf(this.words);
+	}
+
+	private static void setRange(long[] words, int start, int end) {
+		if (start >= end) {
+			return;
+		}
+		int firstWord = start >>> 6;
+		int lastWord = (end - 1) >>> 6;
+		long firstWordMask = -1L << start;
+		long lastWordMask = -1L >>> -end;
+		if (firstWord == lastWord) {
+			words[firstWord] |= firstWordMask & lastWordMask;
+			return;
+		}
+		words[firstWord] |= firstWordMask;
+		Arrays.fill(words, firstWord + 1, lastWord, -1L);
+		words[lastWord] |= lastWordMask;
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import java.util.Random;
+
+/**
+ * Chooses a uniform random sample of a fixed number of items from a sequence
+ * of unknown length in a single pass.
+ * <p>
+ * The first items fill the sample. Each later item replaces a random item of
+ * the sample with a probability that decreases as more items are offered, so
+ * that in the end every item is part of the sample with the same probability.
+ * Instead of drawing a random number for every item, the number of items to
+ * skip until the next replacement is drawn directly (Algorithm L by Li,
+ * 1994), which keeps sampling cheap for very long sequences.
+ */
+class Reservoir {
+	private final int capacity;
+	private final Random random = new Random();
+	private long offeredCount;
+	private long nextReplacement;
+	private double weight;
+
+	/**
+	 * @param capacity the number of items in the sample, at least 1
+	 */
+	Reservoir(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The capacity must be positive");
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Offers the next item of the sequence.
+	 *
+	 * @return the slot of the sample the item is put into, or -1 if the item is not sampled. The slots are first filled in ascending order.
+	 */
+	int offer() {
+		long index = this.offeredCount++;
+		if (index < this.capacity) {
+			if (index == this.capacity - 1) {
+				this.weight = Math.exp(Math.log(nextRandom()) / this.capacity);
+				scheduleReplacement();
+			}
+			return (int) index;
+		} else if (index < this.nextReplacement) {
+			return -1;
+		}
+		int slot = this.random.nextInt(this.capacity);
+		this.weight *= Math.exp(Math.log(nextRandom()) / this.capacity);
+		scheduleReplacement();
+		return slot;
+	}
+
+	/**
+	 * @return the number of items offered so far
+	 */
+	long getOfferedCount() {
+		return this.offeredCount;
+	}
+
+	/**
+	 * @return true if items have been left out, because more items were offered than fit into the sample
+	 */
+	boolean isSampling() {
+		return this.offeredCount > this.capacity;
+	}
+
+	private void scheduleReplacement() {
+		double skipped = Math.floor(Math.log(nextRandom()) / Math.log(1 - this.weight));
+		// once the weight has become too small, no item is replaced anymore
+		this.nextReplacement = skipped >= 0 && skipped < Long.MAX_VALUE - this.offeredCount ? this.offeredCount + (long) skipped : Long.MAX_VALUE;
+	}
+
+	/**
+	 * @return a random number in (0, 1], so that its logarithm is finite
+	 */
+	private double nextRandom() {
+		return 1 - this.random.nextDouble();
+	}
+}
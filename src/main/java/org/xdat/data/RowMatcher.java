@@ -0,0 +1,145 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds the rows of a data sheet that are unchanged after its data has been
+ * read again.
+ * <p>
+ * The old rows are put into a hash index over the values of all their
+ * columns. Each new row is then looked up in the index and matched to the
+ * first unmatched old row with exactly the same values, so rows that occur
+ * several times are matched one by one in their original order.
+ * <p>
+ * If the rows have ids that do not change when the data is read again, the
+ * rows can instead be matched by their ids.
+ */
+class RowMatcher {
+	private static final int NO_ROW = -1;
+
+	private RowMatcher() {
+	}
+
+	/**
+	 * @param oldColumns the columns before the data was read again
+	 * @param oldRowCount the number of rows in the old columns
+	 * @param newColumns the columns after the data was read again, in the same order
+	 * @param newRowCount the number of rows in the new columns
+	 * @return the old row with the same values for each new row, or -1 for new rows without such an old row
+	 */
+	static int[] match(Column[] oldColumns, int oldRowCount, Column[] newColumns, int newRowCount) {
+		int bucketCount = Integer.highestOneBit(Math.max(1, oldRowCount)) << 1;
+		int mask = bucketCount - 1;
+		int[] buckets = new int[bucketCount];
+		Arrays.fill(buckets, NO_ROW);
+		int[] nextInBucket = new int[oldRowCount];
+		// insert backwards, so that each bucket lists its rows in ascending order
+		for (int row = oldRowCount - 1; row >= 0; row--) {
+			int bucket = hash(oldColumns, row) & mask;
+			nextInBucket[row] = buckets[bucket];
+			buckets[bucket] = row;
+		}
+
+		int[] previousRows = new int[newRowCount];
+		for (int row = 0; row < newRowCount; row++) {
+			int bucket = hash(newColumns, row) & mask;
+			int previous = NO_ROW;
+			int candidate = buckets[bucket];
+			while (candidate != NO_ROW && !equal(oldColumns, candidate, newColumns, row)) {
+				previous = candidate;
+				candidate = nextInBucket[candidate];
+			}
+			previousRows[row] = candidate;
+			if (candidate != NO_ROW) {
+				// an old row can only be matched once
+				if (previous == NO_ROW) {
+					buckets[bucket] = nextInBucket[candidate];
+				} else {
+					nextInBucket[previous] = nextInBucket[candidate];
+				}
+			}
+		}
+		return previousRows;
+	}
+
+	/**
+	 * Matches the new rows to the old rows with the same id, if they also
+	 * have the same values.
+	 *
+	 * @param oldIds the ids of the old rows
+	 * @param oldColumns the columns before the data was read again
+	 * @param newIds the ids of the new rows
+	 * @param newColumns the columns after the data was read again, in the same order
+	 * @param newRowCount the number of rows in the new columns
+	 * @return the old row with the same id and values for each new row, or -1 for new rows without such an old row
+	 */
+	static int[] matchIds(int[] oldIds, Column[] oldColumns, int[] newIds, Column[] newColumns, int newRowCount) {
+		Map<Integer, Integer> oldRowsById = new HashMap<>(2 * oldIds.length);
+		for (int row = 0; row < oldIds.length; row++) {
+			oldRowsById.put(oldIds[row], row);
+		}
+		int[] previousRows = new int[newRowCount];
+		for (int row = 0; row < newRowCount; row++) {
+			Integer oldRow = oldRowsById.get(newIds[row]);
+			previousRows[row] = oldRow != null && equal(oldColumns, oldRow, newColumns, row) ? oldRow : NO_ROW;
+		}
+		return previousRows;
+	}
+
+	/**
+	 * @param previousRows the result of {@link #match(Column[], int, Column[], int)}
+	 * @param oldRowCount the number of rows in the old columns
+	 * @return the old rows that were not matched by any new row
+	 */
+	static BitSet getUnmatchedRows(int[] previousRows, int oldRowCount) {
+		BitSet unmatched = new BitSet(oldRowCount);
+		unmatched.set(0, oldRowCount);
+		for (int previousRow : previousRows) {
+			if (previousRow != NO_ROW) {
+				unmatched.clear(previousRow);
+			}
+		}
+		return unmatched;
+	}
+
+	private static int hash(Column[] columns, int row) {
+		int hash = 1;
+		for (Column column : columns) {
+			hash = 31 * hash + column.hashValue(row);
+		}
+		// spread the high bits, as only the low bits select the bucket
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean equal(Column[] oldColumns, int oldRow, Column[] newColumns, int newRow) {
+		for (int i = 0; i < oldColumns.length; i++) {
+			if (!oldColumns[i].valueEquals(oldRow, newColumns[i], newRow)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import org.jetbrains.annotations.Nullable;
+import org.xdat.UserPreferences;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Directory holding the column files of a {@link DataSheet} that stores its
+ * values in {@link MappedValueStore}s.
+ * <p>
+ * The directory is created on demand below the scratch directory configured
+ * in the {@link UserPreferences}. It is deleted together with all remaining
+ * column files when the data sheet is disposed, or at the latest when the
+ * virtual machine exits. Only the fact that the data sheet uses a scratch
+ * space is serialized; a deserialized instance creates a new directory.
+ */
+class ScratchSpace implements Serializable {
+	static final long serialVersionUID = 1L;
+	@Nullable
+	private transient File directory;
+	@Nullable
+	private transient Set<MappedValueStore> openStores;
+
+	synchronized File createFile() throws IOException {
+		if (this.directory == null) {
+			File parent = new File(UserPreferences.getInstance().getScratchDir());
+			if (!parent.isDirectory() && !parent.mkdirs()) {
+				throw new IOException("Could not create scratch directory " + parent.getAbsolutePath());
+			}
+			this.directory = Files.createTempDirectory(parent.toPath(), "xdat").toFile();
+			this.directory.deleteOnExit();
+		}
+		File file = File.createTempFile("column", ".bin", this.directory);
+		file.deleteOnExit();
+		return file;
+	}
+
+	synchronized void register(MappedValueStore store) {
+		getOpenStores().add(store);
+	}
+
+	synchronized void unregister(MappedValueStore store) {
+		getOpenStores().remove(store);
+	}
+
+	/**
+	 * Closes all stores that are still open and deletes the directory.
+	 */
+	void close() {
+		List<MappedValueStore> stores;
+		synchronized (this) {
+			stores = new ArrayList<>(getOpenStores());
+		}
+		stores.forEach(MappedValueStore::close);
+		synchronized (this) {
+			if (this.directory != null && this.directory.delete()) {
+				this.directory = null;
+			}
+		}
+	}
+
+	private Set<MappedValueStore> getOpenStores() {
+		if (this.openStores == null) {
+			this.openStores = Collections.newSetFromMap(new IdentityHashMap<>());
+		}
+		return this.openStores;
+	}
+}
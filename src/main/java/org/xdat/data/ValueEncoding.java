@@ -0,0 +1,130 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The ways in which the numbers of a {@link Parameter} can be stored.
+ * <p>
+ * Unless an encoding is chosen for a parameter, its numbers start out in the
+ * narrowest encoding and move to a wider one whenever a number is written
+ * that the current encoding cannot hold. Integers go into bytes, shorts or
+ * ints depending on their range, other numbers into floats, and integers
+ * that neither an int nor a float can hold exactly into doubles.
+ * <p>
+ * Only the encodings that are not restricted to integers can be chosen for
+ * a parameter. All numbers of the parameter are then converted to that
+ * encoding, which may lose precision. The quantized encoding maps the range
+ * of the numbers to 16 bit steps and is meant for parameters that are only
+ * displayed.
+ */
+public enum ValueEncoding {
+	BYTE("Byte", 0, false),
+	SHORT("Short", 1, false),
+	INT("Int", 2, false),
+	FLOAT("Float", 2, true),
+	DOUBLE("Double", 3, true),
+	QUANTIZED("16 Bit Quantized", 1, true);
+
+	private static final double MAX_EXACT_FLOAT_INTEGER = 1 << 24;
+	private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0.0);
+	private final String label;
+	private final int slotShift;
+	private final boolean selectable;
+
+	ValueEncoding(String label, int slotShift, boolean selectable) {
+		this.label = label;
+		this.slotShift = slotShift;
+		this.selectable = selectable;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * @return true if this encoding can be chosen for a parameter
+	 */
+	public boolean isSelectable() {
+		return selectable;
+	}
+
+	/**
+	 * @return the base two logarithm of the number of bytes per value
+	 */
+	int getSlotShift() {
+		return slotShift;
+	}
+
+	/**
+	 * @param label the label of an encoding
+	 * @return the encoding with the given label or null if there is none
+	 */
+	@Nullable
+	public static ValueEncoding forLabel(String label) {
+		for (ValueEncoding encoding : values()) {
+			if (encoding.label.equals(label)) {
+				return encoding;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Tells whether a number can be stored in this encoding when the
+	 * encoding is chosen automatically. This is the case if the number is
+	 * kept exactly, except for floats, which also take numbers that are not
+	 * integers.
+	 *
+	 * @param value the number
+	 * @return true if the number fits into this encoding
+	 */
+	boolean holds(double value) {
+		switch (this) {
+			case BYTE:
+				return isInteger(value) && value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE;
+			case SHORT:
+				return isInteger(value) && value >= Short.MIN_VALUE && value <= Short.MAX_VALUE;
+			case INT:
+				return isInteger(value) && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+			case FLOAT:
+				return !isInteger(value) || Math.abs(value) <= MAX_EXACT_FLOAT_INTEGER;
+			default:
+				return true;
+		}
+	}
+
+	/**
+	 * @return the narrowest encoding after this one that is chosen automatically and holds the given number
+	 */
+	ValueEncoding widenFor(double value) {
+		for (ValueEncoding encoding = this; ; encoding = values()[encoding.ordinal() + 1]) {
+			if (encoding.holds(value)) {
+				return encoding;
+			}
+		}
+	}
+
+	private static boolean isInteger(double value) {
+		return value == Math.rint(value) && !Double.isInfinite(value) && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO_BITS;
+	}
+}
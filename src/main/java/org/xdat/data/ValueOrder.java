@@ -0,0 +1,198 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+/**
+ * The rows of a {@link Column} sorted by their values, so that the rows
+ * whose value is below or above a threshold can be found by a binary search.
+ * <p>
+ * When a filter is moved, only the rows between its old and its new
+ * position in this order change whether they pass it.
+ * <p>
+ * The values are those of {@link Column#readValues(int, int, double[], BitSet)}.
+ * Rows with a missing value or NaN are left out, as they pass any filter.
+ * The values are read and sorted in parallel. An order reflects the values
+ * of the column at the time it was obtained from
+ * {@link DataSheet#getValueOrder(Parameter)} and must not be kept.
+ */
+public class ValueOrder {
+	private static final int CHUNK_SIZE = 4096;
+	private static final int SEQUENTIAL_SORT_SIZE = 1 << 13;
+	private static final int INSERTION_SORT_SIZE = 32;
+	private final int[] rows;
+	private final double[] values;
+
+	private ValueOrder(int[] rows, double[] values) {
+		this.rows = rows;
+		this.values = values;
+	}
+
+	static ValueOrder build(Column column) {
+		int rowCount = column.size();
+		double[] values = new double[rowCount];
+		column.prepareConcurrentReads();
+		int chunkCount = (rowCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+			int firstRow = chunk * CHUNK_SIZE;
+			int length = Math.min(CHUNK_SIZE, rowCount - firstRow);
+			double[] chunkValues = new double[length];
+			column.readValues(firstRow, length, chunkValues, new BitSet());
+			System.arraycopy(chunkValues, 0, values, firstRow, length);
+		});
+		int[] rows = IntStream.range(0, rowCount).parallel().filter(row -> !Double.isNaN(values[row])).toArray();
+		ForkJoinPool.commonPool().invoke(new SortTask(rows, new int[rows.length], values, 0, rows.length));
+		double[] sortedValues = new double[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			sortedValues[i] = values[rows[i]];
+		}
+		return new ValueOrder(rows, sortedValues);
+	}
+
+	/**
+	 * @return the number of rows with a value that is neither missing nor NaN
+	 */
+	public int size() {
+		return this.rows.length;
+	}
+
+	/**
+	 * @param index the position in the order, from the smallest value
+	 * @return the row with the value at that position
+	 */
+	public int getRow(int index) {
+		return this.rows[index];
+	}
+
+	/**
+	 * @param max the largest value to count
+	 * @param tolerance the amount by which a value may exceed max
+	 * @return the number of rows whose value v does not satisfy {@code v - tolerance > max}, which come first in the order
+	 */
+	public int countNotAbove(double max, double tolerance) {
+		int low = 0;
+		int high = this.values.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (this.values[middle] - tolerance > max) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @param min the smallest value not to count
+	 * @param tolerance the amount by which a value may fall short of min
+	 * @return the number of rows whose value v satisfies {@code v + tolerance < min}, which come first in the order
+	 */
+	public int countBelow(double min, double tolerance) {
+		int low = 0;
+		int high = this.values.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (this.values[middle] + tolerance < min) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Sorts rows by their values with a merge sort, sorting the halves of
+	 * large ranges in parallel.
+	 */
+	private static class SortTask extends RecursiveAction {
+		static final long serialVersionUID = 1L;
+		private final int[] rows;
+		private final int[] buffer;
+		private final double[] values;
+		private final int from;
+		private final int to;
+
+		SortTask(int[] rows, int[] buffer, double[] values, int from, int to) {
+			this.rows = rows;
+			this.buffer = buffer;
+			this.values = values;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= SEQUENTIAL_SORT_SIZE) {
+				sort(this.from, this.to);
+				return;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			invokeAll(
+					new SortTask(this.rows, this.buffer, this.values, this.from, middle),
+					new SortTask(this.rows, this.buffer, this.values, middle, this.to)
+			);
+			merge(this.from, middle, this.to);
+		}
+
+		private void sort(int from, int to) {
+			if (to - from <= INSERTION_SORT_SIZE) {
+				for (int i = from + 1; i < to; i++) {
+					int row = this.rows[i];
+					double value = this.values[row];
+					int j = i - 1;
+					while (j >= from && this.values[this.rows[j]] > value) {
+						this.rows[j + 1] = this.rows[j];
+						j--;
+					}
+					this.rows[j + 1] = row;
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			sort(from, middle);
+			sort(middle, to);
+			merge(from, middle, to);
+		}
+
+		private void merge(int from, int middle, int to) {
+			if (this.values[this.rows[middle - 1]] <= this.values[this.rows[middle]]) {
+				// already in order
+				return;
+			}
+			System.arraycopy(this.rows, from, this.buffer, from, to - from);
+			int left = from;
+			int right = middle;
+			for (int i = from; i < to; i++) {
+				if (right >= to || (left < middle && this.values[this.buffer[left]] <= this.values[this.buffer[right]])) {
+					this.rows[i] = this.buffer[left++];
+				} else {
+					this.rows[i] = this.buffer[right++];
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.data;
+
+/**
+ * Fixed width storage for the values of a {@link Column}.
+ * <p>
+ * Slots are addressed by index and are one, two, four or eight bytes wide,
+ * as chosen when the store is created. The slots must only be accessed
+ * through the methods of that width: bytes, shorts, ints or floats, and
+ * longs or doubles. Implementations may keep the slots on the heap or
+ * outside of it.
+ */
+interface ValueStore {
+
+	byte getByte(int index);
+
+	void setByte(int index, byte value);
+
+	short getShort(int index);
+
+	void setShort(int index, short value);
+
+	int getInt(int index);
+
+	void setInt(int index, int value);
+
+	long getLong(int index);
+
+	void setLong(int index, long value);
+
+	default float getFloat(int index) {
+		return Float.intBitsToFloat(getInt(index));
+	}
+
+	default void setFloat(int index, float value) {
+		setInt(index, Float.floatToRawIntBits(value));
+	}
+
+	default double getDouble(int index) {
+		return Double.longBitsToDouble(getLong(index));
+	}
+
+	default void setDouble(int index, double value) {
+		setLong(index, Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * @return the base two logarithm of the width of a slot in bytes
+	 */
+	int getSlotShift();
+
+	/**
+	 * @return the number of slots that can be addressed
+	 */
+	int capacity();
+
+	/**
+	 * Grows the store so that it holds at least the given number of slots.
+	 * Existing values are kept, new slots are zero.
+	 *
+	 * @param minCapacity the minimum capacity
+	 */
+	void grow(int minCapacity);
+
+	/**
+	 * Copies the value of one slot to another slot, whatever the width of
+	 * the slots.
+	 *
+	 * @param targetIndex the slot to write
+	 * @param sourceIndex the slot to read
+	 */
+	void copy(int targetIndex, int sourceIndex);
+
+	/**
+	 * Sets a range of slots of four bytes to the same int value.
+	 */
+	default void fill(int fromIndex, int toIndex, int value) {
+		for (int i = fromIndex; i < toIndex; i++) {
+			setInt(i, value);
+		}
+	}
+
+	/**
+	 * Releases the resources held by this store. The store must not be used
+	 * afterwards.
+	 */
+	void close();
+}
@@ -24,14 +24,18 @@ import org.xdat.Main;
 import org.xdat.UserPreferences;
 import org.xdat.actionListeners.importSettings.FileImportSettingsDialogActionListener;
 import org.xdat.gui.WindowClosingAdapter;
+import org.xdat.gui.controls.MinMaxSpinnerModel;
+import org.xdat.gui.controls.RightAlignedSpinner;
 import org.xdat.gui.panels.TitledSubPanel;
 
 import javax.swing.ButtonGroup;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
 import javax.swing.JDialog;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JRadioButton;
+import javax.swing.JSpinner;
 import javax.swing.JTextField;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
@@ -50,6 +54,10 @@ public class FileImportSettingsDialog extends JDialog {
 	private JTextField otherTextField;
 	private JTextField useThisTextField;
 	private JCheckBox treatConsecutiveAsOneCheckBox;
+	private JCheckBox useMappedStorageCheckBox;
+	private JTextField scratchDirTextField;
+	private JSpinner followPollIntervalSpinner;
+	private JSpinner importSampleSizeSpinner;
 	private JRadioButton spaceRadioButton = new JRadioButton("Space");
 	private JRadioButton tabRadioButton = new JRadioButton("Tabstop");
 	private JRadioButton allBlanksRadioButton = new JRadioButton("Any Blank Space");
@@ -73,6 +81,10 @@ public class FileImportSettingsDialog extends JDialog {
 		TitledSubPanel fileBrowsingSettingsPanel = new TitledSubPanel("File Browsing default Location");
 		TitledSubPanel delimiterPanel = new TitledSubPanel("Delimiters");
 		TitledSubPanel localePanel = new TitledSubPanel("Number Format Locale");
+		TitledSubPanel storagePanel = new TitledSubPanel("Data Storage");
+		JPanel scratchDirPanel = new JPanel();
+		JPanel sampleSizePanel = new JPanel();
+		TitledSubPanel followPanel = new TitledSubPanel("Following Data Files");
 		TitledSubPanel buttonsPanel = new TitledSubPanel("");
 		JPanel useThisPathPanel = new JPanel();
 
@@ -125,6 +137,17 @@ public class FileImportSettingsDialog extends JDialog {
 		this.treatConsecutiveAsOneCheckBox = new JCheckBox("Treat consecutive delimiters as one");
 
 		this.treatConsecutiveAsOneCheckBox.setSelected(UserPreferences.getInstance().isTreatConsecutiveAsOne());
+
+		this.useMappedStorageCheckBox = new JCheckBox("Keep data in scratch files instead of memory (for very large files)");
+		this.useMappedStorageCheckBox.setSelected(UserPreferences.getInstance().isUseMappedStorage());
+		this.scratchDirTextField = new JTextField();
+		this.scratchDirTextField.setText(UserPreferences.getInstance().getScratchDir());
+		this.scratchDirTextField.setPreferredSize(new Dimension(250, 25));
+		JButton scratchDirBrowseButton = new JButton("...");
+		this.importSampleSizeSpinner = new RightAlignedSpinner(new MinMaxSpinnerModel(0, Integer.MAX_VALUE));
+		this.importSampleSizeSpinner.setValue(UserPreferences.getInstance().getImportSampleSize());
+		this.followPollIntervalSpinner = new RightAlignedSpinner(new MinMaxSpinnerModel(1, 3600));
+		this.followPollIntervalSpinner.setValue(UserPreferences.getInstance().getFollowPollInterval());
 		JPanel cancelButtonPanel = new JPanel();
 		JPanel okButtonPanel = new JPanel();
 		JButton cancelButton = new JButton("Cancel");
@@ -138,6 +161,10 @@ public class FileImportSettingsDialog extends JDialog {
 		delimiterPanel.setLayout(new GridLayout(4, 2));
 		otherPanel.setLayout(new GridLayout(1, 2));
 		localePanel.setLayout(new GridLayout(0, 1));
+		storagePanel.setLayout(new GridLayout(3, 1));
+		scratchDirPanel.setLayout(new BorderLayout());
+		sampleSizePanel.setLayout(new BorderLayout());
+		followPanel.setLayout(new BorderLayout());
 		cancelButtonPanel.setLayout(new FlowLayout(FlowLayout.RIGHT));
 		okButtonPanel.setLayout(new FlowLayout(FlowLayout.LEFT));
 		buttonsPanel.setLayout(new GridLayout(1, 2));
@@ -147,6 +174,8 @@ public class FileImportSettingsDialog extends JDialog {
 		contentPanel.add(fileBrowsingSettingsPanel);
 		contentPanel.add(delimiterPanel);
 		contentPanel.add(localePanel);
+		contentPanel.add(storagePanel);
+		contentPanel.add(followPanel);
 		this.add(buttonsPanel, BorderLayout.SOUTH);
 
 		// file browsing settings
@@ -173,6 +202,20 @@ public class FileImportSettingsDialog extends JDialog {
 		localePanel.add(usLocaleRadioButton);
 		localePanel.add(germanLocaleRadioButton);
 
+		// storage settings
+		storagePanel.add(useMappedStorageCheckBox);
+		scratchDirPanel.add(new JLabel("Scratch directory:  "), BorderLayout.WEST);
+		scratchDirPanel.add(scratchDirTextField, BorderLayout.CENTER);
+		scratchDirPanel.add(scratchDirBrowseButton, BorderLayout.EAST);
+		storagePanel.add(scratchDirPanel);
+		sampleSizePanel.add(new JLabel("Import a random sample of at most this many designs (0 for all):  "), BorderLayout.WEST);
+		sampleSizePanel.add(importSampleSizeSpinner, BorderLayout.CENTER);
+		storagePanel.add(sampleSizePanel);
+
+		// follow settings
+		followPanel.add(new JLabel("Check followed file for new designs every [s]:  "), BorderLayout.WEST);
+		followPanel.add(followPollIntervalSpinner, BorderLayout.CENTER);
+
 		// buttons panel
 		buttonsPanel.add(cancelButtonPanel);
 		buttonsPanel.add(okButtonPanel);
@@ -182,6 +225,7 @@ public class FileImportSettingsDialog extends JDialog {
 		// add action listener
 		FileImportSettingsDialogActionListener cmd = new FileImportSettingsDialogActionListener(mainWindow, this);
 		useThisBrowseButton.addActionListener(cmd::onBrowse);
+		scratchDirBrowseButton.addActionListener(cmd::onBrowseScratchDir);
 		cancelButton.addActionListener(cmd::onCancel);
 		okButton.addActionListener(cmd::onOk);
 
@@ -218,6 +262,22 @@ public class FileImportSettingsDialog extends JDialog {
 		return treatConsecutiveAsOneCheckBox;
 	}
 
+	public JCheckBox getUseMappedStorageCheckBox() {
+		return useMappedStorageCheckBox;
+	}
+
+	public JTextField getScratchDirTextField() {
+		return scratchDirTextField;
+	}
+
+	public JSpinner getFollowPollIntervalSpinner() {
+		return followPollIntervalSpinner;
+	}
+
+	public JSpinner getImportSampleSizeSpinner() {
+		return importSampleSizeSpinner;
+	}
+
 	public JRadioButton getAllBlanksRadioButton() {
 		return allBlanksRadioButton;
 	}
@@ -23,6 +23,7 @@ package org.xdat.gui.menus.mainWindow;
 import org.xdat.Main;
 import org.xdat.actionListeners.mainMenu.MainDataMenuActionListener;
 
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
 import java.awt.Event;
@@ -31,8 +32,11 @@ import java.awt.event.KeyEvent;
 class MainDataMenu extends JMenu {
 	private final JMenuItem updateDataWithHeadersMenuItem = new JMenuItem("Update Data from File with Headers", 'u');
 	private final JMenuItem updateDataWithoutHeadersMenuItem = new JMenuItem("Update Data from File without Headers", 'o');
+	private final JMenuItem loadFullDataMenuItem = new JMenuItem("Load Full Data", 'l');
+	private final JCheckBoxMenuItem followDataFileMenuItem = new JCheckBoxMenuItem("Follow Data File");
 	private final JMenuItem removeSelectedDesignsMenuItem = new JMenuItem("Remove selected designs", 'd');
 	private final JMenuItem unselectAllMenuItem = new JMenuItem("Unselect all designs", Event.ESCAPE);
+	private final JMenuItem addDerivedParameterMenuItem = new JMenuItem("Add Derived Parameter", 'a');
 	private final MainDataRemoveParameterMenu removeParametersMenu;
 	private final JMenuItem clusteringMenuItem = new JMenuItem("Clustering", 'c');
 
@@ -56,10 +60,19 @@ class MainDataMenu extends JMenu {
 		updateDataWithoutHeadersMenuItem.setMnemonic(KeyEvent.VK_O);
 		updateDataWithoutHeadersMenuItem.addActionListener(e -> cmd.updateData(false));
 		this.add(updateDataWithoutHeadersMenuItem);
+		loadFullDataMenuItem.setMnemonic(KeyEvent.VK_L);
+		loadFullDataMenuItem.addActionListener(cmd::loadFullData);
+		this.add(loadFullDataMenuItem);
+		followDataFileMenuItem.setMnemonic(KeyEvent.VK_F);
+		followDataFileMenuItem.addActionListener(e -> cmd.followDataFile(followDataFileMenuItem));
+		this.add(followDataFileMenuItem);
 		this.addSeparator();
 		removeSelectedDesignsMenuItem.setMnemonic(KeyEvent.VK_DELETE);
 		removeSelectedDesignsMenuItem.addActionListener(cmd::removeSelectedDesigns);
 		this.add(removeSelectedDesignsMenuItem);
+		addDerivedParameterMenuItem.setMnemonic(KeyEvent.VK_A);
+		addDerivedParameterMenuItem.addActionListener(cmd::addDerivedParameter);
+		this.add(addDerivedParameterMenuItem);
 		this.add(removeParametersMenu);
 		this.addSeparator();
 		unselectAllMenuItem.addActionListener(cmd::unselectAllDesigns);
@@ -74,7 +87,10 @@ class MainDataMenu extends JMenu {
 	void setItemsRequiringDataSheetEnabled(boolean enabled) {
 		this.updateDataWithHeadersMenuItem.setEnabled(enabled);
 		this.updateDataWithoutHeadersMenuItem.setEnabled(enabled);
+		this.loadFullDataMenuItem.setEnabled(enabled);
+		this.followDataFileMenuItem.setEnabled(enabled);
 		this.removeSelectedDesignsMenuItem.setEnabled(enabled);
+		this.addDerivedParameterMenuItem.setEnabled(enabled);
 		this.removeParametersMenu.setEnabled(enabled);
 		this.unselectAllMenuItem.setEnabled(enabled);
 		this.clusteringMenuItem.setEnabled(enabled);
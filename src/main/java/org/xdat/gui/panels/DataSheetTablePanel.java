@@ -32,16 +32,18 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
 import javax.swing.SwingConstants;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableColumn;
 import java.awt.GridLayout;
-import java.util.List;
+import java.util.BitSet;
 
 public class DataSheetTablePanel extends JPanel {
 
 	private Main mainWindow;
 	private JTable dataTable;
+	private boolean synchronizingSelection;
 
 	public DataSheetTablePanel(Main mainWindow) {
 		super();
@@ -118,10 +120,52 @@ public class DataSheetTablePanel extends JPanel {
 		return dataTable;
 	}
 	
-	void setSelectedRows(List<Integer> selection){
-		dataTable.clearSelection();
-		for(Integer s : selection){
-			dataTable.getSelectionModel().addSelectionInterval(s, s);
+	/**
+	 * @return the selected rows of the table
+	 */
+	public BitSet getSelectedRows() {
+		ListSelectionModel selectionModel = this.dataTable.getSelectionModel();
+		BitSet selection = new BitSet();
+		for (int row = selectionModel.getMinSelectionIndex(); row >= 0 && row <= selectionModel.getMaxSelectionIndex(); row++) {
+			if (selectionModel.isSelectedIndex(row)) {
+				selection.set(row);
+			}
+		}
+		return selection;
+	}
+
+	/**
+	 * Selects the given rows of the table. Each contiguous range of rows is
+	 * selected as one interval, and the listeners of the table are notified
+	 * once.
+	 *
+	 * @param selection the rows to select
+	 */
+	public void setSelectedRows(BitSet selection) {
+		if (this.dataTable == null || getSelectedRows().equals(selection)) {
+			return;
 		}
+		ListSelectionModel selectionModel = this.dataTable.getSelectionModel();
+		this.synchronizingSelection = true;
+		selectionModel.setValueIsAdjusting(true);
+		try {
+			selectionModel.clearSelection();
+			int start = selection.nextSetBit(0);
+			while (start >= 0) {
+				int end = selection.nextClearBit(start);
+				selectionModel.addSelectionInterval(start, end - 1);
+				start = selection.nextSetBit(end);
+			}
+		} finally {
+			selectionModel.setValueIsAdjusting(false);
+			this.synchronizingSelection = false;
+		}
+	}
+
+	/**
+	 * @return true while the selection of the table is set to the selection of the data sheet
+	 */
+	public boolean isSynchronizingSelection() {
+		return this.synchronizingSelection;
 	}
 }
@@ -50,6 +50,7 @@ import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -58,6 +59,8 @@ import java.util.Optional;
 
 public class ParallelCoordinatesChartPanel extends ChartPanel implements MouseMotionListener, MouseListener, MouseWheelListener {
 	static final long serialVersionUID = 5L;
+	private static final String MISSING_VALUES_LABEL = "NA";
+	private static final String SAMPLE_LABEL_FORMAT = "Sample of %,d of %,d designs";
 	private final Main mainWindow;
 	private final ChartFrame chartFrame;
 	private final ParallelCoordinatesChart chart;
@@ -207,35 +210,37 @@ public class ParallelCoordinatesChartPanel extends ChartPanel implements MouseMo
 		int chartLineThickness = chart.getLineThickness();
 		boolean showOnlySelectedDesigns = chart.isShowOnlySelectedDesigns();
 		int selectedDesignsLineThickness = chart.getSelectedDesignsLineThickness();
+		int missingValuesYPos = chart.getMissingValuesYPos();
 
 		this.lineMap.clear();
 		boolean useAlpha = chart.isUseAlpha();
 		List<Design> highlightedDesigns = new ArrayList<>();
 		DataSheet dataSheet = mainWindow.getDataSheet();
 		String fontFamily = chart.getFontFamily();
+		BitSet activeDesigns = chart.getActiveDesigns();
+		BitSet hiddenDesigns = dataSheet.getRowsOfInactiveClusters();
+		BitSet designsInsideBounds = chart.getDesignsInsideBounds();
 		for (int designIndex = 0; designIndex < dataSheet.getDesignCount(); designIndex++) {
 			Design currentDesign = dataSheet.getDesign(designIndex);
-			if (!currentDesign.isInsideBounds(chart)){
+			if (!designsInsideBounds.get(designIndex)){
 				continue;
 			}
-			boolean currentDesignClusterActive = true;
-			@Nullable Cluster cluster = currentDesign.getCluster();
-			if (cluster != null) {
-				currentDesignClusterActive = cluster.isActive();
-			}
+			boolean currentDesignClusterActive = !hiddenDesigns.get(designIndex);
+			@Nullable Cluster cluster = dataSheet.getCluster(designIndex);
 
-			boolean currentDesignActive = currentDesign.isActive(chart);
+			boolean currentDesignActive = activeDesigns.get(designIndex);
+			boolean currentDesignSelected = dataSheet.isSelected(designIndex);
 
 			boolean displayDesign;
 
 			if (showOnlySelectedDesigns) {
-				displayDesign = currentDesign.isSelected() && (currentDesignActive || showFilteredDesigns) && (currentDesignClusterActive);
+				displayDesign = currentDesignSelected && (currentDesignActive || showFilteredDesigns) && (currentDesignClusterActive);
 			} else {
 				displayDesign = (currentDesignActive || showFilteredDesigns) && (currentDesignClusterActive);
 			}
 
 			if (displayDesign) {
-				if ((showOnlySelectedDesigns || !currentDesign.isSelected())&&(!hoverList.contains(currentDesign.getId()))) {
+				if ((showOnlySelectedDesigns || !currentDesignSelected)&&(!hoverList.contains(currentDesign.getId()))) {
 					g.setColor(chart.getDesignColor(currentDesign, currentDesignActive, useAlpha, activeDesignColor, activeDesignColorNoAlpha, filteredDesignColor, filteredDesignColorNoAlpha));
 					int lineThickness;
 					if (cluster != null) {
@@ -244,7 +249,7 @@ public class ParallelCoordinatesChartPanel extends ChartPanel implements MouseMo
 						lineThickness = chartLineThickness;
 					}
 					drawDesign(g, chart, axisTopPos, designLabelFontSize, axisCount, axisRanges, axisHeights, axisWidths, axisMaxValues, axisMinValues, axisActiveFlags,
-                            axisInversionFlags, currentDesign, lineThickness, fontFamily);
+                            axisInversionFlags, missingValuesYPos, currentDesign, lineThickness, fontFamily);
 				} else {
                     highlightedDesigns.add(currentDesign);
 				}
@@ -253,28 +258,34 @@ public class ParallelCoordinatesChartPanel extends ChartPanel implements MouseMo
         for (Design highlightedDesign : highlightedDesigns) {
 			g.setColor(selectedDesignColor);
 			drawDesign(g, chart, axisTopPos, designLabelFontSize, axisCount, axisRanges, axisHeights, axisWidths, axisMaxValues, axisMinValues, axisActiveFlags,
-                            axisInversionFlags, highlightedDesign, selectedDesignsLineThickness, fontFamily);
+                            axisInversionFlags, missingValuesYPos, highlightedDesign, selectedDesignsLineThickness, fontFamily);
 
         }
 	}
 
     private void drawDesign(Graphics g, ParallelCoordinatesChart chart, int axisTopPos, int designLabelFontSize, int axisCount, double[] axisRanges, int[] axisHeights,
-							int[] axisWidths, double[] axisMaxValues, double[] axisMinValues, boolean[] axisActiveFlags, boolean[] axisInversionFlags, Design currentDesign,
-							int lineThickness, String fontFamily) {
+							int[] axisWidths, double[] axisMaxValues, double[] axisMinValues, boolean[] axisActiveFlags, boolean[] axisInversionFlags, int missingValuesYPos,
+							Design currentDesign, int lineThickness, String fontFamily) {
         int xPositionCurrent = getMarginLeft();
         int yPositionCurrent = axisTopPos;
         int xPositionLast = xPositionCurrent;
         int yPositionLast;
         boolean firstAxisDrawn = false;
+        g.setFont(new Font(fontFamily, Font.PLAIN, designLabelFontSize));
+        FontMetrics fm = g.getFontMetrics();
+        DataSheet dataSheet = this.mainWindow.getDataSheet();
         for (int i = 0; i < axisCount; i++) {
 			//noinspection UnnecessaryLocalVariable
 			int yPosition = axisTopPos;
             if (axisActiveFlags[i]) {
-                Parameter parameter = this.mainWindow.getDataSheet().getParameter(i);
+                Parameter parameter = dataSheet.getParameter(i);
                 double value = currentDesign.getDoubleValue(parameter);
 
                 int yPositionRelToBottom;
-                if (axisRanges[i] == 0) {
+                if (currentDesign.isMissing(parameter)) {
+                    // only reached if missing values are shown, as the design is out of bounds otherwise
+                    yPositionRelToBottom = yPosition + axisHeights[i] - missingValuesYPos;
+                } else if (axisRanges[i] == 0) {
                     yPositionRelToBottom = (int) (axisHeights[i] * 0.5);
                 } else {
                     double ratio;
@@ -289,8 +300,6 @@ public class ParallelCoordinatesChartPanel extends ChartPanel implements MouseMo
                 yPositionLast = yPositionCurrent;
                 yPositionCurrent = yPosition + (axisHeights[i]) - yPositionRelToBottom;
 
-                FontMetrics fm = g.getFontMetrics();
-                g.setFont(new Font(fontFamily, Font.PLAIN, designLabelFontSize));
                 if (firstAxisDrawn) {
                     xPositionCurrent = xPositionCurrent + (int) (axisWidths[i] * 0.5);
 
@@ -357,6 +366,16 @@ public class ParallelCoordinatesChartPanel extends ChartPanel implements MouseMo
 				g.setColor(currentAxis.getAxisColor());
 				g.drawLine(xPosition, yPosition, xPosition, yPosition + (chart.getAxisHeight()));
 
+				// Missing values
+
+				if (chart.isShowMissingValues() && currentAxis.getParameter().isNumeric() && currentAxis.getParameter().getStatistics().getMissingCount() > 0) {
+					int missingValuesYPos = chart.getMissingValuesYPos();
+					g.drawLine(xPosition, missingValuesYPos, xPosition + currentAxis.getTicLength(), missingValuesYPos);
+					g.setColor(currentAxis.getAxisTicLabelFontColor());
+					g.setFont(new Font(fontFamily, Font.PLAIN, currentAxis.getTicLabelFontSize()));
+					g.drawString(MISSING_VALUES_LABEL, xPosition + currentAxis.getTicLength() + 7, missingValuesYPos + (int) (0.5 * currentAxis.getTicLabelFontSize()));
+				}
+
 				// Filters
 
 				Filter uf = currentAxis.getUpperFilter();
@@ -444,6 +463,15 @@ public class ParallelCoordinatesChartPanel extends ChartPanel implements MouseMo
 				lastAxis = currentAxis;
 			}
 		}
+
+		// Sample note
+
+		if (dataSheet.isSampled() && lastAxis != null) {
+			String sampleLabel = String.format(SAMPLE_LABEL_FORMAT, dataSheet.getDesignCount(), dataSheet.getFileDesignCount());
+			g.setColor(lastAxis.getAxisTicLabelFontColor());
+			g.setFont(new Font(fontFamily, Font.ITALIC, lastAxis.getTicLabelFontSize()));
+			g.drawString(sampleLabel, this.getMarginLeft() / 4, this.getHeight() - lastAxis.getTicLabelFontSize());
+		}
 	}
 
 	private Optional<Axis> getAxisAtLocation(int x)  {
@@ -468,19 +496,12 @@ public class ParallelCoordinatesChartPanel extends ChartPanel implements MouseMo
 
 	public void mouseClicked(MouseEvent e) {
 		if (e.getButton() == 1 && updateHoverList(e.getX(), e.getY())) {
-			List<Integer> newSelection = new ArrayList<>();
 			DataSheet dataSheet = this.chart.getDataSheet();
+			BitSet hoveredRows = new BitSet(dataSheet.getDesignCount());
 			for(Integer designId : this.hoverList){
-				Design d = dataSheet.getDesignByID(designId);
-				d.setSelected(!d.isSelected());
-			}
-			
-			for(int i=0; i<dataSheet.getDesignCount(); i++){
-				if(dataSheet.getDesign(i).isSelected())
-					newSelection.add(i);
+				hoveredRows.set(dataSheet.getDesignByID(designId).getRow());
 			}
-			
-			this.mainWindow.getDataSheetTablePanel().setSelectedRows(newSelection);
+			dataSheet.toggleSelectedRows(hoveredRows);
 		} else if (e.getButton() == 3) {
 			int x = e.getX();
 			int y = e.getY();
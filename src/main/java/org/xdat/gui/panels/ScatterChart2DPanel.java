@@ -26,7 +26,6 @@ import org.xdat.chart.ParallelCoordinatesChart;
 import org.xdat.chart.ScatterChart2D;
 import org.xdat.chart.ScatterPlot2D;
 import org.xdat.data.AxisType;
-import org.xdat.data.Cluster;
 import org.xdat.data.DataSheet;
 import org.xdat.data.Design;
 import org.xdat.data.Parameter;
@@ -36,6 +35,7 @@ import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
+import java.util.BitSet;
 
 public class ScatterChart2DPanel extends ChartPanel {
 	static final long serialVersionUID = 1L;
@@ -156,38 +156,37 @@ public class ScatterChart2DPanel extends ChartPanel {
 					Color activeDesignColorNoAlpha = parallelChart.getActiveDesignColorNoAlpha();
 					Color filteredDesignColor = parallelChart.getFilteredDesignColor();
 					Color filteredDesignColorNoAlpha = parallelChart.getFilteredDesignColorNoAlpha();
-					for (int i = 0; i < dataSheet.getDesignCount(); i++) {
+					BitSet activeDesigns = (BitSet) parallelChart.getActiveDesigns().clone();
+					activeDesigns.andNot(dataSheet.getRowsOfInactiveClusters());
+					for (int i = activeDesigns.nextSetBit(0); i >= 0 && i < dataSheet.getDesignCount(); i = activeDesigns.nextSetBit(i + 1)) {
 						Design design = dataSheet.getDesign(i);
-						@Nullable Cluster cluster = design.getCluster();
-						if (cluster != null && !cluster.isActive()) {
+						if (design.isMissing(paramX) || design.isMissing(paramY)) {
 							continue;
 						}
-						if (design.isActive(parallelChart)) {
-							int x = xOrig + (int) ((xValues[i] - minX) * plotWidth / xRange);
-							int y = yOrig - (int) ((yValues[i] - minY) * plotHeight / yRange);
-							if (isXConstant)
-								x = constantX;
-							if (isYConstant)
-								y = constantY;
-							if (design.isSelected()) {
-								g.setColor(chart.getScatterPlot2D().getSelectedDesignColor());
-							} else if (design.hasGradientColor()){
-								g.setColor(parallelChart.getDesignColor(design, true, useAlpha, activeDesignColor, activeDesignColorNoAlpha, filteredDesignColor, filteredDesignColorNoAlpha));
-							} else {
-								g.setColor(chart.getScatterPlot2D().getDesignColor(design));
-							}
-							g.fillOval(x, y, ovalDiameter, ovalDiameter);
+						int x = xOrig + (int) ((xValues[i] - minX) * plotWidth / xRange);
+						int y = yOrig - (int) ((yValues[i] - minY) * plotHeight / yRange);
+						if (isXConstant)
+							x = constantX;
+						if (isYConstant)
+							y = constantY;
+						if (dataSheet.isSelected(i)) {
+							g.setColor(chart.getScatterPlot2D().getSelectedDesignColor());
+						} else if (dataSheet.getGradientColor(i) != null) {
+							g.setColor(parallelChart.getDesignColor(design, true, useAlpha, activeDesignColor, activeDesignColorNoAlpha, filteredDesignColor, filteredDesignColorNoAlpha));
+						} else {
+							g.setColor(chart.getScatterPlot2D().getDesignColor(dataSheet.getCluster(i)));
 						}
+						g.fillOval(x, y, ovalDiameter, ovalDiameter);
 					}
 					break;
 				}
 				// deliberate fall-through!
 			}
 			case (ScatterPlot2D.SHOW_ALL_DESIGNS): {
-				for (int i = 0; i < dataSheet.getDesignCount(); i++) {
+				BitSet hiddenDesigns = dataSheet.getRowsOfInactiveClusters();
+				for (int i = hiddenDesigns.nextClearBit(0); i < dataSheet.getDesignCount(); i = hiddenDesigns.nextClearBit(i + 1)) {
 					Design design = dataSheet.getDesign(i);
-					Cluster cluster = design.getCluster();
-					if (cluster != null && !cluster.isActive()) {
+					if (design.isMissing(paramX) || design.isMissing(paramY)) {
 						continue;
 					}
 					int x = xOrig + (int) ((xValues[i] - minX) * plotWidth / xRange);
@@ -196,11 +195,10 @@ public class ScatterChart2DPanel extends ChartPanel {
 						x = constantX;
 					if (isYConstant)
 						y = constantY;
-					g.setColor(chart.getScatterPlot2D().getDesignColor(dataSheet.getDesign(i)));
-					if (dataSheet.getDesign(i).isSelected()) {
+					if (dataSheet.isSelected(i)) {
 						g.setColor(chart.getScatterPlot2D().getSelectedDesignColor());
 					} else {
-						g.setColor(chart.getScatterPlot2D().getDesignColor(dataSheet.getDesign(i)));
+						g.setColor(chart.getScatterPlot2D().getDesignColor(dataSheet.getCluster(i)));
 					}
 					g.fillOval(x, y, ovalDiameter, ovalDiameter);
 				}
@@ -208,14 +206,15 @@ public class ScatterChart2DPanel extends ChartPanel {
 			}
 			case (ScatterPlot2D.SHOW_SELECTED_DESIGNS): {
 				for (int i = 0; i < dataSheet.getDesignCount(); i++) {
-					if (dataSheet.getDesign(i).isSelected()) {
+					Design design = dataSheet.getDesign(i);
+					if (dataSheet.isSelected(i) && !design.isMissing(paramX) && !design.isMissing(paramY)) {
 						int x = xOrig + (int) ((xValues[i] - minX) * plotWidth / xRange);
 						int y = yOrig - (int) ((yValues[i] - minY) * plotHeight / yRange);
 						if (isXConstant)
 							x = constantX;
 						if (isYConstant)
 							y = constantY;
-						g.setColor(chart.getScatterPlot2D().getDesignColor(dataSheet.getDesign(i)));
+						g.setColor(chart.getScatterPlot2D().getDesignColor(dataSheet.getCluster(i)));
 						g.fillOval(x, y, ovalDiameter, ovalDiameter);
 					}
 				}
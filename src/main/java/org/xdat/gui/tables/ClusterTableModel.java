@@ -175,11 +175,7 @@ public class ClusterTableModel extends AbstractTableModel {
             }
             if (clusterRemoved) {
                 Cluster c = clusters.remove(i);
-                for (int j = 0; j < dataSheet.getDesignCount(); j++) {
-                    if (c.equals(dataSheet.getDesign(j).getCluster())) {
-                        dataSheet.getDesign(j).setCluster(null);
-                    }
-                }
+                dataSheet.setCluster(dataSheet.getClusterRows(c), null);
             }
         }
         for (int i = 0; i < this.clustersBuffer.size(); i++) {
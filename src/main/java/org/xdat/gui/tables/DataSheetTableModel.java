@@ -70,6 +70,6 @@ public class DataSheetTableModel extends AbstractTableModel {
 
     @Override
     public boolean isCellEditable(int rowIndex, int columnIndex) {
-        return columnIndex != 0;
+        return columnIndex != 0 && !dataSheet.getParameter(columnIndex - 1).isDerived();
     }
 }
@@ -21,7 +21,8 @@
 package org.xdat.gui.tables;
 
 import org.xdat.Main;
-import org.xdat.data.Design;
+import org.xdat.data.DataSheet;
+import org.xdat.gui.panels.DataSheetTablePanel;
 
 import javax.swing.DefaultListSelectionModel;
 import javax.swing.event.ListSelectionEvent;
@@ -37,16 +38,12 @@ public class DataTableSelectionModel extends DefaultListSelectionModel implement
 
 	@Override
 	public void valueChanged(ListSelectionEvent e) {
-		for (int d = 0; d < this.mainWindow.getDataSheet().getDesignCount(); d++) {
-			this.mainWindow.getDataSheet().getDesign(d).setSelected(false);
+		DataSheet dataSheet = this.mainWindow.getDataSheet();
+		DataSheetTablePanel tablePanel = this.mainWindow.getDataSheetTablePanel();
+		// the table only follows the selection of the data sheet while it is synchronized
+		if (dataSheet == null || tablePanel.isSynchronizingSelection()) {
+			return;
 		}
-
-		int[] selection = this.mainWindow.getDataSheetTablePanel().getDataTable().getSelectedRows();
-		for (int s = 0; s < selection.length; s++) {
-			Design d = this.mainWindow.getDataSheet().getDesign(selection[s]);
-			if(d!= null)
-				d.setSelected(true);
-		}
-		this.mainWindow.repaintAllChartFrames();
+		dataSheet.setSelectedRows(tablePanel.getSelectedRows());
 	}
 }
@@ -54,6 +54,7 @@ public enum Key {
     PARALLEL_COORDINATES_FILTER_COLOR("ParallelCoordinatesFilterColor"),
     PARALLEL_COORDINATES_FILTER_HEIGHT("ParallelCoordinatesFilterHeight"),
     PARALLEL_COORDINATES_FILTER_WIDTH("ParallelCoordinatesFilterWidth"),
+    PARALLEL_COORDINATES_MISSING_VALUES("ParallelCoordinatesMissingValues"),
     FONT_FAMILY("fontFamily"),
     TIC_LABEL_FONT_SIZE("ticLabelFontSize"),
     DESIGN_LABEL_FONT_SIZE("designLabelFontSize"),
@@ -73,12 +74,17 @@ public enum Key {
     PARALLEL_COORDINATES_AXIS_INVERTED("ParallelCoordinatesAxisInverted"),
     PARALLEL_COORDINATES_AXIS_DEFAULT_MIN("ParallelCoordinatesAxisDefaultMin"),
     PARALLEL_COORDINATES_AXIS_DEFAULT_MAX("ParallelCoordinatesAxisDefaultMax"),
+    PARALLEL_COORDINATES_AXIS_VALUE_ENCODING("ParallelCoordinatesAxisValueEncoding"),
     DIRECTORY_TO_IMPORT_FROM("dirToImportFrom"),
     LAST_FILE_BROWSING_DIRECTORY("lastFileBrowsingDirectory"),
     USER_DIR("userDir"),
     DELIMITER("delimiter"),
     TREAT_CONSECUTIVE_AS_ONE("treatConsecutiveAsOne"),
     OTHER_DELIMITER("otherDelimiter"),
+    USE_MAPPED_STORAGE("useMappedStorage"),
+    SCRATCH_DIR("scratchDir"),
+    FOLLOW_POLL_INTERVAL("followPollInterval"),
+    IMPORT_SAMPLE_SIZE("importSampleSize"),
     ;
 
     private final String id;
@@ -21,17 +21,23 @@
 package org.xdat.settings;
 
 import org.xdat.data.AxisType;
+import org.xdat.data.ValueEncoding;
 import org.xdat.gui.panels.DisabledValueSupplier;
 import org.xdat.gui.panels.EnabledCondition;
 
 import javax.swing.JLabel;
 import java.awt.Color;
 import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.function.Supplier;
 
 public class SettingsGroupFactory {
+    public static final String MISSING_VALUES_HIDE = "Hide Designs";
+    public static final String MISSING_VALUES_SHOW_BELOW_AXIS = "Show below Axis";
+    public static final String ENCODING_AUTOMATIC = "Automatic";
+
     public static SettingsGroup buildGeneralParallelCoordinatesChartSettingsGroup() {
 
         return SettingsGroup.newBuilder()
@@ -54,6 +60,8 @@ public class SettingsGroupFactory {
                 .addSetting(new IntegerSetting("Design Line Thickness", 1, Key.LINE_THICKNESS, 0, 10))
                 .addSetting(new IntegerSetting("Filter Symbol Width", 7, Key.PARALLEL_COORDINATES_FILTER_WIDTH, 1, 30))
                 .addSetting(new IntegerSetting("Filter Symbol Height", 10, Key.PARALLEL_COORDINATES_FILTER_HEIGHT, 1, 60))
+                .addSetting(new MultipleChoiceSetting("Missing Values", MISSING_VALUES_HIDE, Key.PARALLEL_COORDINATES_MISSING_VALUES,
+                        Arrays.asList(MISSING_VALUES_HIDE, MISSING_VALUES_SHOW_BELOW_AXIS)))
                 .build();
     }
 
@@ -90,9 +98,21 @@ public class SettingsGroupFactory {
                 .addSetting(autoFit)
                 .addSetting(min)
                 .addSetting(max)
+                .addSetting(buildEncodingSetting())
                 .build();
     }
 
+    private static MultipleChoiceSetting buildEncodingSetting() {
+        List<String> options = new ArrayList<>();
+        options.add(ENCODING_AUTOMATIC);
+        for (ValueEncoding encoding : ValueEncoding.values()) {
+            if (encoding.isSelectable()) {
+                options.add(encoding.getLabel());
+            }
+        }
+        return new MultipleChoiceSetting("Value Storage", ENCODING_AUTOMATIC, Key.PARALLEL_COORDINATES_AXIS_VALUE_ENCODING, options);
+    }
+
     public static SettingsGroup build2DScatterChartAxisSettingsGroup(AxisType axisType) {
         return SettingsGroup.newBuilder()
                 .addSetting(new BooleanSetting("Autofit Axis", true, axisType == AxisType.X ? Key.SCATTER_CHART_2D_AUTOFIT_X : Key.SCATTER_CHART_2D_AUTOFIT_Y))
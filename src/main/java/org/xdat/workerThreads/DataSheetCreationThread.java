@@ -50,6 +50,7 @@ public class DataSheetCreationThread extends SwingWorker {
 			ClusterSet clusterSet = new ClusterSet(dataSheet);
 
 			if (this.progressMonitor.isCanceled()) {
+				dataSheet.dispose();
 				this.mainWindow.repaint();
 			} else {
 				this.mainWindow.setDataSheet(dataSheet);
@@ -0,0 +1,86 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.xdat.workerThreads;
+
+import org.xdat.Main;
+import org.xdat.UserPreferences;
+import org.xdat.data.AppendedDesigns;
+import org.xdat.data.DataSheet;
+
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.function.Consumer;
+
+/**
+ * Polls the source file of a data sheet and appends the designs that were
+ * written to it since the last poll, until the thread is cancelled or the
+ * data sheet is replaced.
+ */
+public class DataSheetFollowThread extends SwingWorker {
+	private final Main mainWindow;
+	private final DataSheet dataSheet;
+	private final Consumer<DataSheetFollowThread> onStopped;
+
+	public DataSheetFollowThread(Main mainWindow, DataSheet dataSheet, Consumer<DataSheetFollowThread> onStopped) {
+		this.mainWindow = mainWindow;
+		this.dataSheet = dataSheet;
+		this.onStopped = onStopped;
+	}
+
+	@Override
+	public Object doInBackground() {
+		try {
+			while (!isCancelled() && isFollowedDataSheetShown()) {
+				// an update reads the whole file again, so polling resumes at its end once it has finished
+				if (!this.dataSheet.isUpdating()) {
+					AppendedDesigns appendedDesigns = this.dataSheet.readAppendedDesigns();
+					if (!appendedDesigns.isEmpty()) {
+						SwingUtilities.invokeAndWait(() -> {
+							if (isFollowedDataSheetShown()) {
+								this.dataSheet.appendDesigns(appendedDesigns);
+							}
+						});
+					}
+				}
+				Thread.sleep(UserPreferences.getInstance().getFollowPollInterval() * 1000L);
+			}
+		} catch (InterruptedException e) {
+			// cancelled while waiting for the next poll
+		} catch (IOException e) {
+			JOptionPane.showMessageDialog(this.mainWindow, "Error on following data file:\n " + e.getMessage(), "Follow Data File", JOptionPane.ERROR_MESSAGE);
+		} catch (InvocationTargetException e) {
+			JOptionPane.showMessageDialog(this.mainWindow, "Error on appending designs:\n " + e.getCause().getMessage(), "Follow Data File", JOptionPane.ERROR_MESSAGE);
+		}
+		return null;
+	}
+
+	@Override
+	protected void done() {
+		this.onStopped.accept(this);
+	}
+
+	private boolean isFollowedDataSheetShown() {
+		return this.mainWindow.getDataSheet() == this.dataSheet;
+	}
+}
@@ -20,33 +20,47 @@
 
 package org.xdat.workerThreads;
 
+import org.jetbrains.annotations.Nullable;
 import org.xdat.Main;
 import org.xdat.chart.ParallelCoordinatesChart;
-import org.xdat.data.ClusterSet;
 import org.xdat.data.DataSheet;
 import org.xdat.exceptions.InconsistentDataException;
 import org.xdat.gui.frames.ChartFrame;
 
 import javax.swing.JOptionPane;
 import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.util.HashMap;
 import java.util.Map;
 
 public class DataSheetUpdateThread extends SwingWorker {
+	@Nullable
 	private String pathToInputFile;
 	private boolean dataHasHeaders;
 	private Main mainWindow;
 	private ProgressMonitor progressMonitor;
 
-	public DataSheetUpdateThread(String pathToInputFile, boolean dataHasHeaders, Main mainWindow, ProgressMonitor progressMonitor) {
+	public DataSheetUpdateThread(@Nullable String pathToInputFile, boolean dataHasHeaders, Main mainWindow, ProgressMonitor progressMonitor) {
 		this.pathToInputFile = pathToInputFile;
 		this.dataHasHeaders = dataHasHeaders;
 		this.mainWindow = mainWindow;
 		this.progressMonitor = progressMonitor;
 	}
 
+	/**
+	 * Creates a thread that reads all designs of the source file of the data
+	 * sheet, if only a sample of them was imported.
+	 *
+	 * @param mainWindow the main window
+	 * @param progressMonitor the progress monitor
+	 */
+	public DataSheetUpdateThread(Main mainWindow, ProgressMonitor progressMonitor) {
+		this(null, false, mainWindow, progressMonitor);
+	}
+
 	@Override
 	public Object doInBackground() {
 		try {
@@ -68,28 +82,43 @@ public class DataSheetUpdateThread extends SwingWorker {
 			}
 
 			DataSheet dataSheet = mainWindow.getDataSheet();
-			ClusterSet clusterSet = mainWindow.getCurrentClusterSet();
-			dataSheet.updateData(pathToInputFile, dataHasHeaders, progressMonitor, clusterSet);
+			if (pathToInputFile == null) {
+				dataSheet.loadFullData(progressMonitor);
+			} else {
+				dataSheet.updateData(pathToInputFile, dataHasHeaders, progressMonitor);
+			}
 
-			for (int i = 0; i < mainWindow.getChartFrameCount(); i++) {
-				ChartFrame f = mainWindow.getChartFrame(i);
-				if (f.getChart().getClass().equals(ParallelCoordinatesChart.class)) {
-					ParallelCoordinatesChart c = (ParallelCoordinatesChart) f.getChart();
+			// the Filters are applied on the event dispatch thread, which also handles the drags of the user
+			SwingUtilities.invokeAndWait(() -> {
+				for (int i = 0; i < mainWindow.getChartFrameCount(); i++) {
+					ChartFrame f = mainWindow.getChartFrame(i);
+					if (f.getChart().getClass().equals(ParallelCoordinatesChart.class)) {
+						ParallelCoordinatesChart c = (ParallelCoordinatesChart) f.getChart();
 
-					double[] ufValues = upperFilterValues.get(f);
-					double[] lfValues = lowerFilterValues.get(f);
-					for (int a = 0; a < c.getAxisCount(); a++) {
-						c.getAxis(a).getUpperFilter().setValue(ufValues[a], dataSheet);
-						c.getAxis(a).getLowerFilter().setValue(lfValues[a], dataSheet);
+						double[] ufValues = upperFilterValues.get(f);
+						double[] lfValues = lowerFilterValues.get(f);
+						// only filters on axes whose parameter changed its type have been reset
+						for (int a = 0; a < c.getAxisCount(); a++) {
+							if (c.getAxis(a).getUpperFilter().getValue() != ufValues[a]) {
+								c.getAxis(a).getUpperFilter().setValue(ufValues[a], dataSheet);
+							}
+							if (c.getAxis(a).getLowerFilter().getValue() != lfValues[a]) {
+								c.getAxis(a).getLowerFilter().setValue(lfValues[a], dataSheet);
+							}
+						}
 					}
 				}
-			}
+			});
 
 		} catch (IOException e) {
 
 			JOptionPane.showMessageDialog(this.mainWindow, "Error on updating data from file:\n " + e.getMessage(), "Update Data", JOptionPane.ERROR_MESSAGE);
 		} catch (InconsistentDataException e1) {
 			JOptionPane.showMessageDialog(this.mainWindow, e1.getMessage() + "\nThe previous state will be restored.", "Update Data", JOptionPane.ERROR_MESSAGE);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (InvocationTargetException e) {
+			JOptionPane.showMessageDialog(this.mainWindow, "Error on restoring the filters:\n " + e.getCause().getMessage(), "Update Data", JOptionPane.ERROR_MESSAGE);
 		}
 
 		this.progressMonitor.close();
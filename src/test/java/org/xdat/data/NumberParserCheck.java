@@ -0,0 +1,257 @@
+/*
+ *  Copyright 2019, Enguerrand de Rochefort
+ *
+ * This file is part of xdat.
+ *
+ * xdat is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * xdat is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with xdat.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.xdat.data;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Compares {@link NumberParser#parseDouble(CharSequence)} with the
+ * NumberFormat based parsing it replaced, and the time both take to parse
+ * numbers as they are found in data files.
+ * <p>
+ * The inputs are a list of edge cases, such as grouping separators,
+ * exponents, the NaN and infinity symbols and a leading '+', and randomly
+ * generated numbers, each parsed for several locales. The result must match
+ * the double value of the parsed number bit for bit. Narrowed to a float, it
+ * must match the float value the previous parsing returned, except for longs
+ * that a double cannot hold, which are rounded twice and are only counted.
+ * The check exits with a non-zero status if any result does not match.
+ * <p>
+ * Run it with
+ * <pre>
+ * java -cp target/classes:target/test-classes org.xdat.data.NumberParserCheck [randomInputs]
+ * </pre>
+ */
+public class NumberParserCheck {
+	private static final Pattern WRONG_DOT_GROUPING = Pattern.compile(".*\\..{0,2}?\\..*");
+	private static final Pattern WRONG_COMMA_GROUPING = Pattern.compile(".*,.{0,2}?,.*");
+	private static final int TIMING_ROUNDS = 5;
+	private static final int TIMING_INPUTS = 200000;
+	private static final Locale[] LOCALES = {
+			Locale.US, Locale.UK, Locale.GERMANY, Locale.FRANCE, Locale.ITALY,
+			new Locale("de", "CH"), new Locale("en", "IN"), Locale.ROOT
+	};
+	private static final String[] EDGE_CASES = {
+			"", " ", "-", "+", ".", ",", "E", "e", "-E5", "0", "-0", "00", "0.0", "-0.0", ".5", "5.", ",5", "5,",
+			"1", "+1", "+1.5", "++1", "--1", "1-", "-1", " 1", "1 ", "1a", "a1", "0x10",
+			"1,000", "1.000", "1,000,000", "1.000.000", "1,00", "1.00", "1,0000", "1.0000", "10,00,000", "1,,000", "1..000",
+			"1,000.5", "1.000,5", "1,000,5", "1.000.5", "1,5.3", "1.5,3", ",000", ".000", "1,", "1.", "1,000,",
+			"1'000", "1'000.5", "1\u2019000.5", "1\u00a0000", "1\u202f000,5", "1 000,5",
+			"1E5", "1e5", "1E-5", "1E+5", "1.5E10", "1,5E10", "-1.5E-10", "1E", "1E-", "E5", "1E5E5", "1E5.5",
+			"1E400", "1E-400", "1E100000", "1E-100000", "123456789E-5", "0.000001E6",
+			"NaN", "nan", "-NaN", "NaN1", "\ufffd", "\u221e", "-\u221e", "Infinity", "-Infinity", "inf",
+			"9223372036854775807", "9223372036854775808", "-9223372036854775808", "123456789012345678",
+			"1234567890123456789", "12345678901234567890", "1152921573326323713", "1,152,921,573,326,323,713", "0.1234567890123456789", "3.4028235E38", "1.4E-45",
+			"4.9E-324", "1.7976931348623157E308", "0.1", "0.2", "0.3", "123.456", "1,234.5678", "1.234,5678",
+			"\u0661\u0662\u0663", "\uff11\uff12", "12%", "$12", "1\u00a0234,5", "-1,234", "-1.234"
+	};
+
+	public static void main(String[] args) {
+		int randomInputs = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		List<String> inputs = new ArrayList<>();
+		for (String edgeCase : EDGE_CASES) {
+			inputs.add(edgeCase);
+		}
+		for (Locale locale : LOCALES) {
+			DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+			inputs.add(symbols.getNaN());
+			inputs.add(symbols.getInfinity());
+			inputs.add(symbols.getMinusSign() + symbols.getInfinity());
+			inputs.add(symbols.getMinusSign() + "1" + symbols.getGroupingSeparator() + "234" + symbols.getDecimalSeparator() + "5");
+			inputs.add("1" + symbols.getExponentSeparator() + symbols.getMinusSign() + "3");
+		}
+		Random random = new Random(42);
+		for (int i = 0; i < randomInputs; i++) {
+			inputs.add(createRandomInput(random));
+		}
+
+		int mismatches = 0;
+		int floatMismatches = 0;
+		int doubleRoundedFloats = 0;
+		for (Locale locale : LOCALES) {
+			NumberParser parser = NumberParser.getInstance(locale);
+			for (String input : inputs) {
+				Number expected = parseWithNumberFormat(input, locale);
+				double actual = parser.parseDouble(input);
+				double expectedDouble = expected == null ? Double.NaN : expected.doubleValue();
+				float expectedFloat = expected == null ? Float.NaN : expected.floatValue();
+				if (Double.doubleToLongBits(expectedDouble) != Double.doubleToLongBits(actual)) {
+					if (mismatches++ < 20) {
+						System.out.println(locale + " \"" + input + "\": expected " + expectedDouble + " but was " + actual);
+					}
+				}
+				if (Float.floatToIntBits(expectedFloat) != Float.floatToIntBits((float) actual)) {
+					if (expected instanceof Long && (float) expectedDouble == (float) actual) {
+						// a long that a double cannot hold is rounded twice when it is narrowed from the double
+						doubleRoundedFloats++;
+					} else if (floatMismatches++ < 20) {
+						System.out.println(locale + " \"" + input + "\": expected float " + expectedFloat + " but was " + (float) actual);
+					}
+				}
+			}
+		}
+		System.out.println(inputs.size() + " inputs in " + LOCALES.length + " locales: " + mismatches + " double mismatches, "
+				+ floatMismatches + " float mismatches, " + doubleRoundedFloats + " floats rounded twice from longs");
+
+		for (Locale locale : LOCALES) {
+			compareTimes(createDataFileInputs(random, locale), locale);
+		}
+		if (mismatches > 0 || floatMismatches > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * @return numbers as they are typically found in data files, formatted for the given locale without grouping
+	 */
+	private static List<String> createDataFileInputs(Random random, Locale locale) {
+		NumberFormat format = NumberFormat.getInstance(locale);
+		format.setGroupingUsed(false);
+		format.setMaximumFractionDigits(6);
+		List<String> inputs = new ArrayList<>();
+		for (int i = 0; i < TIMING_INPUTS; i++) {
+			double value = random.nextBoolean() ? random.nextInt(10000) : random.nextGaussian() * Math.pow(10, random.nextInt(6));
+			inputs.add(format.format(value));
+		}
+		return inputs;
+	}
+
+	/**
+	 * Prints the time per input of the previous and the current parsing,
+	 * after parsing all inputs a few times to warm up.
+	 */
+	private static void compareTimes(List<String> inputs, Locale locale) {
+		NumberParser parser = NumberParser.getInstance(locale);
+		double checksum = 0;
+		long previousNanos = Long.MAX_VALUE;
+		long currentNanos = Long.MAX_VALUE;
+		for (int round = 0; round < TIMING_ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (String input : inputs) {
+				Number number = parseWithNumberFormat(input, locale);
+				if (number != null) {
+					checksum += number.floatValue();
+				}
+			}
+			long middle = System.nanoTime();
+			for (String input : inputs) {
+				double value = parser.parseDouble(input);
+				if (!Double.isNaN(value)) {
+					checksum += value;
+				}
+			}
+			long end = System.nanoTime();
+			previousNanos = Math.min(previousNanos, middle - start);
+			currentNanos = Math.min(currentNanos, end - middle);
+		}
+		System.out.printf(Locale.ROOT, "%-6s NumberFormat %7.1f ns, NumberParser %6.1f ns per input, %.1fx (checksum %s)%n",
+				locale, (double) previousNanos / inputs.size(), (double) currentNanos / inputs.size(),
+				(double) previousNanos / currentNanos, checksum);
+	}
+	/**
+	 * The parsing as it was done before the direct parsing was added, which
+	 * returned the float value of the number.
+	 */
+	@Nullable
+	private static Number parseWithNumberFormat(String string, Locale locale) {
+		NumberFormat nf = NumberFormat.getInstance(locale);
+		ParsePosition parsePosition = new ParsePosition(0);
+		Number number = nf.parse(string, parsePosition);
+		if (number == null) {
+			return null;
+		} else if (parsePosition.getIndex() < string.length()) {
+			// could not parse the whole string
+			return null;
+		} else if (WRONG_DOT_GROUPING.matcher(string).matches() || WRONG_COMMA_GROUPING.matcher(string).matches()) {
+			// Recognized wrong distance of digit grouping symbols
+			return null;
+		} else {
+			return number;
+		}
+	}
+
+	private static String createRandomInput(Random random) {
+		StringBuilder sb = new StringBuilder();
+		int sign = random.nextInt(10);
+		if (sign == 0) {
+			sb.append('+');
+		} else if (sign < 4) {
+			sb.append('-');
+		}
+		int integerDigits = random.nextInt(random.nextBoolean() ? 4 : 22);
+		for (int i = 0; i < integerDigits; i++) {
+			sb.append((char) ('0' + random.nextInt(10)));
+			int remaining = integerDigits - i - 1;
+			if (remaining > 0 && random.nextInt(remaining % 3 == 0 ? 2 : 12) == 0) {
+				sb.append(randomSeparator(random));
+			}
+		}
+		if (random.nextInt(3) > 0) {
+			sb.append(randomSeparator(random));
+			int fractionDigits = random.nextInt(random.nextBoolean() ? 5 : 22);
+			for (int i = 0; i < fractionDigits; i++) {
+				sb.append((char) ('0' + random.nextInt(10)));
+			}
+		}
+		if (random.nextInt(5) == 0) {
+			sb.append(random.nextInt(4) == 0 ? 'e' : 'E');
+			int exponentSign = random.nextInt(4);
+			if (exponentSign == 0) {
+				sb.append('-');
+			} else if (exponentSign == 1) {
+				sb.append('+');
+			}
+			int exponentDigits = random.nextInt(4);
+			for (int i = 0; i < exponentDigits; i++) {
+				sb.append((char) ('0' + random.nextInt(10)));
+			}
+		}
+		if (random.nextInt(50) == 0) {
+			sb.insert(random.nextInt(sb.length() + 1), randomSeparator(random));
+		}
+		return sb.toString();
+	}
+
+	private static char randomSeparator(Random random) {
+		switch (random.nextInt(20)) {
+			case 0:
+				return '\'';
+			case 1:
+				return '\u00a0';
+			case 2:
+				return '\u202f';
+			case 3:
+				return '\u2019';
+			case 4:
+				return ' ';
+			default:
+				return random.nextBoolean() ? '.' : ',';
+		}
+	}
+}